@@ -69,6 +69,9 @@ public class TasProperties
     @Value("${serverHealth.showTenants:true}")
     private Boolean showTenantsOnServerHealth;
 
+    @Value("${serverHealth.endpoints:repository}")
+    private String serverHealthEndpoints;
+
     @Value("${browser.name:Firefox}")
     private String browserName;
 
@@ -183,6 +186,18 @@ public class TasProperties
     @Value("${display.xport:1}")
     private String displayXport;
 
+    @Value("${dataprep.parallelism:8}")
+    private int dataPrepParallelism;
+
+    @Value("${dataprep.cmis.session.ttl:600}")
+    private int cmisSessionTtl;
+
+    @Value("${dataprep.cmis.session.cacheSize:100}")
+    private int cmisSessionCacheSize;
+
+    @Value("${dataprep.siteMembers.chunkSize:100}")
+    private int siteMembersChunkSize;
+
     
 	public Boolean showTenantsOnServerHealth()
     {
@@ -742,4 +757,69 @@ public class TasProperties
     {
 		return displayXport;
 	}
-}
\ No newline at end of file
+
+    /**
+     * @return the number of worker threads used by bulk data preparation calls
+     */
+    public int getDataPrepParallelism()
+    {
+        return dataPrepParallelism;
+    }
+
+    public void setDataPrepParallelism(int dataPrepParallelism)
+    {
+        this.dataPrepParallelism = dataPrepParallelism;
+    }
+
+    /**
+     * @return the number of seconds a cached CMIS session is reused, 0 to open a new session each time
+     */
+    public int getCmisSessionTtl()
+    {
+        return cmisSessionTtl;
+    }
+
+    public void setCmisSessionTtl(int cmisSessionTtl)
+    {
+        this.cmisSessionTtl = cmisSessionTtl;
+    }
+
+    /**
+     * @return the maximum number of users having a cached CMIS session
+     */
+    public int getCmisSessionCacheSize()
+    {
+        return cmisSessionCacheSize;
+    }
+
+    public void setCmisSessionCacheSize(int cmisSessionCacheSize)
+    {
+        this.cmisSessionCacheSize = cmisSessionCacheSize;
+    }
+
+    /**
+     * @return the number of site members added with one request by bulk membership calls
+     */
+    public int getSiteMembersChunkSize()
+    {
+        return siteMembersChunkSize;
+    }
+
+    public void setSiteMembersChunkSize(int siteMembersChunkSize)
+    {
+        this.siteMembersChunkSize = siteMembersChunkSize;
+    }
+
+    /**
+     * @return comma separated services checked by default by the server readiness probe: repository, solr, sync, jmx
+     */
+    public String getServerHealthEndpoints()
+    {
+        return serverHealthEndpoints;
+    }
+
+    public void setServerHealthEndpoints(String serverHealthEndpoints)
+    {
+        this.serverHealthEndpoints = serverHealthEndpoints;
+    }
+}
@@ -12,22 +12,19 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.OutputStreamWriter;
-import java.io.RandomAccessFile;
 import java.io.StringReader;
 import java.net.URL;
-import java.nio.ByteBuffer;
-import java.nio.channels.FileChannel;
 import java.nio.charset.Charset;
 import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
-import java.util.Random;
 import java.util.Scanner;
 
 import org.alfresco.dataprep.CMISUtil.DocumentType;
-import org.alfresco.utility.exception.DataPreparationException;
+import org.alfresco.utility.data.ContentGenerator;
+import org.alfresco.utility.exception.IORuntimeException;
 import org.alfresco.utility.exception.TestConfigurationException;
 import org.alfresco.utility.exception.TestObjectNotDefinedException;
 import org.alfresco.utility.model.FileModel;
@@ -273,18 +270,12 @@ public class Utility
      * We will wait until the <seconds> are passed from current run
      * 
      * @param seconds
+     * @deprecated use {@link Wait#seconds(int, String...)}
      */
+    @Deprecated
     public static void waitToLoopTime(int seconds, String... info)
     {
-        LOG.info("Wait until {} second(s) are passed. {}", seconds, StringUtils.join(info, ' '));
-        long currentTime;
-        long endTime;
-        currentTime = System.currentTimeMillis();
-        do
-        {
-            endTime = System.currentTimeMillis();
-        }
-        while (endTime - currentTime < (seconds * 1000));
+        Wait.seconds(seconds, info);
     }
     
     /**
@@ -313,7 +304,7 @@ public class Utility
                 {
                     throw new AssertionError("Maximum retry period reached, test failed.", e);
                 }
-                Thread.sleep(interval);
+                Wait.sleep(interval);
             }
         } while (true);
     }
@@ -423,43 +414,16 @@ public class Utility
     }
 
     /**
-     * Create a new {@link File} with specific size (MB)
+     * Create a new {@link File} with specific size (MB) filled with random text, see {@link ContentGenerator}
      * 
      * @param fileName
      * @param sizeMB
      * @return {@link File}
-     * @throws DataPreparationException If there is an error preparing the file.
+     * @throws IORuntimeException If there is an error writing the file.
      */
     public static File getFileWithSize(String fileName, int sizeMB)
     {
-        byte[] buffer = getRandomString(1024 * 1024).getBytes();
-        int number_of_lines = sizeMB;
-        try(FileChannel rwChannel = new RandomAccessFile(fileName, "rw").getChannel())
-        {
-            ByteBuffer wrBuf = rwChannel.map(FileChannel.MapMode.READ_WRITE, 0, buffer.length * number_of_lines);
-            for (int i = 0; i < number_of_lines; i++)
-            {
-                wrBuf.put(buffer);
-            }
-        }
-        catch (IOException e)
-        {
-            throw new DataPreparationException(e);
-        }
-        File file1 = new File(fileName);
-        return file1;
-    }
-
-    private static String getRandomString(int length)
-    {
-        Random RANDOM = new Random();
-        char from[] = "abcdefghijklmnopqrstuvwxyz".toCharArray();
-        StringBuilder result = new StringBuilder();
-        for (int i = 0; i < length; i++)
-        {
-            result.append(from[RANDOM.nextInt((from.length - 1))]);
-        }
-        return result.toString();
+        return ContentGenerator.text(System.nanoTime()).writeTo(Paths.get(fileName), 1024L * 1024 * sizeMB);
     }
 
     public static String getSystemOrFileProperty(String key, Properties properties)
@@ -577,7 +541,7 @@ public class Utility
         boolean exists = file.exists();
         while (!exists && retry < Utility.retryCountSeconds - 10)
         {
-            Utility.waitToLoopTime(1);
+            Wait.seconds(1);
             exists = file.exists();
             retry++;
         }
@@ -600,7 +564,7 @@ public class Utility
         boolean exists = file.exists();
         while (!exists && retry < Utility.retryCountSeconds - 10)
         {
-            Utility.waitToLoopTime(1);
+            Wait.seconds(1);
             exists = file.exists();
             retry++;
         }
@@ -855,11 +819,11 @@ public class Utility
     {
         boolean isRunning = false;
         int retry = 0;
-        waitToLoopTime(1, "Wait until process is running...");
+        Wait.seconds(1, "Wait until process is running...");
         while (!isRunning && retry <= 2 * retryCountSeconds)
         {
             retry++;
-            waitToLoopTime(1, "Wait until process is running...");
+            Wait.seconds(1, "Wait until process is running...");
             isRunning = isProcessRunning(processName);
         }
 
@@ -879,7 +843,7 @@ public class Utility
         while (isProcessRunning(processName) && count < timeout)
         {
             count = count + loopTime;
-            waitToLoopTime(loopTime, "Wait until process finishes...");
+            Wait.seconds(loopTime, "Wait until process finishes...");
         }
     }
 
@@ -0,0 +1,154 @@
+package org.alfresco.utility;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.testng.ITestResult;
+import org.testng.Reporter;
+
+/**
+ * Waits that park the current thread instead of keeping a CPU busy.
+ * The time spent waiting is added to the current test, see {@link #getWaitTime(ITestResult)}, and written in the JSON and HTML reports.
+ * <code>
+ * Wait.seconds(2, "Wait for the rule to be executed");
+ * </code>
+ * The {@link Clock} can be replaced, for example to check code that waits without waiting for real.
+ */
+public final class Wait
+{
+    static Logger LOG = LogFactory.getLogger();
+
+    /**
+     * Name of the {@link ITestResult} attribute holding the milliseconds waited by the test
+     */
+    public static final String WAIT_TIME_ATTRIBUTE = "waitTime";
+
+    /**
+     * Source of time used by all waits
+     */
+    public interface Clock
+    {
+        /**
+         * @return current time in nanoseconds, only meaningful to compute elapsed time
+         */
+        long nanoTime();
+
+        /**
+         * Block the current thread for up to <nanos> nanoseconds; it can return earlier
+         */
+        void park(long nanos);
+    }
+
+    public static final Clock SYSTEM_CLOCK = new Clock()
+    {
+        @Override
+        public long nanoTime()
+        {
+            return System.nanoTime();
+        }
+
+        @Override
+        public void park(long nanos)
+        {
+            LockSupport.parkNanos(nanos);
+        }
+    };
+
+    private static volatile Clock clock = SYSTEM_CLOCK;
+
+    private static final AtomicLong totalWaitNanos = new AtomicLong();
+
+    private Wait()
+    {
+    }
+
+    public static void setClock(Clock newClock)
+    {
+        clock = newClock;
+    }
+
+    public static void resetClock()
+    {
+        clock = SYSTEM_CLOCK;
+    }
+
+    /**
+     * Wait until <seconds> are passed. If the thread is interrupted it stops waiting and keeps its interrupted status.
+     *
+     * @param seconds
+     * @param info logged with the wait
+     */
+    public static void seconds(int seconds, String... info)
+    {
+        LOG.info("Wait until {} second(s) are passed. {}", seconds, StringUtils.join(info, ' '));
+        try
+        {
+            sleep(TimeUnit.SECONDS.toMillis(seconds));
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Wait until <millis> are passed
+     *
+     * @throws InterruptedException if the thread is interrupted while waiting
+     */
+    public static void sleep(long millis) throws InterruptedException
+    {
+        Clock current = clock;
+        long start = current.nanoTime();
+        long deadline = start + TimeUnit.MILLISECONDS.toNanos(millis);
+        try
+        {
+            long remaining;
+            while ((remaining = deadline - current.nanoTime()) > 0)
+            {
+                current.park(remaining);
+                if (Thread.interrupted())
+                {
+                    throw new InterruptedException("Interrupted while waiting");
+                }
+            }
+        }
+        finally
+        {
+            record(current.nanoTime() - start);
+        }
+    }
+
+    /**
+     * @return milliseconds waited by the test of <result>
+     */
+    public static long getWaitTime(ITestResult result)
+    {
+        Object waitTime = result.getAttribute(WAIT_TIME_ATTRIBUTE);
+        return waitTime == null ? 0 : (Long) waitTime;
+    }
+
+    /**
+     * @return milliseconds waited by all threads since the start of the run
+     */
+    public static long getTotalWaitTime()
+    {
+        return TimeUnit.NANOSECONDS.toMillis(totalWaitNanos.get());
+    }
+
+    private static void record(long nanos)
+    {
+        totalWaitNanos.addAndGet(nanos);
+        ITestResult result = Reporter.getCurrentTestResult();
+        if (result != null)
+        {
+            synchronized (result)
+            {
+                result.setAttribute(WAIT_TIME_ATTRIBUTE, getWaitTime(result) + TimeUnit.NANOSECONDS.toMillis(nanos));
+            }
+        }
+    }
+}
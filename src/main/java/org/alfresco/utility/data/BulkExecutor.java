@@ -0,0 +1,129 @@
+package org.alfresco.utility.data;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.alfresco.utility.LogFactory;
+import org.alfresco.utility.exception.DataPreparationException;
+import org.slf4j.Logger;
+
+/**
+ * Runs the same data preparation task over a list of items using a bounded pool of worker threads.
+ * Failures are collected per item so one bad item does not stop the others.
+ * <code>
+ * BulkResult<FileModel> result = new BulkExecutor(8).execute("create-content", files, file -> dataContent.createContent(file));
+ * </code>
+ */
+public class BulkExecutor
+{
+    static Logger LOG = LogFactory.getLogger();
+
+    private final int parallelism;
+
+    /**
+     * Task applied on each item of the bulk call
+     */
+    public interface Task<T>
+    {
+        /**
+         * @return the processed item, or null if the item was skipped
+         */
+        public T execute(T item) throws Exception;
+    }
+
+    public BulkExecutor(int parallelism)
+    {
+        if (parallelism < 1)
+        {
+            throw new IllegalArgumentException("Parallelism should be at least 1, found: " + parallelism);
+        }
+        this.parallelism = parallelism;
+    }
+
+    public int getParallelism()
+    {
+        return parallelism;
+    }
+
+    /**
+     * Apply <task> on all <items> and wait for all of them to finish
+     *
+     * @param operation name of the operation, used in logs and in {@link BulkResult#getSummary()}
+     * @param items
+     * @param task
+     * @return {@link BulkResult} with the values returned by <task>, the skipped items and the failed items
+     */
+    public <T> BulkResult<T> execute(String operation, List<T> items, Task<T> task)
+    {
+        BulkResult<T> result = new BulkResult<T>(operation);
+        if (items.isEmpty())
+        {
+            result.finish();
+            return result;
+        }
+
+        ExecutorService pool = Executors.newFixedThreadPool(Math.min(parallelism, items.size()), threadFactory(operation));
+        try
+        {
+            List<Future<?>> futures = new ArrayList<Future<?>>();
+            for (T item : items)
+            {
+                futures.add(pool.submit(() -> {
+                    try
+                    {
+                        T processed = task.execute(item);
+                        if (processed == null)
+                        {
+                            result.addSkipped(item);
+                        }
+                        else
+                        {
+                            result.addItem(processed);
+                        }
+                    }
+                    catch (Exception | AssertionError e)
+                    {
+                        LOG.error("{} failed for {}: {}", operation, item, e.getMessage());
+                        result.addFailure(item, e);
+                    }
+                }));
+            }
+            for (Future<?> future : futures)
+            {
+                future.get();
+            }
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new DataPreparationException(e);
+        }
+        catch (ExecutionException e)
+        {
+            throw new DataPreparationException(String.format("%s stopped unexpectedly: %s", operation, e.getCause()));
+        }
+        finally
+        {
+            pool.shutdownNow();
+            result.finish();
+        }
+        LOG.info(result.getSummary());
+        return result;
+    }
+
+    private static ThreadFactory threadFactory(String operation)
+    {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, String.format("dataprep-%s-%d", operation, counter.incrementAndGet()));
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
@@ -0,0 +1,134 @@
+package org.alfresco.utility.data;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Outcome of a bulk data preparation call done with {@link BulkExecutor}.
+ * It keeps the populated models, the items that were skipped, the items that failed along with their error and a throughput summary.
+ */
+public class BulkResult<T>
+{
+    private final String operation;
+    private final List<T> items = Collections.synchronizedList(new ArrayList<T>());
+    private final List<T> skipped = Collections.synchronizedList(new ArrayList<T>());
+    private final Map<T, Throwable> failures = Collections.synchronizedMap(new LinkedHashMap<T, Throwable>());
+    private final long startTime = System.currentTimeMillis();
+    private long endTime;
+
+    public BulkResult(String operation)
+    {
+        this.operation = operation;
+    }
+
+    public String getOperation()
+    {
+        return operation;
+    }
+
+    public void addItem(T item)
+    {
+        items.add(item);
+    }
+
+    public void addSkipped(T item)
+    {
+        skipped.add(item);
+    }
+
+    public void addFailure(T item, Throwable error)
+    {
+        failures.put(item, error);
+    }
+
+    /**
+     * Add all the items and failures of another result to this one
+     */
+    public BulkResult<T> merge(BulkResult<? extends T> other)
+    {
+        items.addAll(other.getItems());
+        skipped.addAll(other.getSkipped());
+        failures.putAll(other.getFailures());
+        return this;
+    }
+
+    /**
+     * @return the items processed successfully
+     */
+    public List<T> getItems()
+    {
+        synchronized (items)
+        {
+            return new ArrayList<T>(items);
+        }
+    }
+
+    /**
+     * @return the items that did not need to be processed, for example because they already exist
+     */
+    public List<T> getSkipped()
+    {
+        synchronized (skipped)
+        {
+            return new ArrayList<T>(skipped);
+        }
+    }
+
+    /**
+     * @return the items that failed, mapped to the error thrown while processing them
+     */
+    public Map<T, Throwable> getFailures()
+    {
+        synchronized (failures)
+        {
+            return new LinkedHashMap<T, Throwable>(failures);
+        }
+    }
+
+    public boolean hasFailures()
+    {
+        return !failures.isEmpty();
+    }
+
+    public void finish()
+    {
+        endTime = System.currentTimeMillis();
+    }
+
+    /**
+     * @return the elapsed time in milliseconds
+     */
+    public long getDuration()
+    {
+        return (endTime == 0 ? System.currentTimeMillis() : endTime) - startTime;
+    }
+
+    /**
+     * @return processed items (successful, skipped or not) per second
+     */
+    public double getThroughput()
+    {
+        long duration = Math.max(1, getDuration());
+        return (items.size() + skipped.size() + failures.size()) * 1000.0 / duration;
+    }
+
+    public String getSummary()
+    {
+        if (!skipped.isEmpty())
+        {
+            return String.format("%s: %d succeeded, %d skipped, %d failed in %d ms (%.2f items/s)", operation, items.size(), skipped.size(),
+                    failures.size(), getDuration(), getThroughput());
+        }
+        return String.format("%s: %d succeeded, %d failed in %d ms (%.2f items/s)", operation, items.size(), failures.size(), getDuration(),
+                getThroughput());
+    }
+
+    @Override
+    public String toString()
+    {
+        return getSummary();
+    }
+}
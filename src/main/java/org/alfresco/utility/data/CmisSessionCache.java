@@ -0,0 +1,129 @@
+package org.alfresco.utility.data;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+import org.alfresco.dataprep.ContentService;
+import org.alfresco.utility.LogFactory;
+import org.alfresco.utility.TasProperties;
+import org.alfresco.utility.model.UserModel;
+import org.apache.chemistry.opencmis.client.api.OperationContext;
+import org.apache.chemistry.opencmis.client.api.Session;
+import org.apache.chemistry.opencmis.client.util.OperationContextUtils;
+import org.slf4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+/**
+ * CMIS sessions shared by all {@link DataContent} instances, one per user and repository.
+ * Opening a session fetches the repository info and type definitions, so it is only done when the user has no session
+ * yet, when the session expired (see {@link TasProperties#getCmisSessionTtl()}) or when the password of the user changed.
+ * The least recently used session is dropped when more than {@link TasProperties#getCmisSessionCacheSize()} users are cached.
+ * OpenCMIS sessions are thread safe, so the same session can be used by parallel data preparation calls.
+ * The object cache of the sessions is disabled: content may be changed by other protocols or deleted by an earlier test while the
+ * session is cached, so every lookup has to reach the server.
+ */
+@Service
+public class CmisSessionCache
+{
+    static Logger LOG = LogFactory.getLogger();
+
+    @Autowired
+    private ContentService contentService;
+
+    @Autowired
+    private TasProperties tasProperties;
+
+    private final Map<String, CachedSession> sessions = new LinkedHashMap<String, CachedSession>(16, 0.75f, true);
+
+    private static class CachedSession
+    {
+        private final Session session;
+        private final String password;
+        private final long created = System.currentTimeMillis();
+
+        CachedSession(Session session, String password)
+        {
+            this.session = session;
+            this.password = password;
+        }
+    }
+
+    /**
+     * @return the cached session of <user>, opening a new one if needed
+     */
+    public Session getSession(UserModel user)
+    {
+        long ttl = tasProperties.getCmisSessionTtl() * 1000L;
+        String key = key(user.getUsername());
+        if (ttl > 0)
+        {
+            synchronized (sessions)
+            {
+                CachedSession cached = sessions.get(key);
+                if (cached != null)
+                {
+                    if (Objects.equals(cached.password, user.getPassword()) && System.currentTimeMillis() - cached.created < ttl)
+                    {
+                        return cached.session;
+                    }
+                    sessions.remove(key);
+                }
+            }
+        }
+
+        LOG.debug("Opening CMIS session for user {}", user.getUsername());
+        Session session = contentService.getCMISSession(user.getUsername(), user.getPassword());
+        OperationContext context = OperationContextUtils.copyOperationContext(session.getDefaultContext());
+        context.setCacheEnabled(false);
+        session.setDefaultContext(context);
+        if (ttl > 0)
+        {
+            synchronized (sessions)
+            {
+                sessions.put(key, new CachedSession(session, user.getPassword()));
+                Iterator<String> eldest = sessions.keySet().iterator();
+                while (sessions.size() > tasProperties.getCmisSessionCacheSize() && eldest.hasNext())
+                {
+                    eldest.next();
+                    eldest.remove();
+                }
+            }
+        }
+        return session;
+    }
+
+    /**
+     * Drop the session of <username>, for example when the user is deleted
+     */
+    public void invalidate(String username)
+    {
+        synchronized (sessions)
+        {
+            sessions.remove(key(username));
+        }
+    }
+
+    public void invalidateAll()
+    {
+        synchronized (sessions)
+        {
+            sessions.clear();
+        }
+    }
+
+    public int size()
+    {
+        synchronized (sessions)
+        {
+            return sessions.size();
+        }
+    }
+
+    private String key(String username)
+    {
+        return String.format("%s@%s", username, tasProperties.getFullServerUrl());
+    }
+}
@@ -0,0 +1,729 @@
+package org.alfresco.utility.data;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.function.Supplier;
+import java.util.zip.CRC32;
+
+import org.alfresco.utility.exception.IORuntimeException;
+import org.alfresco.utility.model.ContentSource;
+import org.alfresco.utility.model.FileModel;
+import org.alfresco.utility.model.FileType;
+
+/**
+ * Generates content of any size for load and indexing tests. The same seed always generates the same bytes.
+ * Content is produced block by block while it is written or read, so nothing is kept in memory whatever the size.
+ * <code>
+ * ContentGenerator.words(42).writeTo(Paths.get("corpus.txt"), 2L * 1024 * 1024 * 1024);
+ * FileModel pdf = ContentGenerator.forFileType(FileType.PDF, 42).toFileModel("big.pdf", 100 * 1024 * 1024);
+ * </code>
+ * XML, HTML, PDF and DOCX files are minimal but valid documents having the generated words as text. If the requested size is
+ * smaller than the empty document, the empty document is generated.
+ */
+public class ContentGenerator
+{
+    public enum Kind
+    {
+        /** random lowercase letters, spaces and new lines */
+        TEXT,
+        /** lorem ipsum words, one line every few words; good for search indexing */
+        WORDS,
+        /** random bytes */
+        BINARY,
+        /** XML document with the generated words as text of its root element */
+        XML,
+        /** HTML page with the generated words split in paragraphs */
+        HTML,
+        /** single page PDF with the generated words */
+        PDF,
+        /** Word 2007 document with the generated words split in paragraphs */
+        DOCX;
+
+        /**
+         * @return the kind of content that is valid for <fileType>
+         * @throws IllegalArgumentException if no valid content can be generated for <fileType>
+         */
+        public static Kind fromFileType(FileType fileType)
+        {
+            switch (fileType)
+            {
+                case TEXT_PLAIN:
+                    return WORDS;
+                case XML:
+                    return XML;
+                case HTML:
+                    return HTML;
+                case PDF:
+                    return PDF;
+                case MSWORD2007:
+                    return DOCX;
+                default:
+                    throw new IllegalArgumentException("Cannot generate valid content for file type " + fileType);
+            }
+        }
+    }
+
+    private static final int BLOCK_SIZE = 64 * 1024;
+
+    private static final byte[] TEXT_CHARACTERS = "abcdefghijklmnopqrstuvwxyz     \n".getBytes(StandardCharsets.US_ASCII);
+
+    private static final String[] LOREM = { "lorem", "ipsum", "dolor", "sit", "amet", "consectetur", "adipiscing", "elit", "sed", "do",
+            "eiusmod", "tempor", "incididunt", "ut", "labore", "et", "dolore", "magna", "aliqua", "enim", "ad", "minim", "veniam", "quis",
+            "nostrud", "exercitation", "ullamco", "laboris", "nisi", "aliquip", "ex", "ea", "commodo", "consequat", "duis", "aute", "irure",
+            "in", "reprehenderit", "voluptate", "velit", "esse", "cillum", "fugiat", "nulla", "pariatur", "excepteur", "sint", "occaecat",
+            "cupidatat", "non", "proident", "sunt", "culpa", "qui", "officia", "deserunt", "mollit", "anim", "id", "est", "laborum" };
+
+    private static final byte[][] WORD_TOKENS = new byte[LOREM.length][];
+
+    static
+    {
+        for (int i = 0; i < LOREM.length; i++)
+        {
+            WORD_TOKENS[i] = (LOREM[i] + " ").getBytes(StandardCharsets.US_ASCII);
+        }
+    }
+
+    private final Kind kind;
+    private final long seed;
+
+    public ContentGenerator(Kind kind, long seed)
+    {
+        this.kind = kind;
+        this.seed = seed;
+    }
+
+    public static ContentGenerator text(long seed)
+    {
+        return new ContentGenerator(Kind.TEXT, seed);
+    }
+
+    public static ContentGenerator words(long seed)
+    {
+        return new ContentGenerator(Kind.WORDS, seed);
+    }
+
+    public static ContentGenerator binary(long seed)
+    {
+        return new ContentGenerator(Kind.BINARY, seed);
+    }
+
+    /**
+     * @return a generator of content that is valid for <fileType>, see {@link Kind#fromFileType(FileType)}
+     * @throws IllegalArgumentException if no valid content can be generated for <fileType>
+     */
+    public static ContentGenerator forFileType(FileType fileType, long seed)
+    {
+        return new ContentGenerator(Kind.fromFileType(fileType), seed);
+    }
+
+    public Kind getKind()
+    {
+        return kind;
+    }
+
+    public long getSeed()
+    {
+        return seed;
+    }
+
+    /**
+     * @return the number of bytes generated when <size> bytes are requested
+     */
+    public long getLength(long size)
+    {
+        return length(segments(size));
+    }
+
+    /**
+     * @return a stream generating the content while it is read
+     */
+    public InputStream openStream(long size)
+    {
+        return new SegmentsInputStream(segments(size));
+    }
+
+    /**
+     * @return a {@link ContentSource} that generates the content each time it is read
+     */
+    public ContentSource asContentSource(long size)
+    {
+        List<Segment> segments = segments(size);
+        return ContentSource.fromSupplier(() -> new SegmentsInputStream(segments), length(segments));
+    }
+
+    /**
+     * @return a {@link FileModel} named <fileName> with generated content, that is streamed when the file is created
+     */
+    public FileModel toFileModel(String fileName, long size)
+    {
+        FileModel fileModel = new FileModel(fileName, FileType.fromName(fileName));
+        fileModel.setContentSource(asContentSource(size));
+        return fileModel;
+    }
+
+    /**
+     * Write the content at the current position of <channel>
+     *
+     * @return the number of bytes written
+     * @throws IOException
+     */
+    public long writeTo(FileChannel channel, long size) throws IOException
+    {
+        byte[] block = new byte[BLOCK_SIZE];
+        ByteBuffer buffer = ByteBuffer.wrap(block);
+        long written = 0;
+        try (InputStream stream = openStream(size))
+        {
+            int read;
+            while ((read = stream.read(block, 0, block.length)) != -1)
+            {
+                buffer.clear().limit(read);
+                while (buffer.hasRemaining())
+                {
+                    written += channel.write(buffer);
+                }
+            }
+        }
+        return written;
+    }
+
+    /**
+     * Write the content to <path>, replacing the existing file if any
+     *
+     * @return the generated file
+     */
+    public File writeTo(Path path, long size)
+    {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING))
+        {
+            writeTo(channel, size);
+        }
+        catch (IOException e)
+        {
+            throw new IORuntimeException(e);
+        }
+        return path.toFile();
+    }
+
+    private List<Segment> segments(long size)
+    {
+        if (size < 0)
+        {
+            throw new IllegalArgumentException("Size of generated content cannot be negative: " + size);
+        }
+        List<Segment> segments = new ArrayList<Segment>();
+        switch (kind)
+        {
+            case TEXT:
+                segments.add(Segment.generated(size, () -> new TextFiller(seed)));
+                break;
+            case WORDS:
+                segments.add(words(size, "\n", 12));
+                break;
+            case BINARY:
+                segments.add(Segment.generated(size, () -> new BinaryFiller(seed)));
+                break;
+            case XML:
+                documentSegments(segments, size, "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n<document>\n", "\n", "\n</document>\n");
+                break;
+            case HTML:
+                documentSegments(segments, size, "<!DOCTYPE html>\n<html><head><meta charset=\"UTF-8\"><title>Generated content</title></head><body>\n<p>",
+                        "</p>\n<p>", "</p>\n</body></html>\n");
+                break;
+            case PDF:
+                pdfSegments(segments, size);
+                break;
+            case DOCX:
+                docxSegments(segments, size);
+                break;
+        }
+        return segments;
+    }
+
+    private static long length(List<Segment> segments)
+    {
+        long length = 0;
+        for (Segment segment : segments)
+        {
+            length += segment.length;
+        }
+        return length;
+    }
+
+    private Segment words(long length, String lineBreak, int wordsPerLine)
+    {
+        byte[] lineBreakToken = lineBreak.getBytes(StandardCharsets.US_ASCII);
+        return Segment.generated(length, () -> new WordsFiller(seed, length, lineBreakToken, wordsPerLine));
+    }
+
+    /**
+     * Generated words between the fixed <start> and <end> markup, with <lineBreak> every few words
+     */
+    private void documentSegments(List<Segment> segments, long size, String start, String lineBreak, String end)
+    {
+        long textLength = Math.max(0, size - start.length() - end.length());
+        segments.add(Segment.fixed(start));
+        segments.add(words(textLength, lineBreak, 12));
+        segments.add(Segment.fixed(end));
+    }
+
+    /**
+     * Numbers are written on 10 digits so offsets do not depend on the size of the text
+     */
+    private void pdfSegments(List<Segment> segments, long size)
+    {
+        String textStart = "BT /F1 12 Tf 14 TL 72 720 Td (";
+        String textEnd = ") Tj ET";
+        long[] offsets = new long[6];
+        StringBuilder header = new StringBuilder("%PDF-1.4\n");
+        String[] objects = { "<< /Type /Catalog /Pages 2 0 R >>", "<< /Type /Pages /Kids [3 0 R] /Count 1 >>",
+                "<< /Type /Page /Parent 2 0 R /MediaBox [0 0 612 792] /Resources << /Font << /F1 4 0 R >> >> /Contents 5 0 R >>",
+                "<< /Type /Font /Subtype /Type1 /BaseFont /Helvetica >>" };
+        for (int i = 0; i < objects.length; i++)
+        {
+            offsets[i + 1] = header.length();
+            header.append(i + 1).append(" 0 obj\n").append(objects[i]).append("\nendobj\n");
+        }
+        offsets[5] = header.length();
+        String streamStart = "5 0 obj\n<< /Length %010d >>\nstream\n" + textStart;
+        String streamEnd = textEnd + "\nendstream\nendobj\n";
+        String trailer = "xref\n0 6\n0000000000 65535 f \n" + repeat("%010d 00000 n \n", 5) + "trailer\n<< /Size 6 /Root 1 0 R >>\nstartxref\n%010d\n%%%%EOF\n";
+
+        long fixedLength = header.length() + String.format(streamStart, 0).length() + streamEnd.length()
+                + String.format(trailer, 0, 0, 0, 0, 0, 0).length();
+        long textLength = Math.max(0, size - fixedLength);
+        long xrefOffset = offsets[5] + String.format(streamStart, 0).length() + textLength + streamEnd.length();
+
+        segments.add(Segment.fixed(header + String.format(streamStart, textStart.length() + textLength + textEnd.length())));
+        segments.add(words(textLength, ") Tj T* (", 12));
+        segments.add(Segment.fixed(streamEnd + String.format(trailer, offsets[1], offsets[2], offsets[3], offsets[4], offsets[5], xrefOffset)));
+    }
+
+    /**
+     * Entries are stored without compression so the size of the document is the requested one.
+     * The CRC of the document is computed by generating it once, the first time the content is read: the content does not
+     * depend on the run.
+     */
+    private void docxSegments(List<Segment> segments, long size)
+    {
+        String xmlHeader = "<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>\n";
+        String contentTypes = xmlHeader + "<Types xmlns=\"http://schemas.openxmlformats.org/package/2006/content-types\">"
+                + "<Default Extension=\"rels\" ContentType=\"application/vnd.openxmlformats-package.relationships+xml\"/>"
+                + "<Default Extension=\"xml\" ContentType=\"application/xml\"/>"
+                + "<Override PartName=\"/word/document.xml\" ContentType=\"" + FileType.MSWORD2007.mimeType + ".main+xml\"/></Types>";
+        String relationships = xmlHeader + "<Relationships xmlns=\"http://schemas.openxmlformats.org/package/2006/relationships\">"
+                + "<Relationship Id=\"rId1\" Type=\"http://schemas.openxmlformats.org/officeDocument/2006/relationships/officeDocument\""
+                + " Target=\"word/document.xml\"/></Relationships>";
+        String paragraphStart = "<w:p><w:r><w:t xml:space=\"preserve\">";
+        String paragraphEnd = "</w:t></w:r></w:p>";
+        String documentStart = xmlHeader + "<w:document xmlns:w=\"http://schemas.openxmlformats.org/wordprocessingml/2006/main\"><w:body>"
+                + paragraphStart;
+        String documentEnd = paragraphEnd + "</w:body></w:document>";
+
+        ZipWriter zip = new ZipWriter();
+        zip.addEntry("[Content_Types].xml", bytes(contentTypes));
+        zip.addEntry("_rels/.rels", bytes(relationships));
+        String documentName = "word/document.xml";
+        long fixedLength = zip.getLength() + ZipWriter.overhead(documentName) + documentStart.length() + documentEnd.length()
+                + ZipWriter.END_LENGTH;
+        long textLength = Math.max(0, size - fixedLength);
+        if (textLength + documentStart.length() + documentEnd.length() > 0xFFFFFFFFL)
+        {
+            throw new IllegalArgumentException("Generated DOCX documents are limited to 4 GB, requested: " + size);
+        }
+
+        List<Segment> document = new ArrayList<Segment>();
+        document.add(Segment.fixed(documentStart));
+        document.add(words(textLength, paragraphEnd + paragraphStart, 60));
+        document.add(Segment.fixed(documentEnd));
+        long documentLength = textLength + documentStart.length() + documentEnd.length();
+
+        byte[][] documentParts = new byte[2][];
+        Supplier<byte[][]> zipParts = () -> {
+            synchronized (documentParts)
+            {
+                if (documentParts[0] == null)
+                {
+                    documentParts[0] = zip.startEntry(documentName, crc(document), documentLength);
+                    documentParts[1] = zip.finish();
+                }
+                return documentParts;
+            }
+        };
+        segments.add(Segment.fixed(zip.getEntries()));
+        segments.add(Segment.lazy(ZipWriter.localHeaderLength(documentName), () -> zipParts.get()[0]));
+        segments.addAll(document);
+        segments.add(Segment.lazy(zip.getDirectoryLength(documentName), () -> zipParts.get()[1]));
+    }
+
+    private static long crc(List<Segment> segments)
+    {
+        CRC32 crc = new CRC32();
+        byte[] block = new byte[BLOCK_SIZE];
+        try (InputStream stream = new SegmentsInputStream(segments))
+        {
+            int read;
+            while ((read = stream.read(block, 0, block.length)) != -1)
+            {
+                crc.update(block, 0, read);
+            }
+        }
+        catch (IOException e)
+        {
+            throw new IORuntimeException(e);
+        }
+        return crc.getValue();
+    }
+
+    private static byte[] bytes(String value)
+    {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String repeat(String value, int times)
+    {
+        StringBuilder result = new StringBuilder();
+        for (int i = 0; i < times; i++)
+        {
+            result.append(value);
+        }
+        return result.toString();
+    }
+
+    /**
+     * Fills buffers with the next generated bytes
+     */
+    private interface Filler
+    {
+        void fill(byte[] buffer, int offset, int count);
+    }
+
+    private interface FillerFactory
+    {
+        Filler create();
+    }
+
+    /**
+     * Part of the generated content with a known length: fixed bytes or bytes generated from the seed
+     */
+    private static class Segment
+    {
+        private final long length;
+        private final FillerFactory factory;
+
+        private Segment(long length, FillerFactory factory)
+        {
+            this.length = length;
+            this.factory = factory;
+        }
+
+        static Segment fixed(String value)
+        {
+            return fixed(bytes(value));
+        }
+
+        static Segment fixed(byte[] value)
+        {
+            return new Segment(value.length, () -> new Filler()
+            {
+                private int position = 0;
+
+                @Override
+                public void fill(byte[] buffer, int offset, int count)
+                {
+                    System.arraycopy(value, position, buffer, offset, count);
+                    position += count;
+                }
+            });
+        }
+
+        /**
+         * @return fixed bytes that are only computed when the segment is read
+         */
+        static Segment lazy(long length, Supplier<byte[]> value)
+        {
+            return new Segment(length, () -> fixed(value.get()).factory.create());
+        }
+
+        static Segment generated(long length, FillerFactory factory)
+        {
+            return new Segment(length, factory);
+        }
+    }
+
+    private static class SegmentsInputStream extends InputStream
+    {
+        private final List<Segment> segments;
+        private int index = -1;
+        private long position;
+        private Filler filler;
+
+        SegmentsInputStream(List<Segment> segments)
+        {
+            this.segments = segments;
+            nextSegment();
+        }
+
+        private boolean nextSegment()
+        {
+            index++;
+            position = 0;
+            filler = index < segments.size() ? segments.get(index).factory.create() : null;
+            return filler != null;
+        }
+
+        @Override
+        public int read()
+        {
+            byte[] single = new byte[1];
+            return read(single, 0, 1) == -1 ? -1 : single[0] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int count)
+        {
+            if (count == 0)
+            {
+                return 0;
+            }
+            while (filler != null && position == segments.get(index).length)
+            {
+                nextSegment();
+            }
+            if (filler == null)
+            {
+                return -1;
+            }
+            int toRead = (int) Math.min(count, segments.get(index).length - position);
+            filler.fill(buffer, offset, toRead);
+            position += toRead;
+            return toRead;
+        }
+    }
+
+    private static class TextFiller implements Filler
+    {
+        private final SplittableRandom random;
+        private long bits;
+        private int available;
+
+        TextFiller(long seed)
+        {
+            random = new SplittableRandom(seed);
+        }
+
+        @Override
+        public void fill(byte[] buffer, int offset, int count)
+        {
+            for (int i = offset; i < offset + count; i++)
+            {
+                if (available == 0)
+                {
+                    bits = random.nextLong();
+                    available = 12;
+                }
+                buffer[i] = TEXT_CHARACTERS[(int) (bits & 0x1f)];
+                bits >>>= 5;
+                available--;
+            }
+        }
+    }
+
+    private static class BinaryFiller implements Filler
+    {
+        private final SplittableRandom random;
+        private long bits;
+        private int available;
+
+        BinaryFiller(long seed)
+        {
+            random = new SplittableRandom(seed);
+        }
+
+        @Override
+        public void fill(byte[] buffer, int offset, int count)
+        {
+            for (int i = offset; i < offset + count; i++)
+            {
+                if (available == 0)
+                {
+                    bits = random.nextLong();
+                    available = 8;
+                }
+                buffer[i] = (byte) bits;
+                bits >>>= 8;
+                available--;
+            }
+        }
+    }
+
+    /**
+     * Random words with a line break every few words. A line break is only added if it fits entirely in the remaining
+     * length, so only words can be truncated at the end, keeping PDF and XML markup valid.
+     */
+    private static class WordsFiller implements Filler
+    {
+        private final SplittableRandom random;
+        private final long length;
+        private final byte[] lineBreak;
+        private final int wordsPerLine;
+        private long position;
+        private byte[] token = new byte[0];
+        private int tokenPosition;
+        private int words;
+
+        WordsFiller(long seed, long length, byte[] lineBreak, int wordsPerLine)
+        {
+            this.random = new SplittableRandom(seed);
+            this.length = length;
+            this.lineBreak = lineBreak;
+            this.wordsPerLine = wordsPerLine;
+        }
+
+        @Override
+        public void fill(byte[] buffer, int offset, int count)
+        {
+            int end = offset + count;
+            while (offset < end)
+            {
+                if (tokenPosition == token.length)
+                {
+                    nextToken();
+                }
+                int toCopy = Math.min(end - offset, token.length - tokenPosition);
+                System.arraycopy(token, tokenPosition, buffer, offset, toCopy);
+                tokenPosition += toCopy;
+                offset += toCopy;
+                position += toCopy;
+            }
+        }
+
+        private void nextToken()
+        {
+            tokenPosition = 0;
+            if (words >= wordsPerLine && length - position >= lineBreak.length)
+            {
+                token = lineBreak;
+                words = 0;
+            }
+            else
+            {
+                token = WORD_TOKENS[random.nextInt(WORD_TOKENS.length)];
+                words++;
+            }
+        }
+    }
+
+    /**
+     * Minimal ZIP writer for stored (not compressed) entries, enough for the parts of an Office document
+     */
+    private static class ZipWriter
+    {
+        static final int END_LENGTH = 22;
+        private static final int LOCAL_HEADER_LENGTH = 30;
+        private static final int CENTRAL_HEADER_LENGTH = 46;
+        private static final int DOS_DATE = (1 << 5) | 1;
+
+        private final ByteBuffer entries = ByteBuffer.allocate(4096).order(ByteOrder.LITTLE_ENDIAN);
+        private final ByteBuffer directory = ByteBuffer.allocate(1024).order(ByteOrder.LITTLE_ENDIAN);
+        private long offset;
+        private int count;
+
+        /**
+         * @return the length of the local and central headers of an entry named <name>
+         */
+        static long overhead(String name)
+        {
+            return LOCAL_HEADER_LENGTH + CENTRAL_HEADER_LENGTH + 2L * bytes(name).length;
+        }
+
+        static long localHeaderLength(String name)
+        {
+            return LOCAL_HEADER_LENGTH + bytes(name).length;
+        }
+
+        /**
+         * @return the length of {@link #finish()} once the entry named <lastName> is added
+         */
+        long getDirectoryLength(String lastName)
+        {
+            return directory.position() + CENTRAL_HEADER_LENGTH + bytes(lastName).length + END_LENGTH;
+        }
+
+        long getLength()
+        {
+            return entries.position() + directory.position();
+        }
+
+        void addEntry(String name, byte[] content)
+        {
+            CRC32 crc = new CRC32();
+            crc.update(content);
+            entries.put(localHeader(name, crc.getValue(), content.length));
+            entries.put(content);
+            offset += content.length;
+        }
+
+        byte[] getEntries()
+        {
+            return toArray(entries);
+        }
+
+        /**
+         * @return the local header of the entry; its content has to follow it
+         */
+        byte[] startEntry(String name, long crc, long length)
+        {
+            byte[] header = localHeader(name, crc, length);
+            offset += length;
+            return header;
+        }
+
+        /**
+         * @return the central directory and the end of central directory record
+         */
+        byte[] finish()
+        {
+            long directoryOffset = offset;
+            int directoryLength = directory.position();
+            directory.putInt(0x06054b50).putShort((short) 0).putShort((short) 0).putShort((short) count).putShort((short) count)
+                    .putInt(directoryLength).putInt((int) directoryOffset).putShort((short) 0);
+            return toArray(directory);
+        }
+
+        private byte[] localHeader(String name, long crc, long length)
+        {
+            byte[] nameBytes = bytes(name);
+            ByteBuffer header = ByteBuffer.allocate(LOCAL_HEADER_LENGTH + nameBytes.length).order(ByteOrder.LITTLE_ENDIAN);
+            header.putInt(0x04034b50).putShort((short) 10).putShort((short) 0).putShort((short) 0).putShort((short) 0)
+                    .putShort((short) DOS_DATE).putInt((int) crc).putInt((int) length).putInt((int) length)
+                    .putShort((short) nameBytes.length).putShort((short) 0).put(nameBytes);
+
+            directory.putInt(0x02014b50).putShort((short) 20).putShort((short) 10).putShort((short) 0).putShort((short) 0)
+                    .putShort((short) 0).putShort((short) DOS_DATE).putInt((int) crc).putInt((int) length).putInt((int) length)
+                    .putShort((short) nameBytes.length).putShort((short) 0).putShort((short) 0).putShort((short) 0)
+                    .putShort((short) 0).putInt(0).putInt((int) offset).put(nameBytes);
+            count++;
+            offset += header.capacity();
+            return header.array();
+        }
+
+        private static byte[] toArray(ByteBuffer buffer)
+        {
+            byte[] result = new byte[buffer.position()];
+            System.arraycopy(buffer.array(), 0, result, 0, result.length);
+            return result;
+        }
+    }
+}
@@ -0,0 +1,285 @@
+package org.alfresco.utility.data;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.alfresco.utility.LogFactory;
+import org.alfresco.utility.Utility;
+import org.alfresco.utility.Wait;
+import org.alfresco.utility.exception.DataPreparationException;
+import org.apache.chemistry.opencmis.client.api.CmisObject;
+import org.apache.chemistry.opencmis.client.api.Folder;
+import org.apache.chemistry.opencmis.client.api.OperationContext;
+import org.apache.chemistry.opencmis.client.api.Session;
+import org.apache.chemistry.opencmis.commons.exceptions.CmisObjectNotFoundException;
+import org.slf4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+/**
+ * Waits until a set of paths is created or deleted in the repository.
+ * The checks run on the calling thread, which is parked with {@link Wait#sleep(long)} between two checks, so a slow listing only delays
+ * its own wait and never the waits of parallel tests.
+ * On each check the pending paths are grouped by parent folder and each parent is listed once, so waiting for a hundred files
+ * of the same folder costs one CMIS call per check. The delay between checks starts small and doubles up to
+ * {@link #MAX_DELAY_MS}, with some jitter so parallel tests do not poll the server at the same time.
+ * <code>
+ * WaitResult result = contentWaitEngine.waitUntilCreated(session, paths, 30);
+ * </code>
+ */
+@Service
+public class ContentWaitEngine
+{
+    static Logger LOG = LogFactory.getLogger();
+
+    private static final long INITIAL_DELAY_MS = 100;
+    private static final long MAX_DELAY_MS = 2000;
+    private static final double JITTER = 0.2;
+
+    @Autowired
+    private NodeRefIndex nodeRefIndex;
+
+    /**
+     * Outcome of a wait: the paths found in their expected state and the ones still pending when the deadline was reached
+     */
+    public static class WaitResult
+    {
+        private final Map<String, String> nodeRefs;
+        private final Set<String> pending;
+        private final long duration;
+        private final int checks;
+
+        WaitResult(Map<String, String> nodeRefs, Set<String> pending, long duration, int checks)
+        {
+            this.nodeRefs = nodeRefs;
+            this.pending = pending;
+            this.duration = duration;
+            this.checks = checks;
+        }
+
+        /**
+         * @return true if all paths reached the expected state before the deadline
+         */
+        public boolean isComplete()
+        {
+            return pending.isEmpty();
+        }
+
+        /**
+         * @return the nodeRef of each created path (empty when waiting for deletion)
+         */
+        public Map<String, String> getNodeRefs()
+        {
+            return nodeRefs;
+        }
+
+        /**
+         * @return the paths that did not reach the expected state
+         */
+        public Set<String> getPending()
+        {
+            return pending;
+        }
+
+        /**
+         * @return time waited in milliseconds
+         */
+        public long getDuration()
+        {
+            return duration;
+        }
+
+        /**
+         * @return number of times the server was checked
+         */
+        public int getChecks()
+        {
+            return checks;
+        }
+
+        @Override
+        public String toString()
+        {
+            return String.format("%d resolved, %d pending after %d ms and %d checks", nodeRefs.size(), pending.size(), duration, checks);
+        }
+    }
+
+    /**
+     * Wait until all <paths> exist, up to <timeoutSeconds>
+     */
+    public WaitResult waitUntilCreated(Session session, Collection<String> paths, int timeoutSeconds)
+    {
+        return waitFor(session, paths, true, timeoutSeconds);
+    }
+
+    /**
+     * Wait until none of <paths> exists, up to <timeoutSeconds>
+     */
+    public WaitResult waitUntilDeleted(Session session, Collection<String> paths, int timeoutSeconds)
+    {
+        return waitFor(session, paths, false, timeoutSeconds);
+    }
+
+    private WaitResult waitFor(Session session, Collection<String> paths, boolean created, int timeoutSeconds)
+    {
+        LOG.info("Wait up to {} second(s) until {} content(s) are {}", timeoutSeconds, paths.size(), created ? "created" : "deleted");
+        Poll poll = new Poll(session, paths, created, System.currentTimeMillis() + timeoutSeconds * 1000L);
+        try
+        {
+            WaitResult result = poll.run();
+            LOG.info("Wait for content finished: {}", result);
+            return result;
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new DataPreparationException(e);
+        }
+    }
+
+    /**
+     * One wait, checking the server until all paths are resolved or the deadline is reached
+     */
+    private class Poll
+    {
+        private final Session session;
+        private final boolean created;
+        private final long start = System.currentTimeMillis();
+        private final long deadline;
+        private final Set<String> pending = new LinkedHashSet<String>();
+        private final Map<String, String> nodeRefs = new LinkedHashMap<String, String>();
+        private long delay = INITIAL_DELAY_MS;
+        private int checks;
+
+        Poll(Session session, Collection<String> paths, boolean created, long deadline)
+        {
+            this.session = session;
+            this.created = created;
+            this.deadline = deadline;
+            for (String path : paths)
+            {
+                pending.add(Utility.removeLastSlash(Utility.convertBackslashToSlash(path)));
+            }
+        }
+
+        WaitResult run() throws InterruptedException
+        {
+            while (true)
+            {
+                check();
+                long now = System.currentTimeMillis();
+                if (pending.isEmpty() || now >= deadline)
+                {
+                    return new WaitResult(nodeRefs, pending, now - start, checks);
+                }
+                double jitter = 1 + JITTER * (2 * ThreadLocalRandom.current().nextDouble() - 1);
+                long nextDelay = Math.min((long) (delay * jitter), deadline - now);
+                delay = Math.min(delay * 2, MAX_DELAY_MS);
+                Wait.sleep(nextDelay);
+            }
+        }
+
+        private void check()
+        {
+            checks++;
+            Map<String, List<String>> byParent = new LinkedHashMap<String, List<String>>();
+            for (String path : pending)
+            {
+                byParent.computeIfAbsent(parentOf(path), parent -> new ArrayList<String>()).add(path);
+            }
+            for (Map.Entry<String, List<String>> parent : byParent.entrySet())
+            {
+                Map<String, String> children = parent.getValue().size() == 1 ? find(parent.getValue().get(0)) : listChildren(parent.getKey());
+                for (String path : parent.getValue())
+                {
+                    String nodeRef = children.get(nameOf(path));
+                    if (nodeRef != null)
+                    {
+                        nodeRefIndex.put(path, nodeRef);
+                    }
+                    else
+                    {
+                        nodeRefIndex.remove(path);
+                    }
+                    if ((nodeRef != null) == created)
+                    {
+                        pending.remove(path);
+                        if (created)
+                        {
+                            nodeRefs.put(path, nodeRef);
+                        }
+                    }
+                }
+            }
+        }
+
+        /**
+         * @return name of the content mapped to its nodeRef, empty if it does not exist
+         */
+        private Map<String, String> find(String path)
+        {
+            try
+            {
+                CmisObject object = session.getObjectByPath(path, context());
+                return Collections.singletonMap(object.getName(), Utility.splitGuidVersion(object.getId()));
+            }
+            catch (CmisObjectNotFoundException e)
+            {
+                return Collections.emptyMap();
+            }
+        }
+
+        /**
+         * @return name of each child of <parentPath> mapped to its nodeRef, empty if the folder does not exist
+         */
+        private Map<String, String> listChildren(String parentPath)
+        {
+            Map<String, String> children = new HashMap<String, String>();
+            try
+            {
+                CmisObject parent = session.getObjectByPath(parentPath, context());
+                if (parent instanceof Folder)
+                {
+                    for (CmisObject child : ((Folder) parent).getChildren(context()))
+                    {
+                        children.put(child.getName(), Utility.splitGuidVersion(child.getId()));
+                    }
+                }
+            }
+            catch (CmisObjectNotFoundException e)
+            {
+                LOG.debug("Parent folder {} does not exist yet", parentPath);
+            }
+            return children;
+        }
+
+        private OperationContext context()
+        {
+            OperationContext context = session.createOperationContext();
+            context.setCacheEnabled(false);
+            context.setFilterString("cmis:objectId,cmis:name");
+            context.setIncludeAllowableActions(false);
+            context.setMaxItemsPerPage(1000);
+            return context;
+        }
+    }
+
+    private static String parentOf(String path)
+    {
+        int index = path.lastIndexOf('/');
+        return index <= 0 ? "/" : path.substring(0, index);
+    }
+
+    private static String nameOf(String path)
+    {
+        return path.substring(path.lastIndexOf('/') + 1);
+    }
+}
@@ -0,0 +1,202 @@
+package org.alfresco.utility.data;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.alfresco.utility.TasProperties;
+import org.alfresco.utility.constants.UserRole;
+import org.alfresco.utility.model.ContentModel;
+import org.alfresco.utility.model.FileModel;
+import org.alfresco.utility.model.FolderModel;
+import org.alfresco.utility.model.GroupModel;
+import org.alfresco.utility.model.ProcessModel;
+import org.alfresco.utility.model.SiteModel;
+import org.alfresco.utility.model.TaskModel;
+import org.alfresco.utility.model.UserModel;
+import org.springframework.beans.factory.ObjectFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+/**
+ * Asynchronous variants of the main create, delete and assign operations of {@link DataUser}, {@link DataSite}, {@link DataContent},
+ * {@link DataGroup} and {@link DataWorkflow}.
+ * Each call gets a fresh Data* service configured with the {@link DataContext} passed explicitly, so calls can run at the same time
+ * and be chained without sharing any state:
+ * <code>
+ * CompletableFuture<UserModel> user = dataAsync.createUser(new UserModel("user1", "password"));
+ * CompletableFuture<SiteModel> site = user.thenCompose(u -> dataAsync.createSite(DataContext.as(u), new SiteModel("site1")));
+ * CompletableFuture<FileModel> file = site.thenCompose(s -> dataAsync.createContent(DataContext.as(user.join()).inSite(s), FileModel.getRandomFileModel(FileType.TEXT_PLAIN)));
+ * ... // start the browser
+ * file.join();
+ * </code>
+ * The calls run on a pool of <code>dataprep.parallelism</code> daemon threads, or on the executor given to {@link #withExecutor(Executor)}.
+ * A failed call completes its future exceptionally with the exception thrown by the Data* service.
+ */
+@Service
+public class DataAsync
+{
+    @Autowired
+    private TasProperties tasProperties;
+
+    @Autowired
+    private ObjectFactory<DataUser> dataUserFactory;
+
+    @Autowired
+    private ObjectFactory<DataSite> dataSiteFactory;
+
+    @Autowired
+    private ObjectFactory<DataContent> dataContentFactory;
+
+    @Autowired
+    private ObjectFactory<DataGroup> dataGroupFactory;
+
+    @Autowired
+    private ObjectFactory<DataWorkflow> dataWorkflowFactory;
+
+    private final Executor executor;
+    private volatile ExecutorService defaultExecutor;
+
+    public DataAsync()
+    {
+        this.executor = null;
+    }
+
+    private DataAsync(DataAsync other, Executor executor)
+    {
+        this.tasProperties = other.tasProperties;
+        this.dataUserFactory = other.dataUserFactory;
+        this.dataSiteFactory = other.dataSiteFactory;
+        this.dataContentFactory = other.dataContentFactory;
+        this.dataGroupFactory = other.dataGroupFactory;
+        this.dataWorkflowFactory = other.dataWorkflowFactory;
+        this.executor = executor;
+    }
+
+    /**
+     * @return a facade running its calls on <executor>, for instance the pool of a test that already manages its threads
+     */
+    public DataAsync withExecutor(Executor executor)
+    {
+        return new DataAsync(this, executor);
+    }
+
+    public Executor getExecutor()
+    {
+        if (executor != null)
+        {
+            return executor;
+        }
+        ExecutorService current = defaultExecutor;
+        if (current == null)
+        {
+            synchronized (this)
+            {
+                current = defaultExecutor;
+                if (current == null)
+                {
+                    current = Executors.newFixedThreadPool(tasProperties.getDataPrepParallelism(), threadFactory());
+                    defaultExecutor = current;
+                }
+            }
+        }
+        return current;
+    }
+
+    public CompletableFuture<UserModel> createUser(UserModel user)
+    {
+        return CompletableFuture.supplyAsync(() -> dataUserFactory.getObject().usingAdmin().createUser(user), getExecutor());
+    }
+
+    public CompletableFuture<Void> deleteUser(UserModel user)
+    {
+        return CompletableFuture.runAsync(() -> dataUserFactory.getObject().usingAdmin().deleteUser(user), getExecutor());
+    }
+
+    /**
+     * Add <user> to <site> with <role>, as the user of <context>, usually the site manager
+     */
+    public CompletableFuture<UserModel> addUserToSite(DataContext context, UserModel user, SiteModel site, UserRole role)
+    {
+        return CompletableFuture.supplyAsync(() -> {
+            context.applyTo(dataUserFactory.getObject()).addUserToSite(user, site, role);
+            return user;
+        }, getExecutor());
+    }
+
+    public CompletableFuture<SiteModel> createSite(DataContext context, SiteModel site)
+    {
+        return CompletableFuture.supplyAsync(() -> context.applyTo(dataSiteFactory.getObject()).createSite(site), getExecutor());
+    }
+
+    public CompletableFuture<Void> deleteSite(DataContext context, SiteModel site)
+    {
+        return CompletableFuture.runAsync(() -> context.applyTo(dataSiteFactory.getObject()).deleteSite(site), getExecutor());
+    }
+
+    /**
+     * Create <folder> in the resource of <context>, or else in its site
+     */
+    public CompletableFuture<FolderModel> createFolder(DataContext context, FolderModel folder)
+    {
+        return CompletableFuture.supplyAsync(() -> context.applyTo(dataContentFactory.getObject()).createFolder(folder), getExecutor());
+    }
+
+    /**
+     * Create <file> in the resource of <context>, or else in its site
+     */
+    public CompletableFuture<FileModel> createContent(DataContext context, FileModel file)
+    {
+        return CompletableFuture.supplyAsync(() -> context.applyTo(dataContentFactory.getObject()).createContent(file), getExecutor());
+    }
+
+    public CompletableFuture<Void> deleteContent(DataContext context, ContentModel content)
+    {
+        return CompletableFuture.runAsync(() -> context.inResource(content).applyTo(dataContentFactory.getObject()).deleteContent(), getExecutor());
+    }
+
+    public CompletableFuture<GroupModel> createGroup(GroupModel group)
+    {
+        return CompletableFuture.supplyAsync(() -> dataGroupFactory.getObject().createGroup(group), getExecutor());
+    }
+
+    public CompletableFuture<GroupModel> addUsersToGroup(GroupModel group, UserModel... users)
+    {
+        return CompletableFuture.supplyAsync(() -> dataGroupFactory.getObject().addListOfUsersToGroup(group, users), getExecutor());
+    }
+
+    public CompletableFuture<Void> deleteGroup(GroupModel group)
+    {
+        return CompletableFuture.runAsync(() -> dataGroupFactory.getObject().deleteGroup(group), getExecutor());
+    }
+
+    /**
+     * Start an ad hoc task on the resource of <context>, as the user of <context>, and assign it to <assignee>
+     */
+    public CompletableFuture<TaskModel> createNewTaskAndAssignTo(DataContext context, UserModel assignee)
+    {
+        return CompletableFuture.supplyAsync(() -> context.applyTo(dataWorkflowFactory.getObject()).createNewTaskAndAssignTo(assignee), getExecutor());
+    }
+
+    /**
+     * Start a single reviewer workflow on the resource of <context>, as the user of <context>, and assign it to <reviewer>
+     */
+    public CompletableFuture<ProcessModel> createSingleReviewerTaskAndAssignTo(DataContext context, UserModel reviewer)
+    {
+        return CompletableFuture.supplyAsync(() -> context.applyTo(dataWorkflowFactory.getObject()).createSingleReviewerTaskAndAssignTo(reviewer),
+                getExecutor());
+    }
+
+    private static ThreadFactory threadFactory()
+    {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, "dataprep-async-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
@@ -9,11 +9,18 @@ import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import org.alfresco.dataprep.CMISUtil.DocumentType;
 import org.alfresco.dataprep.ContentActions;
@@ -23,18 +30,22 @@ import org.alfresco.dataprep.SiteService;
 import org.alfresco.dataprep.UserService;
 import org.alfresco.dataprep.AlfrescoHttpClient;
 import org.alfresco.dataprep.AlfrescoHttpClientFactory;
+import org.alfresco.utility.TasProperties;
 import org.alfresco.utility.Utility;
+import org.alfresco.utility.data.ContentWaitEngine.WaitResult;
 import org.alfresco.utility.data.provider.XMLAspectData;
 import org.alfresco.utility.exception.DataPreparationException;
 import org.alfresco.utility.exception.IORuntimeException;
 import org.alfresco.utility.exception.TestConfigurationException;
 import org.alfresco.utility.model.ContentModel;
+import org.alfresco.utility.model.ContentSource;
 import org.alfresco.utility.model.FileModel;
 import org.alfresco.utility.model.FileType;
 import org.alfresco.utility.model.FolderModel;
 import org.alfresco.utility.model.SiteModel;
 import org.alfresco.utility.model.TagModel;
 import org.alfresco.utility.model.UserModel;
+import org.alfresco.utility.report.OperationMetrics;
 import org.apache.chemistry.opencmis.client.api.CmisObject;
 import org.apache.chemistry.opencmis.client.api.Document;
 import org.apache.chemistry.opencmis.client.api.Folder;
@@ -45,19 +56,28 @@ import org.apache.chemistry.opencmis.commons.enums.VersioningState;
 import org.apache.chemistry.opencmis.commons.exceptions.CmisStorageException;
 import org.apache.chemistry.opencmis.commons.impl.dataobjects.ContentStreamImpl;
 import org.apache.commons.io.FilenameUtils;
-import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang3.SystemUtils;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.apache.http.HttpResponse;
 import org.apache.http.HttpStatus;
 import org.apache.http.client.methods.HttpDelete;
+import org.apache.http.client.methods.HttpGet;
 import org.apache.http.client.methods.HttpPost;
 import org.apache.http.client.methods.HttpPut;
+import org.apache.http.entity.ContentType;
+import org.apache.http.entity.InputStreamEntity;
 import org.apache.http.entity.StringEntity;
+import org.apache.http.entity.mime.MIME;
+import org.apache.http.entity.mime.MultipartEntityBuilder;
+import org.apache.http.entity.mime.content.AbstractContentBody;
 import org.apache.http.message.BasicHeader;
 import org.apache.http.protocol.HTTP;
+import org.apache.http.util.EntityUtils;
+import org.json.simple.JSONArray;
 import org.json.simple.JSONObject;
+import org.springframework.beans.factory.ObjectFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Scope;
 import org.springframework.stereotype.Service;
@@ -74,6 +94,8 @@ public class DataContent extends TestData<DataContent>
 
     private static Log logger = LogFactory.getLog(DataContent.class);
 
+    private static final int TRASHCAN_PAGE_SIZE = 500;
+
     @Autowired
     private AlfrescoHttpClientFactory alfrescoHttpClientFactory;
 
@@ -92,6 +114,18 @@ public class DataContent extends TestData<DataContent>
     @Autowired
     private UserService userService;
 
+    @Autowired
+    private ObjectFactory<DataContent> dataContentFactory;
+
+    @Autowired
+    private CmisSessionCache cmisSessionCache;
+
+    @Autowired
+    private NodeRefIndex nodeRefIndex;
+
+    @Autowired
+    private ContentWaitEngine contentWaitEngine;
+
     private FileModel customModel;
 
     public ContentActions getContentActions()
@@ -112,7 +146,7 @@ public class DataContent extends TestData<DataContent>
     public DataContent usingUser(UserModel user)
     {
         currentUser = user;
-        session = contentService.getCMISSession(user.getUsername(), user.getPassword());
+        session = cmisSessionCache.getSession(user);
         return this;
     }
 
@@ -140,8 +174,7 @@ public class DataContent extends TestData<DataContent>
      */
     public FolderModel createFolder(FolderModel folderModel)
     {
-        AlfrescoHttpClient client = alfrescoHttpClientFactory.getObject();
-        return createFolder(folderModel, (client.getAlfVersion() >= 5.2));
+        return createFolder(folderModel, serverCapabilities.supportsRestApiV1());
     }
 
     /**
@@ -185,7 +218,12 @@ public class DataContent extends TestData<DataContent>
 
         // Send Request
         logger.info(String.format("POST: '%s'", reqUrl));
-        HttpResponse response = client.execute(username, password, post);
+        HttpResponse response = execute("create-folder", client, username, password, post, HttpStatus.SC_CREATED);
+        if (HttpStatus.SC_NOT_FOUND == response.getStatusLine().getStatusCode() && refreshSiteDocumentLibraryId())
+        {
+            EntityUtils.consumeQuietly(response.getEntity());
+            return createFolderV1Api(client, folderModel, username, password);
+        }
         if(HttpStatus.SC_CREATED == response.getStatusLine().getStatusCode())
         {
             JSONObject entryResponse = client.readStream(response.getEntity());
@@ -197,6 +235,7 @@ public class DataContent extends TestData<DataContent>
             String folderLocation = Utility.buildPath(getLastResource(), folderModel.getName());
             folderModel.setCmisLocation(folderLocation);
             folderModel.setProtocolLocation(folderLocation);
+            nodeRefIndex.put(folderModel);
 
             logger.info(String.format("Successful created folder with id '%s' ", entryValueMap.get("id").toString()));
             return folderModel;
@@ -219,10 +258,11 @@ public class DataContent extends TestData<DataContent>
         FolderModel folderModel = new FolderModel(folderName);
         String location = Utility.buildPath(getCurrentSpace(), folderName);
         setLastResource(location);
-        Folder cmisFolder = contentService.createFolderInRepository(getSession(), folderName, getCurrentSpace());
+        Folder cmisFolder = OperationMetrics.time("create-folder-cmis", () -> contentService.createFolderInRepository(getSession(), folderName, getCurrentSpace()));
         folderModel.setProtocolLocation(cmisFolder.getPath());
         folderModel.setCmisLocation(cmisFolder.getPath());
         folderModel.setNodeRef(cmisFolder.getId());
+        nodeRefIndex.put(folderModel);
         return folderModel;
     }
 
@@ -234,11 +274,9 @@ public class DataContent extends TestData<DataContent>
      */
     public void deleteContent()
     {
-        AlfrescoHttpClient client = alfrescoHttpClientFactory.getObject();
-
-        if(client.getAlfVersion() >= 5.2)
+        if(serverCapabilities.supportsRestApiV1())
         {
-            deleteContentV1RestApi(client);
+            deleteContentV1RestApi(alfrescoHttpClientFactory.getObject());
         }
         else
         {
@@ -263,9 +301,10 @@ public class DataContent extends TestData<DataContent>
 
         // Send Request
         logger.info(String.format("DELETE: '%s'", reqUrl));
-        HttpResponse response = client.execute(currentUser.getUsername(), currentUser.getPassword(), delete);
+        HttpResponse response = execute("delete-content", client, currentUser.getUsername(), currentUser.getPassword(), delete, HttpStatus.SC_NO_CONTENT);
         if(HttpStatus.SC_NO_CONTENT == response.getStatusLine().getStatusCode())
         {
+            nodeRefIndex.remove(getLastResource());
             logger.info(String.format("Successful deleted content with id '%s' ", nodeId));
         }
         else
@@ -283,7 +322,8 @@ public class DataContent extends TestData<DataContent>
     public void deleteContentCmisApi()
     {
         STEP(String.format("DATAPREP: Deleting '%s'", getLastResource()));
-        contentService.deleteContentByPath(getSession(), getLastResource());
+        OperationMetrics.time("delete-content-cmis", () -> contentService.deleteContentByPath(getSession(), getLastResource()));
+        nodeRefIndex.remove(getLastResource());
     }
 
     /**
@@ -299,6 +339,7 @@ public class DataContent extends TestData<DataContent>
         File file = new File(getLastResource());
         STEP(String.format("DATAPREP: Rename content '%s' in %s", file.getName(), getCurrentSpace()));
         contentActions.renameContent(getSession(), getLastResource(), newContent.getName());
+        nodeRefIndex.remove(getLastResource());
     }
 
     /**
@@ -332,15 +373,12 @@ public class DataContent extends TestData<DataContent>
 
     /**
      * This is the entry point of the createContent() method to make REST API or CMIS call
+     * If the Alfresco version is at least 5.2 the file is uploaded in one multipart request
      */
     public FileModel createContent(FileModel fileModel){
-        AlfrescoHttpClient client = alfrescoHttpClientFactory.getObject();
-
-        if(client.getAlfVersion() >= 5.2)
+        if(serverCapabilities.supportsRestApiV1())
         {
-            FileModel createFile = createContentV1Api(client, fileModel);
-            updateContent(client, createFile);
-            return createFile;
+            return createContentMultipartV1Api(alfrescoHttpClientFactory.getObject(), fileModel, fileModel.getFileType().getDocumentType());
         }
         else
         {
@@ -384,7 +422,12 @@ public class DataContent extends TestData<DataContent>
 
         // Send Request
         logger.info(String.format("POST: '%s'", reqUrl));
-        HttpResponse response = client.execute(currentUser.getUsername(), currentUser.getPassword(), post);
+        HttpResponse response = execute("create-content", client, currentUser.getUsername(), currentUser.getPassword(), post, HttpStatus.SC_CREATED);
+        if (HttpStatus.SC_NOT_FOUND == response.getStatusLine().getStatusCode() && refreshSiteDocumentLibraryId())
+        {
+            EntityUtils.consumeQuietly(response.getEntity());
+            return createContentV1Api(client, fileModel);
+        }
         if(HttpStatus.SC_CREATED == response.getStatusLine().getStatusCode())
         {
             JSONObject entryResponse = client.readStream(response.getEntity());
@@ -395,10 +438,11 @@ public class DataContent extends TestData<DataContent>
             String fileLocation = Utility.buildPath(getLastResource(), fileModel.getName());
             fileModel.setCmisLocation(fileLocation);
             fileModel.setProtocolLocation(fileLocation);
-            if(fileModel.getContent().isEmpty())
+            if(fileModel.hasNoContent())
             {
                 fileModel.setContent("This is a test file");
             }
+            nodeRefIndex.put(fileModel);
             logger.info(String.format("Successful created content with id '%s' ", entryValueMap.get("id").toString()));
             return fileModel;
         }
@@ -408,6 +452,80 @@ public class DataContent extends TestData<DataContent>
         }
     }
 
+    /**
+     * Creates a file with its name, title, description and content in one multipart REST API request
+     * Return the {@link FileModel} object on success creation
+     *
+     * @param client
+     * @param fileModel
+     * @param documentType used for the mimetype of the content, if null the server will guess it from file name
+     * @return
+     */
+    public FileModel createContentMultipartV1Api(AlfrescoHttpClient client, FileModel fileModel, DocumentType documentType)
+    {
+        STEP(String.format("DATAPREP: Create file '%s' in %s", fileModel.getName(), getCurrentSpace()));
+        if (fileModel.hasNoContent())
+        {
+            fileModel.setContent("This is a test file");
+        }
+
+        // Build request
+        String nodeId = this.getLastNodeId();
+        String reqUrl = client.getApiVersionUrl() + "nodes/" + nodeId + "/children";
+        HttpPost post = new HttpPost(reqUrl);
+        ContentType contentType = documentType != null ? ContentType.create(documentType.type, client.UTF_8_ENCODING) : ContentType.DEFAULT_BINARY;
+        ContentType textType = ContentType.create("text/plain", client.UTF_8_ENCODING);
+
+        MultipartEntityBuilder multipart = MultipartEntityBuilder.create();
+        multipart.setCharset(StandardCharsets.UTF_8);
+        if (fileModel.hasContentSource())
+        {
+            multipart.addPart("filedata", new ContentSourceBody(fileModel, contentType));
+        }
+        else
+        {
+            multipart.addBinaryBody("filedata", fileModel.getContent().getBytes(StandardCharsets.UTF_8), contentType, fileModel.getName());
+        }
+        multipart.addTextBody("name", fileModel.getName(), textType);
+        multipart.addTextBody("nodeType", "cm:content", textType);
+        if (fileModel.getTitle() != null)
+        {
+            multipart.addTextBody("cm:title", fileModel.getTitle(), textType);
+        }
+        if (fileModel.getDescription() != null)
+        {
+            multipart.addTextBody("cm:description", fileModel.getDescription(), textType);
+        }
+        post.setEntity(multipart.build());
+
+        // Send Request
+        logger.info(String.format("POST (multipart): '%s'", reqUrl));
+        HttpResponse response = execute("create-content", client, currentUser.getUsername(), currentUser.getPassword(), post, HttpStatus.SC_CREATED);
+        if (HttpStatus.SC_NOT_FOUND == response.getStatusLine().getStatusCode() && refreshSiteDocumentLibraryId())
+        {
+            EntityUtils.consumeQuietly(response.getEntity());
+            return createContentMultipartV1Api(client, fileModel, documentType);
+        }
+        if(HttpStatus.SC_CREATED == response.getStatusLine().getStatusCode())
+        {
+            JSONObject entryResponse = client.readStream(response.getEntity());
+            JSONObject entryValueMap = (JSONObject) entryResponse.get("entry");
+
+            fileModel.setNodeRef(entryValueMap.get("id").toString());
+            fileModel.setName(entryValueMap.get("name").toString());
+            String fileLocation = Utility.buildPath(getLastResource(), fileModel.getName());
+            fileModel.setCmisLocation(fileLocation);
+            fileModel.setProtocolLocation(fileLocation);
+            nodeRefIndex.put(fileModel);
+            logger.info(String.format("Successful uploaded content with id '%s' ", entryValueMap.get("id").toString()));
+            return fileModel;
+        }
+        else
+        {
+            throw new RuntimeException("Could not upload file. Request response: " + client.getParameterFromJSON(response,"briefSummary", "error"));
+        }
+    }
+
     /**
      * This method updates the content of the created document
      *
@@ -433,9 +551,8 @@ public class DataContent extends TestData<DataContent>
      */
     public FileModel createContentCmisApi(FileModel fileModel) throws DataPreparationException
     {
-        String fileFullName = fileModel.getName();
-        if (FilenameUtils.getExtension(fileFullName).length() == 0)
-            fileFullName = String.format("%s.%s", fileModel.getName(), fileModel.getFileType().extension);
+        String fileFullName = FilenameUtils.getExtension(fileModel.getName()).length() == 0
+                ? String.format("%s.%s", fileModel.getName(), fileModel.getFileType().extension) : fileModel.getName();
 
         STEP(String.format("DATAPREP: Creating a new non-empty content %s in %s ", fileModel.getName(), getLastResource()));
         if (getLastResource().isEmpty())
@@ -444,8 +561,15 @@ public class DataContent extends TestData<DataContent>
         Document cmisDocument = null;
         try
         {
-            cmisDocument = contentService.createDocumentInRepository(getSession(), getLastResource(), DocumentType.valueOf(fileModel.getFileType().toString()),
-                    fileFullName, fileModel.getContent());
+            if (fileModel.hasContentSource())
+            {
+                cmisDocument = createStreamedDocument(fileModel, fileFullName);
+            }
+            else
+            {
+                cmisDocument = OperationMetrics.time("create-content-cmis", () -> contentService.createDocumentInRepository(getSession(),
+                        getLastResource(), DocumentType.valueOf(fileModel.getFileType().toString()), fileFullName, fileModel.getContent()));
+            }
 
             // Set Title or Description if specified
             if (fileModel.getTitle() != null || fileModel.getDescription() != null)
@@ -461,30 +585,58 @@ public class DataContent extends TestData<DataContent>
         }
         catch (CmisStorageException cse)
         {
-            cmisDocument = contentService.createDocumentInRepository(getSession(), getLastResource(), DocumentType.valueOf(fileModel.getFileType().toString()),
-                    fileFullName, fileModel.getContent());
+            if (fileModel.hasContentSource())
+            {
+                cmisDocument = createStreamedDocument(fileModel, fileFullName);
+            }
+            else
+            {
+                cmisDocument = OperationMetrics.time("create-content-cmis", () -> contentService.createDocumentInRepository(getSession(),
+                        getLastResource(), DocumentType.valueOf(fileModel.getFileType().toString()), fileFullName, fileModel.getContent()));
+            }
         }
         String fileLocation = Utility.buildPath(getLastResource(), fileFullName);
         fileModel.setCmisLocation(fileLocation);
         fileModel.setProtocolLocation(fileLocation);
         fileModel.setNodeRef(cmisDocument.getId());
+        nodeRefIndex.put(fileModel);
         return fileModel;
     }
 
+    /**
+     * Creates a document in last resource using CMIS, streaming the content from {@link FileModel#getContentSource()}
+     */
+    private Document createStreamedDocument(FileModel fileModel, String fileFullName)
+    {
+        Map<String, Object> properties = new HashMap<String, Object>();
+        properties.put(PropertyIds.OBJECT_TYPE_ID, "cmis:document");
+        properties.put(PropertyIds.NAME, fileFullName);
+
+        ContentStream contentStream = getContentStream(fileFullName, fileModel);
+        try
+        {
+            return OperationMetrics.time("create-content-cmis", () -> {
+                Folder parent = contentService.getFolderObject(getSession(), getLastResource());
+                return parent.createDocument(properties, contentStream, VersioningState.MAJOR);
+            });
+        }
+        finally
+        {
+            closeContentStream(contentStream);
+        }
+    }
+
     /**
      * This is the entry point of the createContent() method to make REST API or CMIS call
      */
     public FileModel createContent(DocumentType documentType) throws DataPreparationException
     {
-        AlfrescoHttpClient client = alfrescoHttpClientFactory.getObject();
-
-        if(client.getAlfVersion() >= 5.2)
+        if(serverCapabilities.supportsRestApiV1())
         {
             String fileName = RandomData.getRandomName("file");
             FileModel fileModel = new FileModel(fileName, FileType.fromName(fileName + "." + documentType.extention));
-            FileModel createFile = createContentDocTypeV1Api(client, fileModel, documentType);
-            updateContent(client, createFile, documentType);
-            return createFile;
+            fileModel.setName(String.format("%s.%s", fileModel.getName(), Utility.cmisDocTypeToExtentions(documentType)));
+            return createContentMultipartV1Api(alfrescoHttpClientFactory.getObject(), fileModel, documentType);
         }
         else
         {
@@ -525,19 +677,35 @@ public class DataContent extends TestData<DataContent>
         String reqUrl = client.getApiVersionUrl() + "nodes/" + nodeId + "/content?majorVersion=true";
 
         HttpPut put  = new HttpPut(reqUrl);
-        String fileContent = fileModel.getContent();
         if (documentType != null)
         {
             String contentType = documentType.type + ";charset=" + client.UTF_8_ENCODING;
             put.addHeader("Content-Type", contentType);
         }
-        StringEntity se = new StringEntity(fileContent, client.UTF_8_ENCODING);
-        se.setContentType(new BasicHeader(HTTP.CONTENT_TYPE, client.MIME_TYPE_JSON));
-        put.setEntity(se);
+        if (fileModel.hasContentSource())
+        {
+            // the content is streamed to the server, so large files are never kept in memory
+            try
+            {
+                InputStreamEntity entity = new InputStreamEntity(fileModel.openContentStream(), fileModel.getContentLength());
+                entity.setContentType(new BasicHeader(HTTP.CONTENT_TYPE, client.MIME_TYPE_JSON));
+                put.setEntity(entity);
+            }
+            catch (IOException e)
+            {
+                throw new IORuntimeException(e);
+            }
+        }
+        else
+        {
+            StringEntity se = new StringEntity(fileModel.getContent(), client.UTF_8_ENCODING);
+            se.setContentType(new BasicHeader(HTTP.CONTENT_TYPE, client.MIME_TYPE_JSON));
+            put.setEntity(se);
+        }
 
         // Send Request
         logger.info(String.format("Update content for file with name '%s' by POST: '%s'", fileModel.getName(), reqUrl));
-        HttpResponse response = client.executeAndRelease(currentUser.getUsername(), currentUser.getPassword(), put);
+        HttpResponse response = executeAndRelease("update-content", client, currentUser.getUsername(), currentUser.getPassword(), put, HttpStatus.SC_OK);
         if(HttpStatus.SC_OK == response.getStatusLine().getStatusCode())
         {
             logger.info(String.format("Successfully updated content"));
@@ -571,57 +739,192 @@ public class DataContent extends TestData<DataContent>
         Document cmisDocument = null;
         try
         {
-            cmisDocument = contentService.createDocumentInRepository(getSession(), getLastResource(), documentType, newContent, "This is a file file");
+            cmisDocument = OperationMetrics.time("create-content-cmis",
+                    () -> contentService.createDocumentInRepository(getSession(), getLastResource(), documentType, newContent, "This is a file file"));
         }
         catch (CmisStorageException cse)
         {
-            cmisDocument = contentService.createDocumentInRepository(getSession(), getLastResource(), documentType, newContent, "This is a file file");
+            cmisDocument = OperationMetrics.time("create-content-cmis",
+                    () -> contentService.createDocumentInRepository(getSession(), getLastResource(), documentType, newContent, "This is a file file"));
         }
         FileModel newFile = new FileModel(cmisDocument.getName());
         newFile.setCmisLocation(newLocation);
         newFile.setProtocolLocation(newLocation);
         newFile.setNodeRef(cmisDocument.getId());
+        nodeRefIndex.put(newFile);
         return newFile;
     }
 
+    /**
+     * Creates all files in current resource in parallel, using {@link TasProperties#getDataPrepParallelism()} workers
+     * Each worker keeps the user and site/resource used on this instance
+     * <code>
+     * dataContent.usingUser(testUser).usingSite(testSite).createContentBatch(files);
+     * </code>
+     *
+     * @param files
+     * @return {@link BulkResult} with the created files and the ones that failed
+     */
+    public BulkResult<FileModel> createContentBatch(List<FileModel> files)
+    {
+        return createContentBatch(files, tasProperties.getDataPrepParallelism());
+    }
+
+    /**
+     * Creates all files in current resource using <parallelism> workers
+     *
+     * @param files
+     * @param parallelism
+     * @return {@link BulkResult} with the created files and the ones that failed
+     */
+    public BulkResult<FileModel> createContentBatch(List<FileModel> files, int parallelism)
+    {
+        STEP(String.format("DATAPREP: Create %d files in %s using %d workers", files.size(), getCurrentSpace(), parallelism));
+        BulkResult<FileModel> result = new BulkExecutor(parallelism).execute("create-content", files, file -> newWorker().createContent(file));
+        STEP(String.format("DATAPREP: %s", result.getSummary()));
+        return result;
+    }
+
+    /**
+     * Creates a random folder tree in current resource, level by level.
+     * All folders of one level are created in parallel, then all files of that level.
+     * <code>
+     * dataContent.usingUser(testUser).usingSite(testSite).createFolderTree(3, 5, 10);
+     * </code>
+     *
+     * @param depth number of folder levels
+     * @param foldersPerFolder number of sub-folders created in each folder
+     * @param filesPerFolder number of files created in each folder
+     * @return {@link BulkResult} with all folders and files created
+     */
+    public BulkResult<ContentModel> createFolderTree(int depth, int foldersPerFolder, int filesPerFolder)
+    {
+        STEP(String.format("DATAPREP: Create folder tree (depth=%d, folders=%d, files=%d) in %s", depth, foldersPerFolder, filesPerFolder,
+                getCurrentSpace()));
+        BulkExecutor executor = new BulkExecutor(tasProperties.getDataPrepParallelism());
+        BulkResult<ContentModel> result = new BulkResult<ContentModel>("create-folder-tree");
+
+        FolderModel root = new FolderModel();
+        root.setCmisLocation(getLastResource());
+        root.setNodeRef(getLastNodeId());
+        List<FolderModel> parents = new ArrayList<FolderModel>();
+        parents.add(root);
+
+        for (int level = 0; level < depth && !parents.isEmpty(); level++)
+        {
+            Map<ContentModel, FolderModel> parentOf = new IdentityHashMap<ContentModel, FolderModel>();
+            List<ContentModel> folders = new ArrayList<ContentModel>();
+            for (FolderModel parent : parents)
+            {
+                for (int i = 0; i < foldersPerFolder; i++)
+                {
+                    FolderModel folder = FolderModel.getRandomFolderModel();
+                    parentOf.put(folder, parent);
+                    folders.add(folder);
+                }
+            }
+            BulkResult<ContentModel> createdFolders = executor.execute("create-folder", folders,
+                    folder -> newWorker().usingResource(parentOf.get(folder)).createFolder((FolderModel) folder));
+            result.merge(createdFolders);
+
+            parents = new ArrayList<FolderModel>();
+            List<ContentModel> files = new ArrayList<ContentModel>();
+            for (ContentModel folder : createdFolders.getItems())
+            {
+                parents.add((FolderModel) folder);
+                for (int i = 0; i < filesPerFolder; i++)
+                {
+                    FileModel file = FileModel.getRandomFileModel(FileType.TEXT_PLAIN, "This is a test file");
+                    parentOf.put(file, (FolderModel) folder);
+                    files.add(file);
+                }
+            }
+            result.merge(executor.execute("create-content", files,
+                    file -> newWorker().usingResource(parentOf.get(file)).createContent((FileModel) file)));
+        }
+        result.finish();
+        STEP(String.format("DATAPREP: %s", result.getSummary()));
+        return result;
+    }
+
+    /**
+     * @return a new {@link DataContent} with the same user, site and resource as this one, to be used by one worker thread
+     */
+    public DataContent newWorker()
+    {
+        DataContent worker = dataContentFactory.getObject();
+        worker.currentUser = getCurrentUser();
+        worker.session = getSession();
+        worker.setCurrentSite(getCurrentSite());
+        worker.setCurrentSpace(getCurrentSpace());
+        worker.setLastResource(getLastResource());
+        worker.setLastNodeId(getLastNodeId());
+        return worker;
+    }
+
+    /**
+     * The content is searched on the server, as the current user
+     */
     public void assertContentExist() throws TestConfigurationException
+    {
+        assertContentExist(false);
+    }
+
+    /**
+     * @param useNodeRefIndex if true the content created by the data preparation is found in the {@link NodeRefIndex} without asking the
+     *            server, whatever the current user; use it only for content that no test changed since it was created
+     */
+    public void assertContentExist(boolean useNodeRefIndex) throws TestConfigurationException
     {
         STEP(String.format("DATAPREP: Check that content %s exists.", getLastResource()));
-        boolean contentExist = checkContent(getLastResource(), getCurrentUser());
+        boolean contentExist = checkContent(getLastResource(), getCurrentUser(), useNodeRefIndex);
         Assert.assertTrue(contentExist, String.format("Content {%s} was found in repository", getLastResource()));
     }
 
+    /**
+     * The content is always searched on the server, the {@link NodeRefIndex} cannot tell that content was deleted
+     */
     public void assertContentDoesNotExist() throws TestConfigurationException
     {
         STEP(String.format("DATAPREP: Check that content does not %s exist.", getLastResource()));
-        boolean contentDoesNotExist = checkContent(getLastResource(), getCurrentUser());
+        boolean contentDoesNotExist = checkContent(getLastResource(), getCurrentUser(), false);
         Assert.assertFalse(contentDoesNotExist, String.format("Content {%s} was NOT found in repository", getLastResource()));
     }
 
     /**
+     * The path is resolved on the server
+     *
      * @param fullPath - the full path to CMIS object
      * @param userModel
      * @throws TestConfigurationException
      */
     public boolean checkContent(String fullPath, UserModel userModel) throws TestConfigurationException
+    {
+        return checkContent(fullPath, userModel, false);
+    }
+
+    /**
+     * @param fullPath - the full path to CMIS object
+     * @param userModel
+     * @param useNodeRefIndex if true an indexed path is not resolved on the server, see {@link #assertContentExist(boolean)}
+     * @throws TestConfigurationException
+     */
+    public boolean checkContent(String fullPath, UserModel userModel, boolean useNodeRefIndex) throws TestConfigurationException
     {
         if (fullPath == null || fullPath.isEmpty())
         {
             throw new TestConfigurationException("You didn't specify your #lastResource. Please call #usingResource(..) or #setLastResource(...) methods");
         }
-        return !contentService.getNodeRefByPath(getSession(), Utility.convertBackslashToSlash(fullPath)).isEmpty();
+        if (useNodeRefIndex)
+        {
+            return !nodeRefIndex.getNodeRef(getSession(), fullPath).isEmpty();
+        }
+        return !nodeRefIndex.getNodeRefFromServer(getSession(), fullPath).isEmpty();
     }
 
     public void waitUntilContentIsDeleted(String fullPath)
     {
-        int retry = 0;
-        String deletedObject = contentService.getNodeRefByPath(getSession(), fullPath);
-        while (!StringUtils.isEmpty(deletedObject) && retry < Utility.retryCountSeconds)
-        {
-            Utility.waitToLoopTime(1);
-            deletedObject = contentService.getNodeRefByPath(getSession(), fullPath);
-            retry++;
-        }
+        waitUntilContentsAreDeleted(Collections.singletonList(fullPath), Utility.retryCountSeconds);
     }
 
     /**
@@ -631,15 +934,34 @@ public class DataContent extends TestData<DataContent>
      */
     public void waitUntilContentIsCreated(String fullPath)
     {
-        LOG.info("Wait until new content is created up to 15 seconds");
-        int retry = 0;
-        String newObject = contentService.getNodeRefByPath(getSession(), fullPath);
-        while (StringUtils.isEmpty(newObject) && retry < 15)
-        {
-            Utility.waitToLoopTime(1);
-            newObject = contentService.getNodeRefByPath(getSession(), fullPath);
-            retry++;
-        }
+        waitUntilContentsAreCreated(Collections.singletonList(fullPath), 15);
+    }
+
+    /**
+     * Wait until all resources are created, checking each parent folder once per check, see {@link ContentWaitEngine}
+     * <code>
+     * WaitResult result = dataContent.usingAdmin().waitUntilContentsAreCreated(paths, 30);
+     * </code>
+     *
+     * @param fullPaths
+     * @param timeoutSeconds
+     * @return the nodeRefs of the created resources and the ones still missing after <timeoutSeconds>
+     */
+    public WaitResult waitUntilContentsAreCreated(Collection<String> fullPaths, int timeoutSeconds)
+    {
+        return contentWaitEngine.waitUntilCreated(getSession(), fullPaths, timeoutSeconds);
+    }
+
+    /**
+     * Wait until all resources are deleted, checking each parent folder once per check, see {@link ContentWaitEngine}
+     *
+     * @param fullPaths
+     * @param timeoutSeconds
+     * @return the resources still existing after <timeoutSeconds>
+     */
+    public WaitResult waitUntilContentsAreDeleted(Collection<String> fullPaths, int timeoutSeconds)
+    {
+        return contentWaitEngine.waitUntilDeleted(getSession(), fullPaths, timeoutSeconds);
     }
 
     /**
@@ -663,10 +985,13 @@ public class DataContent extends TestData<DataContent>
     @SuppressWarnings("deprecation")
     public void deleteSite(SiteModel site)
     {
-        if (siteService.exists(site.getId(), getAdminUser().getUsername(), getAdminUser().getPassword()))
+        if (OperationMetrics.time("site-exists", () -> siteService.exists(site.getId(), getAdminUser().getUsername(), getAdminUser().getPassword())))
         {
             LOG.info("Deleting site {} with user {}", site.toString(), getCurrentUser().toString());
-            siteService.delete(getCurrentUser().getUsername(), getCurrentUser().getPassword(), getCurrentUser().getDomain(), site.getId());
+            OperationMetrics.time("delete-site",
+                    () -> siteService.delete(getCurrentUser().getUsername(), getCurrentUser().getPassword(), getCurrentUser().getDomain(), site.getId()));
+            serverCapabilities.forgetSite(site.getId());
+            nodeRefIndex.remove(String.format("/Sites/%s", site.getId()));
         }
     }
 
@@ -678,7 +1003,8 @@ public class DataContent extends TestData<DataContent>
     public void deleteTree(FolderModel from)
     {
         LOG.info("Deleting entire tree of {}", from.getCmisLocation());
-        contentService.deleteTreeByPath(getSession(), from.getCmisLocation());
+        OperationMetrics.time("delete-tree-cmis", () -> contentService.deleteTreeByPath(getSession(), from.getCmisLocation()));
+        nodeRefIndex.remove(from.getCmisLocation());
     }
 
     /**
@@ -707,7 +1033,7 @@ public class DataContent extends TestData<DataContent>
         props.put(PropertyIds.OBJECT_TYPE_ID, "D:cm:dictionaryModel");
         props.put(PropertyIds.NAME, file.getName());
         props.put("cm:modelActive", true);
-        Session session = contentService.getCMISSession(getCurrentUser().getUsername(), getCurrentUser().getPassword());
+        Session session = cmisSessionCache.getSession(getCurrentUser());
         ContentStream contentStream = session.getObjectFactory().createContentStream(file.getName(), file.length(), FilenameUtils.getExtension(file.getPath()),
                 inputStream);
         CmisObject modelInRepo;
@@ -783,6 +1109,28 @@ public class DataContent extends TestData<DataContent>
         return contentStream;
     }
 
+    /**
+     * Create a content stream that reads the content of <fileModel> as it is sent, without keeping it in memory
+     *
+     * @param fileName A name for the content stream.
+     * @param fileModel The file with the content, as {@link String} or {@link ContentSource}.
+     * @return The stream.
+     * @throws IORuntimeException if there is an issue opening the content.
+     */
+    public ContentStream getContentStream(String fileName, FileModel fileModel)
+    {
+        try
+        {
+            long length = fileModel.getContentLength();
+            return new ContentStreamImpl(fileName, length < 0 ? null : BigInteger.valueOf(length), FileType.fromName(fileName).mimeType,
+                    fileModel.openContentStream());
+        }
+        catch (IOException e)
+        {
+            throw new IORuntimeException(e);
+        }
+    }
+
     public void closeContentStream(ContentStream contentStream)
     {
         try
@@ -835,7 +1183,7 @@ public class DataContent extends TestData<DataContent>
         {
             FileModel fileModel = (FileModel) contentModel;
             STEP(String.format("DATAPREP: Create custom File '%s' with typeID: %s, in '%s'", contentModel.getName(), objectTypeID, getCurrentSpace()));
-            ContentStream contentStream = getContentStream(contentModel.getName(), fileModel.getContent());
+            ContentStream contentStream = getContentStream(contentModel.getName(), fileModel);
             Document newFile = folder.createDocument(properties, contentStream, VersioningState.MAJOR);
 
             if (objectTypeProperty != null)
@@ -847,6 +1195,7 @@ public class DataContent extends TestData<DataContent>
         }
         contentModel.setProtocolLocation(fullPath.getPath());
         contentModel.setCmisLocation(fullPath.getPath());
+        nodeRefIndex.put(contentModel);
         return contentModel;
     }
 
@@ -895,7 +1244,7 @@ public class DataContent extends TestData<DataContent>
      */
     public String getNodeRef()
     {
-        return contentService.getNodeRefByPath(getSession(), Utility.convertBackslashToSlash(getLastResource()));
+        return nodeRefIndex.getNodeRef(getSession(), getLastResource());
     }
 
     /**
@@ -906,7 +1255,7 @@ public class DataContent extends TestData<DataContent>
      */
     public Document getCMISDocument(String filePath)
     {
-        return contentService.getDocumentObject(getSession(), filePath);
+        return OperationMetrics.time("cmis-path-lookup", () -> contentService.getDocumentObject(getSession(), filePath));
     }
 
     /**
@@ -917,7 +1266,7 @@ public class DataContent extends TestData<DataContent>
      */
     public Folder getCMISFolder(String folderPath)
     {
-        return contentService.getFolderObject(getSession(), folderPath);
+        return OperationMetrics.time("cmis-path-lookup", () -> contentService.getFolderObject(getSession(), folderPath));
     }
 
     /**
@@ -1020,7 +1369,8 @@ public class DataContent extends TestData<DataContent>
     {
         String path = getLastResource();
         STEP(String.format("DATAPREP: Update content for document from %s", path));
-        contentService.updateDocumentContent(getCurrentUser().getUsername(), getCurrentUser().getPassword(), path, newContent);
+        OperationMetrics.time("update-content-cmis",
+                () -> contentService.updateDocumentContent(getCurrentUser().getUsername(), getCurrentUser().getPassword(), path, newContent));
     }
 
     /**
@@ -1047,4 +1397,121 @@ public class DataContent extends TestData<DataContent>
     {
         userService.emptyTrashcan(user.getUsername(), user.getPassword());
     }
+
+    /**
+     * Purge the trashcan of <user> page by page, deleting the items of each page in parallel with
+     * {@link TasProperties#getDataPrepParallelism()} workers, instead of emptying it with one long request.
+     * Servers without the v1 REST API are emptied with {@link #emptyUserTrashcan(UserModel)}.
+     * <code>
+     * dataContent.purgeTrashcan(dataContent.getAdminUser());
+     * </code>
+     *
+     * @param user
+     * @return {@link BulkResult} with the ids of the purged items and the ones that could not be purged
+     */
+    public BulkResult<String> purgeTrashcan(UserModel user)
+    {
+        STEP(String.format("DATAPREP: Purging trashcan of user %s", user.getUsername()));
+        BulkResult<String> result = new BulkResult<String>("purge-trashcan");
+        if (!serverCapabilities.supportsRestApiV1())
+        {
+            emptyUserTrashcan(user);
+            result.finish();
+            return result;
+        }
+
+        AlfrescoHttpClient client = alfrescoHttpClientFactory.getObject();
+        BulkExecutor executor = new BulkExecutor(tasProperties.getDataPrepParallelism());
+        Set<String> failed = new HashSet<String>();
+        while (true)
+        {
+            // purged items leave the list, so the next page starts after the items that could not be purged
+            List<String> page = getTrashcanPage(client, user, failed.size());
+            page.removeAll(failed);
+            if (page.isEmpty())
+            {
+                break;
+            }
+            BulkResult<String> pageResult = executor.execute("purge-trashcan", page, id -> {
+                AlfrescoHttpClient worker = alfrescoHttpClientFactory.getObject();
+                HttpDelete delete = new HttpDelete(worker.getApiVersionUrl() + "deleted-nodes/" + id);
+                HttpResponse response = executeAndRelease("purge-trashcan", worker, user.getUsername(), user.getPassword(), delete, HttpStatus.SC_NO_CONTENT);
+                if (HttpStatus.SC_NO_CONTENT != response.getStatusLine().getStatusCode())
+                {
+                    throw new DataPreparationException(String.format("Could not purge %s, status %d", id, response.getStatusLine().getStatusCode()));
+                }
+                return id;
+            });
+            result.merge(pageResult);
+            failed.addAll(pageResult.getFailures().keySet());
+            if (pageResult.getItems().isEmpty())
+            {
+                break;
+            }
+        }
+        result.finish();
+        STEP(String.format("DATAPREP: %s", result.getSummary()));
+        return result;
+    }
+
+    /**
+     * @return the ids of one page of the trashcan of <user>
+     */
+    private List<String> getTrashcanPage(AlfrescoHttpClient client, UserModel user, int skipCount)
+    {
+        String reqUrl = String.format("%sdeleted-nodes?skipCount=%d&maxItems=%d&fields=id", client.getApiVersionUrl(), skipCount, TRASHCAN_PAGE_SIZE);
+        HttpResponse response = execute("list-trashcan", client, user.getUsername(), user.getPassword(), new HttpGet(reqUrl), HttpStatus.SC_OK);
+        if (HttpStatus.SC_OK != response.getStatusLine().getStatusCode())
+        {
+            throw new DataPreparationException("Could not list trashcan. Request response: " + client.getParameterFromJSON(response, "briefSummary", "error"));
+        }
+        JSONObject list = (JSONObject) client.readStream(response.getEntity()).get("list");
+        List<String> ids = new ArrayList<String>();
+        for (Object entry : (JSONArray) list.get("entries"))
+        {
+            ids.add(((JSONObject) ((JSONObject) entry).get("entry")).get("id").toString());
+        }
+        return ids;
+    }
+
+    /**
+     * Multipart body that streams the content of a {@link FileModel} while the request is sent
+     */
+    private static class ContentSourceBody extends AbstractContentBody
+    {
+        private final FileModel fileModel;
+
+        public ContentSourceBody(FileModel fileModel, ContentType contentType)
+        {
+            super(contentType);
+            this.fileModel = fileModel;
+        }
+
+        @Override
+        public String getFilename()
+        {
+            return fileModel.getName();
+        }
+
+        @Override
+        public void writeTo(OutputStream out) throws IOException
+        {
+            try (InputStream in = fileModel.openContentStream())
+            {
+                IOUtils.copyLarge(in, out);
+            }
+        }
+
+        @Override
+        public String getTransferEncoding()
+        {
+            return MIME.ENC_BINARY;
+        }
+
+        @Override
+        public long getContentLength()
+        {
+            return fileModel.getContentLength();
+        }
+    }
 }
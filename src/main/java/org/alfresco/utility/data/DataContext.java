@@ -0,0 +1,98 @@
+package org.alfresco.utility.data;
+
+import org.alfresco.utility.model.ContentModel;
+import org.alfresco.utility.model.SiteModel;
+import org.alfresco.utility.model.UserModel;
+
+/**
+ * Immutable user, site and resource a call of {@link DataAsync} runs with, instead of the state kept by a Data* service.
+ * <code>
+ * DataContext context = DataContext.as(testUser).inSite(testSite).inResource(folder);
+ * </code>
+ */
+public final class DataContext
+{
+    private static final DataContext ADMIN = new DataContext(null, null, null);
+
+    private final UserModel user;
+    private final SiteModel site;
+    private final ContentModel resource;
+
+    private DataContext(UserModel user, SiteModel site, ContentModel resource)
+    {
+        this.user = user;
+        this.site = site;
+        this.resource = resource;
+    }
+
+    /**
+     * @return context of the admin user defined in default.properties, with no site nor resource
+     */
+    public static DataContext asAdmin()
+    {
+        return ADMIN;
+    }
+
+    public static DataContext as(UserModel user)
+    {
+        return new DataContext(user, null, null);
+    }
+
+    /**
+     * @return a copy of this context using <site>
+     */
+    public DataContext inSite(SiteModel site)
+    {
+        return new DataContext(user, site, resource);
+    }
+
+    /**
+     * @return a copy of this context using <resource>, the folder in which content is created or the content a workflow is started on
+     */
+    public DataContext inResource(ContentModel resource)
+    {
+        return new DataContext(user, site, resource);
+    }
+
+    /**
+     * @return the user, null for admin
+     */
+    public UserModel getUser()
+    {
+        return user;
+    }
+
+    public SiteModel getSite()
+    {
+        return site;
+    }
+
+    public ContentModel getResource()
+    {
+        return resource;
+    }
+
+    /**
+     * Set this context on a fresh <data> service
+     */
+    <D extends TestData<D>> D applyTo(D data)
+    {
+        D configured = user == null ? data.usingAdmin() : data.usingUser(user);
+        if (site != null)
+        {
+            configured = configured.usingSite(site);
+        }
+        if (resource != null)
+        {
+            configured = configured.usingResource(resource);
+        }
+        return configured;
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.format("context[user=%s, site=%s, resource=%s]", user == null ? "admin" : user.getUsername(), site == null ? null : site.getId(),
+                resource == null ? null : resource.getCmisLocation());
+    }
+}
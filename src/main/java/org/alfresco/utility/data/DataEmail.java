@@ -16,7 +16,7 @@ import javax.mail.search.AndTerm;
 import javax.mail.search.FlagTerm;
 import javax.mail.search.SearchTerm;
 
-import org.alfresco.utility.Utility;
+import org.alfresco.utility.Wait;
 import org.alfresco.utility.exception.TestConfigurationException;
 import org.alfresco.utility.model.UserModel;
 import org.springframework.context.annotation.Scope;
@@ -146,7 +146,7 @@ public class DataEmail extends TestData<DataEmail>
                 if (messages.length == 0)
                 {
                     retry++;
-                    Utility.waitToLoopTime(1);
+                    Wait.seconds(1);
                 }
                 else
                 {
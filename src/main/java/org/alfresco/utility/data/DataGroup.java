@@ -2,6 +2,9 @@ package org.alfresco.utility.data;
 
 import static org.alfresco.utility.report.log.Step.STEP;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import org.alfresco.dataprep.GroupService;
 import org.alfresco.utility.exception.DataPreparationException;
 import org.alfresco.utility.model.GroupModel;
@@ -21,6 +24,9 @@ public class DataGroup extends TestData<DataGroup>
 {
     private final GroupService groupService;
 
+    @Autowired
+    private DataUser dataUser;
+
     public DataGroup(GroupService groupService)
     {
         this.groupService = groupService;
@@ -93,6 +99,89 @@ public class DataGroup extends TestData<DataGroup>
         return groupModel;
     }
 
+    /**
+     * Creates a tree of groups: one root group, <levels> - 1 levels of sub groups where each group has <width> sub groups,
+     * and <usersPerLeaf> new users in each group of the last level.
+     * Groups are created level by level, the groups of a level and all memberships are created in parallel using
+     * {@link org.alfresco.utility.TasProperties#getDataPrepParallelism()} workers.
+     * <code>
+     * GroupHierarchy hierarchy = dataGroup.createGroupHierarchy(3, 10, 5); // 1 + 10 + 100 groups and 500 users
+     * </code>
+     * 
+     * @param levels number of levels including the root, at least 1
+     * @param width number of sub groups of each group that is not a leaf
+     * @param usersPerLeaf number of users added to each group of the last level
+     * @return the created {@link GroupHierarchy}
+     */
+    public GroupHierarchy createGroupHierarchy(int levels, int width, int usersPerLeaf) throws DataPreparationException
+    {
+        if (levels < 1 || width < 1 || usersPerLeaf < 0)
+        {
+            throw new DataPreparationException(String.format("Invalid group hierarchy: %d levels, %d wide, %d users per leaf", levels, width, usersPerLeaf));
+        }
+        GroupModel root = GroupModel.getRandomGroupModel();
+        STEP(String.format("DATAPREP: Creating group hierarchy %s with %d levels, %d sub groups per group and %d users per leaf group", root.getDisplayName(),
+                levels, width, usersPerLeaf));
+        BulkExecutor executor = new BulkExecutor(tasProperties.getDataPrepParallelism());
+        String adminUser = getAdminUser().getUsername();
+        String adminPassword = getAdminUser().getPassword();
+
+        GroupHierarchy hierarchy = new GroupHierarchy(createGroup(root));
+        List<GroupModel> parents = hierarchy.getLevel(0);
+        for (int level = 1; level < levels; level++)
+        {
+            List<GroupModel> groups = new ArrayList<GroupModel>();
+            for (GroupModel parent : parents)
+            {
+                for (int i = 1; i <= width; i++)
+                {
+                    GroupModel group = new GroupModel(String.format("%s-%d", parent.getDisplayName(), i));
+                    hierarchy.addSubGroup(parent, group);
+                    groups.add(group);
+                }
+            }
+            checkResult(executor.execute("create-group", groups, group -> {
+                groupService.createGroup(adminUser, adminPassword, group.getDisplayName());
+                return group;
+            }));
+            checkResult(executor.execute("add-sub-group", groups, group -> {
+                groupService.addSubGroup(adminUser, adminPassword, hierarchy.getParent(group).getGroupIdentifier(), group.getGroupIdentifier());
+                return group;
+            }));
+            hierarchy.addLevel(groups);
+            parents = groups;
+        }
+
+        if (usersPerLeaf > 0)
+        {
+            List<UserModel> users = new ArrayList<UserModel>();
+            for (GroupModel leaf : hierarchy.getLeaves())
+            {
+                for (int i = 0; i < usersPerLeaf; i++)
+                {
+                    UserModel user = new UserModel(RandomData.getRandomName("user"), PASSWORD);
+                    hierarchy.addUser(leaf, user);
+                    users.add(user);
+                }
+            }
+            checkResult(dataUser.createUsers(users));
+            checkResult(executor.execute("add-group-member", users, user -> {
+                groupService.addUserToGroup(adminUser, adminPassword, hierarchy.getGroup(user).getDisplayName(), user.getUsername());
+                return user;
+            }));
+        }
+        STEP(String.format("DATAPREP: Created group hierarchy %s", hierarchy));
+        return hierarchy;
+    }
+
+    private void checkResult(BulkResult<?> result) throws DataPreparationException
+    {
+        if (result.hasFailures())
+        {
+            throw new DataPreparationException(String.format("Could not create group hierarchy: %s", result.getSummary()));
+        }
+    }
+
     /**
      * Delete group
      * 
@@ -2,13 +2,28 @@ package org.alfresco.utility.data;
 
 import static org.alfresco.utility.report.log.Step.STEP;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import org.alfresco.dataprep.AlfrescoHttpClient;
+import org.alfresco.dataprep.AlfrescoHttpClientFactory;
 import org.alfresco.dataprep.SiteService;
 import org.alfresco.dataprep.SiteService.RMSiteCompliance;
 import org.alfresco.dataprep.SiteService.Visibility;
+import org.alfresco.dataprep.UserService;
 import org.alfresco.utility.TasProperties;
+import org.alfresco.utility.constants.UserRole;
 import org.alfresco.utility.exception.DataPreparationException;
 import org.alfresco.utility.model.SiteModel;
+import org.alfresco.utility.model.UserModel;
+import org.alfresco.utility.report.OperationMetrics;
 import org.apache.commons.lang3.RandomStringUtils;
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpStatus;
+import org.apache.http.client.methods.HttpPost;
+import org.json.simple.JSONObject;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Scope;
 import org.springframework.stereotype.Service;
@@ -27,6 +42,15 @@ public class DataSite extends TestData<DataSite>
 {
     @Autowired
     private SiteService siteService;
+
+    @Autowired
+    private NodeRefIndex nodeRefIndex;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private AlfrescoHttpClientFactory alfrescoHttpClientFactory;
    
     static String SITE_NOT_CREATED = "Site %s  not created";
 
@@ -43,19 +67,118 @@ public class DataSite extends TestData<DataSite>
     public synchronized SiteModel createSite(SiteModel siteModel) throws DataPreparationException
     {    
         STEP(String.format("Creating site %s with user %s", siteModel.toString(), getCurrentUser().toString()));
-        siteService.create(
+        OperationMetrics.time("create-site", () -> siteService.create(
                 getCurrentUser().getUsername(), 
                 getCurrentUser().getPassword(), 
                 String.format(RandomStringUtils.randomAlphanumeric(10), EMAIL),
                 siteModel.getId(), 
                 siteModel.getTitle(), 
                 siteModel.getDescription(), 
-                siteModel.getVisibility());
+                siteModel.getVisibility()));
 
-        siteModel.setGuid(siteService.getSiteNodeRef(getCurrentUser().getUsername(), getCurrentUser().getPassword(), siteModel.getId()));
+        siteModel.setGuid(getSiteNodeRef(siteModel.getId()));
         return siteModel;
     }
 
+    /**
+     * Creates a site with one v1 REST API call, taking its guid from the response
+     *
+     * @param client
+     * @param siteModel
+     * @return
+     */
+    public SiteModel createSiteV1Api(AlfrescoHttpClient client, SiteModel siteModel)
+    {
+        STEP(String.format("Creating site %s with user %s", siteModel.toString(), getCurrentUser().toString()));
+
+        // Build request
+        String reqUrl = client.getApiVersionUrl() + "sites";
+        HttpPost post = new HttpPost(reqUrl);
+        JSONObject body = new JSONObject();
+        body.put("id", siteModel.getId());
+        body.put("title", siteModel.getTitle());
+        body.put("description", siteModel.getDescription());
+        body.put("visibility", siteModel.getVisibility().toString());
+        post.setEntity(client.setMessageBody(body));
+
+        // Send Request
+        LOG.info("POST: '{}'", reqUrl);
+        HttpResponse response = execute("create-site", client, getCurrentUser().getUsername(), getCurrentUser().getPassword(), post, HttpStatus.SC_CREATED);
+        if (HttpStatus.SC_CREATED == response.getStatusLine().getStatusCode())
+        {
+            JSONObject entry = (JSONObject) client.readStream(response.getEntity()).get("entry");
+            siteModel.setGuid(entry.get("guid").toString());
+            return siteModel;
+        }
+        else
+        {
+            throw new DataPreparationException(String.format(SITE_NOT_CREATED, siteModel.getId()) + ". Request response: "
+                    + client.getParameterFromJSON(response, "briefSummary", "error"));
+        }
+    }
+
+    /**
+     * Creates all sites in parallel, using {@link TasProperties#getDataPrepParallelism()} workers
+     * <code>
+     * dataSite.usingUser(manager).createSites(sites);
+     * </code>
+     *
+     * @param sites
+     * @return {@link BulkResult} with the created sites and the ones that failed
+     */
+    public BulkResult<SiteModel> createSites(List<SiteModel> sites)
+    {
+        return createSites(sites, Collections.<UserModel, UserRole> emptyMap());
+    }
+
+    /**
+     * Creates all sites in parallel and adds the same <members> to each site as soon as it is created.
+     * On servers supporting the v1 REST API, each site is created with one call and its guid is read from the response.
+     * <code>
+     * Map<UserModel, UserRole> members = new HashMap<UserModel, UserRole>();
+     * members.put(collaborator, UserRole.SiteCollaborator);
+     * dataSite.usingUser(manager).createSites(sites, members);
+     * </code>
+     *
+     * @param sites
+     * @param members users to add to every site, with their role
+     * @return {@link BulkResult} with the created sites and the ones that failed (creation or membership)
+     */
+    public BulkResult<SiteModel> createSites(List<SiteModel> sites, Map<UserModel, UserRole> members)
+    {
+        STEP(String.format("DATAPREP: Create %d sites with %d members each, using user %s", sites.size(), members.size(), getCurrentUser()));
+        UserModel user = getCurrentUser();
+        boolean useV1API = serverCapabilities.supportsRestApiV1();
+        BulkResult<SiteModel> result = new BulkExecutor(tasProperties.getDataPrepParallelism()).execute("create-site", sites, site -> {
+            SiteModel created = useV1API ? createSiteV1Api(alfrescoHttpClientFactory.getObject(), site) : createSite(site);
+            for (Map.Entry<UserModel, UserRole> member : members.entrySet())
+            {
+                OperationMetrics.time("add-site-member", () -> userService.createSiteMember(user.getUsername(), user.getPassword(),
+                        member.getKey().getUsername(), created.getId(), member.getValue().toString()));
+            }
+            return created;
+        });
+        for (Map.Entry<UserModel, UserRole> member : members.entrySet())
+        {
+            member.getKey().setUserRole(member.getValue());
+        }
+        STEP(String.format("DATAPREP: %s", result.getSummary()));
+        return result;
+    }
+
+    /**
+     * Creates <count> random sites with <visibility> in parallel, see {@link #createSites(List)}
+     */
+    public BulkResult<SiteModel> createRandomSites(int count, Visibility visibility)
+    {
+        List<SiteModel> sites = new ArrayList<SiteModel>();
+        for (int i = 0; i < count; i++)
+        {
+            sites.add(new SiteModel(RandomData.getRandomName("site"), visibility));
+        }
+        return createSites(sites);
+    }
+
     /**
      * Create public site immediately
      * 
@@ -163,13 +286,20 @@ public class DataSite extends TestData<DataSite>
      */
     public boolean isSiteCreated(SiteModel siteModel)
     {
-        return !siteService.getSiteNodeRef(getCurrentUser().getUsername(), getCurrentUser().getPassword(), siteModel.getId()).isEmpty();
+        return !getSiteNodeRef(siteModel.getId()).isEmpty();
+    }
+
+    private String getSiteNodeRef(String siteId)
+    {
+        return OperationMetrics.time("get-site-node-ref", () -> siteService.getSiteNodeRef(getCurrentUser().getUsername(), getCurrentUser().getPassword(), siteId));
     }
 
     public void deleteSite(SiteModel siteModel) throws DataPreparationException
     {
         STEP(String.format("DATAPREP: Delete site %s", siteModel.getId()));
-        siteService.delete(getCurrentUser().getUsername(), getCurrentUser().getPassword(), siteModel.getId());
+        OperationMetrics.time("delete-site", () -> siteService.delete(getCurrentUser().getUsername(), getCurrentUser().getPassword(), siteModel.getId()));
+        serverCapabilities.forgetSite(siteModel.getId());
+        nodeRefIndex.remove(String.format("/Sites/%s", siteModel.getId()));
     }
 
     /**
@@ -197,7 +327,7 @@ public class DataSite extends TestData<DataSite>
         /*
          * We want to be sure that the RM was created
          */
-        String rmSiteNodeRef = siteService.getSiteNodeRef(getCurrentUser().getUsername(), getCurrentUser().getPassword(), rmSiteName);
+        String rmSiteNodeRef = getSiteNodeRef(rmSiteName);
         Assert.assertNotNull(rmSiteNodeRef,"RM Site created Successfully. Site Node Ref captured.");
         
         /*
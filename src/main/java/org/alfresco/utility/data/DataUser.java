@@ -2,10 +2,19 @@ package org.alfresco.utility.data;
 
 import static org.alfresco.utility.report.log.Step.STEP;
 
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.stream.Collectors;
 
+import org.alfresco.dataprep.AlfrescoHttpClient;
+import org.alfresco.dataprep.AlfrescoHttpClientFactory;
 import org.alfresco.dataprep.UserService;
 import org.alfresco.utility.TasProperties;
 import org.alfresco.utility.constants.UserRole;
@@ -13,7 +22,17 @@ import org.alfresco.utility.exception.DataPreparationException;
 import org.alfresco.utility.model.ContentModel;
 import org.alfresco.utility.model.SiteModel;
 import org.alfresco.utility.model.UserModel;
+import org.alfresco.utility.report.OperationMetrics;
 import org.apache.commons.httpclient.HttpState;
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpStatus;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.entity.ContentType;
+import org.apache.http.entity.StringEntity;
+import org.apache.http.util.EntityUtils;
+import org.json.simple.JSONArray;
+import org.json.simple.JSONObject;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Scope;
 import org.springframework.stereotype.Service;
@@ -29,8 +48,25 @@ public class DataUser extends TestData<DataUser>
     @Autowired
     private UserService userService;
 
+    @Autowired
+    private CmisSessionCache cmisSessionCache;
+
+    @Autowired
+    private AlfrescoHttpClientFactory alfrescoHttpClientFactory;
+
     static String USER_NOT_CREATED = "User %s  not created";
 
+    /**
+     * Number of users requested per page when listing the users of the repository
+     */
+    private static final int PEOPLE_PAGE_SIZE = 1000;
+
+    /**
+     * Above this number of users to create, the existing users are found by listing all users of the repository instead of
+     * checking each user
+     */
+    private static final int PEOPLE_LISTING_THRESHOLD = 500;
+
     /**
      * Creates a new user with a specific user name on test server defined in {@link TasProperties}
      * file.
@@ -74,8 +110,8 @@ public class DataUser extends TestData<DataUser>
         LOG.info("Create user {}", newUser.toString());
         newUser.setFirstName(String.format("FN-%s", userName));
         newUser.setLastName(String.format("LN-%s", userName));
-        Boolean created = userService.create(getAdminUser().getUsername(), getAdminUser().getPassword(), userName, password,
-                String.format(EMAIL, userName), newUser.getFirstName(), newUser.getLastName());
+        Boolean created = OperationMetrics.timeCheck("create-person", () -> userService.create(getAdminUser().getUsername(), getAdminUser().getPassword(),
+                userName, password, String.format(EMAIL, userName), newUser.getFirstName(), newUser.getLastName()));
         if (!created)
             throw new DataPreparationException(String.format(USER_NOT_CREATED, newUser.toString()));
 
@@ -100,6 +136,120 @@ public class DataUser extends TestData<DataUser>
         return newUser;
     }
 
+    /**
+     * Creates <count> random users named <prefix>-..., with default password, in parallel
+     * 
+     * @param count
+     * @param prefix
+     * @return {@link BulkResult} with the created users and the ones that failed
+     */
+    public BulkResult<UserModel> createUsers(int count, String prefix)
+    {
+        List<UserModel> users = new ArrayList<UserModel>();
+        for (int i = 0; i < count; i++)
+        {
+            users.add(new UserModel(RandomData.getRandomName(prefix), PASSWORD));
+        }
+        return createUsers(users);
+    }
+
+    /**
+     * Creates the users that do not exist yet, using {@link TasProperties#getDataPrepParallelism()} workers.
+     * Existing users are checked one by one by the workers; above {@value #PEOPLE_LISTING_THRESHOLD} users they are found with one
+     * paged listing of the repository users (v1 REST API) instead.
+     * The given models are updated like {@link #createUser(String, String)} does.
+     * <code>
+     * BulkResult<UserModel> result = dataUser.createUsers(users);
+     * result.getSkipped(); // users that were already in repository
+     * </code>
+     * 
+     * @param users
+     * @return {@link BulkResult} with the created users, the existing (skipped) users and the ones that failed
+     */
+    public BulkResult<UserModel> createUsers(List<UserModel> users)
+    {
+        STEP(String.format("DATAPREP: Create %d users", users.size()));
+        boolean useV1API = serverCapabilities.supportsRestApiV1();
+        Set<String> existingUsers = useV1API && users.size() > PEOPLE_LISTING_THRESHOLD ? getRepoUsernames() : null;
+        String domain = getCurrentUser().getDomain();
+        BulkResult<UserModel> result = new BulkExecutor(tasProperties.getDataPrepParallelism()).execute("create-user", users, user -> {
+            boolean exists;
+            if (existingUsers != null)
+            {
+                exists = existingUsers.contains(user.getUsername().toLowerCase());
+            }
+            else
+            {
+                exists = useV1API ? isUserInRepoV1Api(alfrescoHttpClientFactory.getObject(), user.getUsername()) : isUserInRepo(user.getUsername());
+            }
+            if (exists)
+            {
+                return null;
+            }
+            user.setFirstName(String.format("FN-%s", user.getUsername()));
+            user.setLastName(String.format("LN-%s", user.getUsername()));
+            Boolean created = OperationMetrics.timeCheck("create-person", () -> userService.create(getAdminUser().getUsername(),
+                    getAdminUser().getPassword(), user.getUsername(), user.getPassword(), String.format(EMAIL, user.getUsername()), user.getFirstName(),
+                    user.getLastName()));
+            if (!created)
+                throw new DataPreparationException(String.format(USER_NOT_CREATED, user.toString()));
+
+            user.setDomain(domain);
+            return user;
+        });
+        STEP(String.format("DATAPREP: %s", result.getSummary()));
+        return result;
+    }
+
+    /**
+     * @return true if <username> exists in repository, checked with one v1 REST API call
+     */
+    private boolean isUserInRepoV1Api(AlfrescoHttpClient client, String username)
+    {
+        String reqUrl = client.getApiVersionUrl() + "people/" + URLEncoder.encode(username, StandardCharsets.UTF_8).replace("+", "%20") + "?fields=id";
+        HttpResponse response = execute("get-person", client, getAdminUser().getUsername(), getAdminUser().getPassword(), new HttpGet(reqUrl),
+                HttpStatus.SC_OK, HttpStatus.SC_NOT_FOUND);
+        int status = response.getStatusLine().getStatusCode();
+        if (HttpStatus.SC_OK != status && HttpStatus.SC_NOT_FOUND != status)
+        {
+            throw new DataPreparationException(String.format("Could not check user %s. Request response: %s", username,
+                    client.getParameterFromJSON(response, "briefSummary", "error")));
+        }
+        EntityUtils.consumeQuietly(response.getEntity());
+        return HttpStatus.SC_OK == status;
+    }
+
+    /**
+     * @return the lower case user names of all users in repository, listed page by page with the v1 REST API
+     */
+    private Set<String> getRepoUsernames()
+    {
+        AlfrescoHttpClient client = alfrescoHttpClientFactory.getObject();
+        Set<String> usernames = new HashSet<String>();
+        int skipCount = 0;
+        boolean hasMoreItems = true;
+        while (hasMoreItems)
+        {
+            String reqUrl = String.format("%speople?skipCount=%d&maxItems=%d&fields=id", client.getApiVersionUrl(), skipCount, PEOPLE_PAGE_SIZE);
+            HttpResponse response = execute("list-people", client, getAdminUser().getUsername(), getAdminUser().getPassword(), new HttpGet(reqUrl),
+                    HttpStatus.SC_OK);
+            if (HttpStatus.SC_OK != response.getStatusLine().getStatusCode())
+            {
+                throw new DataPreparationException("Could not list users. Request response: " + client.getParameterFromJSON(response, "briefSummary", "error"));
+            }
+            JSONObject list = (JSONObject) client.readStream(response.getEntity()).get("list");
+            JSONArray entries = (JSONArray) list.get("entries");
+            for (Object entry : entries)
+            {
+                usernames.add(((JSONObject) ((JSONObject) entry).get("entry")).get("id").toString().toLowerCase());
+            }
+            skipCount += entries.size();
+            hasMoreItems = !entries.isEmpty() && Boolean.TRUE.equals(((JSONObject) list.get("pagination")).get("hasMoreItems"));
+        }
+        LOG.info("Found {} users in repository", usernames.size());
+        return usernames;
+    }
+
     /**
      * Creates a new random user with a specific user name on test server defined in {@link TasProperties}
      * file.
@@ -152,8 +302,8 @@ public class DataUser extends TestData<DataUser>
     public void addUserToSite(UserModel userModel, SiteModel siteModel, UserRole role)
     {        
         STEP(String.format("DATAPREP: Adding [%s] user with role [%s] role to [%s] site", userModel.getUsername(), role.toString(), siteModel.getId()));
-        userService.createSiteMember(getCurrentUser().getUsername(), getCurrentUser().getPassword(), userModel.getUsername(), siteModel.getId(),
-                role.toString());
+        OperationMetrics.time("add-site-member", () -> userService.createSiteMember(getCurrentUser().getUsername(), getCurrentUser().getPassword(),
+                userModel.getUsername(), siteModel.getId(), role.toString()));
 
         userModel.setUserRole(role);
     }
@@ -164,15 +314,130 @@ public class DataUser extends TestData<DataUser>
         userService.removeSiteMembership(getCurrentUser().getUsername(), getCurrentUser().getPassword(), userModel.getUsername(), siteModel.getId());
     }
 
+    /**
+     * Adds all <members> to the site, sending {@link TasProperties#getSiteMembersChunkSize()} members per request
+     * and running the requests in parallel. The role is set on each {@link UserModel} added.
+     * <code>
+     * Map<UserModel, UserRole> members = new HashMap<UserModel, UserRole>();
+     * members.put(consumer, UserRole.SiteConsumer);
+     * dataUser.usingUser(manager).addUsersToSite(siteModel, members);
+     * </code>
+     * 
+     * @param siteModel
+     * @param members users to add with their role
+     * @return {@link BulkResult} with the users added and the ones that failed
+     */
+    public BulkResult<UserModel> addUsersToSite(SiteModel siteModel, Map<UserModel, UserRole> members)
+    {
+        int chunkSize = Math.max(1, tasProperties.getSiteMembersChunkSize());
+        STEP(String.format("DATAPREP: Adding %d users to [%s] site, %d per request", members.size(), siteModel.getId(), chunkSize));
+        List<List<UserModel>> chunks = new ArrayList<List<UserModel>>();
+        for (UserModel member : members.keySet())
+        {
+            if (chunks.isEmpty() || chunks.get(chunks.size() - 1).size() == chunkSize)
+            {
+                chunks.add(new ArrayList<UserModel>());
+            }
+            chunks.get(chunks.size() - 1).add(member);
+        }
+
+        BulkResult<UserModel> result = new BulkResult<UserModel>("add-site-members");
+        boolean useV1API = serverCapabilities.supportsRestApiV1();
+        BulkResult<List<UserModel>> chunksResult = new BulkExecutor(tasProperties.getDataPrepParallelism()).execute("add-site-members", chunks,
+                chunk -> {
+                    if (useV1API)
+                    {
+                        addSiteMembersV1Api(alfrescoHttpClientFactory.getObject(), siteModel, chunk, members);
+                    }
+                    else
+                    {
+                        for (UserModel member : chunk)
+                        {
+                            OperationMetrics.time("add-site-member", () -> userService.createSiteMember(getCurrentUser().getUsername(),
+                                    getCurrentUser().getPassword(), member.getUsername(), siteModel.getId(), members.get(member).toString()));
+                        }
+                    }
+                    return chunk;
+                });
+
+        for (List<UserModel> chunk : chunksResult.getItems())
+        {
+            for (UserModel member : chunk)
+            {
+                member.setUserRole(members.get(member));
+                result.addItem(member);
+            }
+        }
+        for (Map.Entry<List<UserModel>, Throwable> failure : chunksResult.getFailures().entrySet())
+        {
+            for (UserModel member : failure.getKey())
+            {
+                result.addFailure(member, failure.getValue());
+            }
+        }
+        result.finish();
+        STEP(String.format("DATAPREP: %s", result.getSummary()));
+        return result;
+    }
+
+    /**
+     * Adds the users of <chunk> to the site with one v1 REST API call. If some of them are already members, the others are added
+     * with one call each.
+     */
+    private void addSiteMembersV1Api(AlfrescoHttpClient client, SiteModel siteModel, List<UserModel> chunk, Map<UserModel, UserRole> roles)
+    {
+        String reqUrl = client.getApiVersionUrl() + "sites/" + siteModel.getId() + "/members";
+        JSONArray body = new JSONArray();
+        for (UserModel member : chunk)
+        {
+            JSONObject entry = new JSONObject();
+            entry.put("id", member.getUsername());
+            entry.put("role", roles.get(member).toString());
+            body.add(entry);
+        }
+        HttpPost post = new HttpPost(reqUrl);
+        post.setEntity(new StringEntity(body.toJSONString(), ContentType.APPLICATION_JSON));
+
+        LOG.info("POST: '{}' with {} members", reqUrl, chunk.size());
+        HttpResponse response = execute("add-site-members", client, getCurrentUser().getUsername(), getCurrentUser().getPassword(), post,
+                HttpStatus.SC_CREATED, HttpStatus.SC_CONFLICT);
+        if (HttpStatus.SC_CONFLICT == response.getStatusLine().getStatusCode())
+        {
+            EntityUtils.consumeQuietly(response.getEntity());
+            if (chunk.size() == 1)
+            {
+                LOG.info("User {} is already a member of site {}", chunk.get(0).getUsername(), siteModel.getId());
+                return;
+            }
+            // the whole request fails if one user is already a member: add the users one by one, existing members are skipped
+            for (UserModel member : chunk)
+            {
+                addSiteMembersV1Api(client, siteModel, Collections.singletonList(member), roles);
+            }
+            return;
+        }
+        if (HttpStatus.SC_CREATED != response.getStatusLine().getStatusCode())
+        {
+            throw new DataPreparationException(String.format("Could not add %d members to site %s. Request response: %s", chunk.size(), siteModel.getId(),
+                    client.getParameterFromJSON(response, "briefSummary", "error")));
+        }
+    }
+
     public ListUserWithRoles addUsersWithRolesToSite(SiteModel siteModel, UserRole... roles) throws DataPreparationException
     {
         ListUserWithRoles usersWithRoles = new ListUserWithRoles();
+        Map<UserModel, UserRole> members = new LinkedHashMap<UserModel, UserRole>();
         for (UserRole role : roles)
         {
-            UserModel userModel = createRandomTestUser();            
-            addUserToSite(userModel, siteModel, role);
+            UserModel userModel = createRandomTestUser();
+            members.put(userModel, role);
             usersWithRoles.add(userModel);
         }
+        BulkResult<UserModel> result = addUsersToSite(siteModel, members);
+        if (result.hasFailures())
+        {
+            throw new DataPreparationException(String.format("Could not add users to site %s: %s", siteModel.getId(), result.getSummary()));
+        }
 
         return usersWithRoles;
     }
@@ -252,11 +517,13 @@ public class DataUser extends TestData<DataUser>
     {
         STEP(String.format("DATAPREP: Deleting %s user",userToDelete.getUsername()));
         LOG.info("Delete user {}", userToDelete.getUsername());
-        boolean deleted = userService.delete(getAdminUser().getUsername(), getAdminUser().getPassword(), userToDelete.getUsername());
+        boolean deleted = OperationMetrics.timeCheck("delete-person",
+                () -> userService.delete(getAdminUser().getUsername(), getAdminUser().getPassword(), userToDelete.getUsername()));
         if (!deleted)
         {
             throw new DataPreparationException(String.format("Failed to delete user '%s'.", userToDelete.getUsername()));
         }
+        cmisSessionCache.invalidate(userToDelete.getUsername());
     }
 
     /**
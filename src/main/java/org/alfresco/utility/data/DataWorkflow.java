@@ -5,15 +5,24 @@ import static org.alfresco.utility.report.log.Step.STEP;
 import java.io.File;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.alfresco.dataprep.CMISUtil.Priority;
 import org.alfresco.dataprep.WorkflowService.TaskStatus;
 import org.alfresco.dataprep.WorkflowService;
+import org.alfresco.utility.Wait;
+import org.alfresco.utility.data.WorkflowLoad.Definition;
+import org.alfresco.utility.exception.TestConfigurationException;
 import org.alfresco.utility.model.GroupModel;
 import org.alfresco.utility.model.ProcessModel;
 import org.alfresco.utility.model.TaskModel;
 import org.alfresco.utility.model.UserModel;
+import org.alfresco.utility.report.LatencyHistogram;
+import org.apache.commons.lang3.StringUtils;
 import org.joda.time.DateTime;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Scope;
@@ -267,6 +276,104 @@ public class DataWorkflow extends TestData<DataWorkflow>
         return taskModel;
     }
     
+    /**
+     * Starts {@link WorkflowLoad#getProcesses()} processes at the target rate, with at most {@link WorkflowLoad#getConcurrency()} in progress,
+     * and optionally claims and completes the task of each process as its assignee.
+     * The current site and resource are attached to the processes, as for {@link #createNewTask(TaskModel)}; ad hoc processes can be started
+     * without them, single review processes need both.
+     * Example of usage:
+     * <code>
+     * WorkflowLoad.Result result = dataWorkflow.usingSite(siteModel).usingResource(document).runLoad(new WorkflowLoad(500, users).atRate(10).claiming().completing());
+     * </code>
+     * 
+     * @param load {@link WorkflowLoad}
+     * @return the started tasks with the latency and throughput of each step
+     */
+    public WorkflowLoad.Result runLoad(WorkflowLoad load)
+    {
+        STEP(String.format("DATAPREP: Starting %d %s processes with %d users, %s per second and %d in parallel", load.getProcesses(), load.getDefinition(),
+                load.getUsers().size(), load.getRate() > 0 ? load.getRate() : "unlimited", load.getConcurrency()));
+        List<TaskModel> tasks = new ArrayList<TaskModel>();
+        for (int i = 0; i < load.getProcesses(); i++)
+        {
+            tasks.add(new TaskModel(load.getAssignee(i).getUsername()));
+        }
+        String site = StringUtils.isEmpty(getCurrentSite()) ? null : getCurrentSite();
+        // usingSite(..) alone points the last resource to the documentLibrary, which is not a document
+        boolean hasDocument = StringUtils.isNotEmpty(getLastResource()) && (site == null || !getLastResource().equals(String.format(getSitesPath(), site)));
+        List<String> documents = hasDocument ? Arrays.asList(new File(getLastResource()).getName()) : Collections.<String> emptyList();
+        if (hasDocument && site == null)
+        {
+            throw new TestConfigurationException(String.format("Document %s is attached from the current site: call usingSite(..) before runLoad",
+                    getLastResource()));
+        }
+        if (load.getDefinition() == Definition.SINGLE_REVIEW && !hasDocument)
+        {
+            throw new TestConfigurationException("Single review processes need a document to review: call usingSite(..).usingResource(..) before runLoad");
+        }
+        Map<String, LatencyHistogram> steps = WorkflowLoad.newSteps(load);
+        long interval = load.getRate() > 0 ? (long) (TimeUnit.SECONDS.toNanos(1) / load.getRate()) : 0;
+        AtomicLong started = new AtomicLong();
+        long start = System.nanoTime();
+
+        BulkResult<TaskModel> result = new BulkExecutor(load.getConcurrency()).execute("workflow-load", tasks, task -> {
+            long sequence = started.getAndIncrement();
+            long delay = start + sequence * interval - System.nanoTime();
+            if (delay > 0)
+            {
+                Wait.sleep(TimeUnit.NANOSECONDS.toMillis(delay));
+            }
+            UserModel initiator = load.getInitiator((int) sequence);
+            UserModel assignee = load.getAssignee((int) sequence);
+            task.setAssignee(assignee.getUsername());
+
+            long stepStart = System.nanoTime();
+            String processId;
+            if (load.getDefinition() == Definition.SINGLE_REVIEW)
+            {
+                processId = workflowService.startSingleReview(initiator.getUsername(), initiator.getPassword(), task.getMessage(), task.getDueDate(),
+                        task.getAssignee(), task.getPriority(), site, documents, task.getSendEmail());
+            }
+            else if (load.getProcessDefinitionId() != null)
+            {
+                processId = workflowService.startProcessWithDefinitionId(load.getProcessDefinitionId(), initiator.getUsername(), initiator.getPassword(),
+                        task.getMessage(), task.getDueDate(), task.getAssignee(), task.getPriority(), site, documents, task.getSendEmail());
+            }
+            else
+            {
+                processId = workflowService.startNewTask(initiator.getUsername(), initiator.getPassword(), task.getMessage(), task.getDueDate(),
+                        task.getAssignee(), task.getPriority(), site, documents, task.getSendEmail());
+            }
+            steps.get(WorkflowLoad.STEP_START).recordNanos(System.nanoTime() - stepStart);
+            task.setProcessId(processId);
+
+            if (load.isClaim())
+            {
+                stepStart = System.nanoTime();
+                workflowService.claimTask(assignee.getUsername(), assignee.getPassword(), processId);
+                steps.get(WorkflowLoad.STEP_CLAIM).recordNanos(System.nanoTime() - stepStart);
+            }
+            if (load.isComplete())
+            {
+                stepStart = System.nanoTime();
+                if (load.getDefinition() == Definition.SINGLE_REVIEW)
+                {
+                    workflowService.approveTask(assignee.getUsername(), assignee.getPassword(), processId, true, TaskStatus.COMPLETED, "");
+                }
+                else
+                {
+                    workflowService.taskDone(assignee.getUsername(), assignee.getPassword(), processId, TaskStatus.COMPLETED, "complete task");
+                }
+                steps.get(WorkflowLoad.STEP_COMPLETE).recordNanos(System.nanoTime() - stepStart);
+            }
+            return task;
+        });
+
+        WorkflowLoad.Result loadResult = new WorkflowLoad.Result(result, steps);
+        STEP(String.format("DATAPREP: Workflow load finished: %s", loadResult));
+        return loadResult;
+    }
+
     /**
      * Delete process
      * @param processModel {@link ProcessModel}
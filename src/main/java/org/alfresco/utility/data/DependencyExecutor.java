@@ -0,0 +1,165 @@
+package org.alfresco.utility.data;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.alfresco.utility.LogFactory;
+import org.alfresco.utility.exception.DataPreparationException;
+import org.slf4j.Logger;
+
+/**
+ * Runs a tree of data preparation tasks using a bounded pool of worker threads: a node runs as soon as its parent succeeded,
+ * so siblings run in parallel while a child is never created before its container.
+ * Failures are collected per node; the nodes below a failed node are not run.
+ * <code>
+ * BulkResult<Node> result = new DependencyExecutor(8).execute("create-structure", roots);
+ * </code>
+ */
+public class DependencyExecutor
+{
+    static Logger LOG = LogFactory.getLogger();
+
+    private final int parallelism;
+
+    /**
+     * One task of the tree
+     */
+    public interface Node
+    {
+        /**
+         * @return the nodes that depend on this one, run once this one succeeded
+         */
+        public List<? extends Node> execute() throws Exception;
+    }
+
+    public DependencyExecutor(int parallelism)
+    {
+        if (parallelism < 1)
+        {
+            throw new IllegalArgumentException("Parallelism should be at least 1, found: " + parallelism);
+        }
+        this.parallelism = parallelism;
+    }
+
+    public int getParallelism()
+    {
+        return parallelism;
+    }
+
+    /**
+     * Run <roots> and all the nodes they return, and wait for all of them to finish
+     *
+     * @param operation name of the operation, used in logs and in {@link BulkResult#getSummary()}
+     * @param roots nodes that do not depend on any other node
+     * @return {@link BulkResult} with the nodes that succeeded and the ones that failed
+     */
+    public BulkResult<Node> execute(String operation, List<? extends Node> roots)
+    {
+        BulkResult<Node> result = new BulkResult<Node>(operation);
+        if (roots.isEmpty())
+        {
+            result.finish();
+            return result;
+        }
+
+        ExecutorService pool = Executors.newFixedThreadPool(parallelism, threadFactory(operation));
+        Run run = new Run(operation, pool, result);
+        try
+        {
+            for (Node root : roots)
+            {
+                run.submit(root);
+            }
+            run.release();
+            run.done.get();
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new DataPreparationException(e);
+        }
+        catch (ExecutionException e)
+        {
+            throw new DataPreparationException(String.format("%s stopped unexpectedly: %s", operation, e.getCause()));
+        }
+        finally
+        {
+            pool.shutdownNow();
+            result.finish();
+        }
+        LOG.info(result.getSummary());
+        return result;
+    }
+
+    private static class Run
+    {
+        private final String operation;
+        private final ExecutorService pool;
+        private final BulkResult<Node> result;
+        // starts at 1 for the caller, so it cannot reach 0 before all roots are submitted
+        private final AtomicLong pending = new AtomicLong(1);
+        private final CompletableFuture<Void> done = new CompletableFuture<Void>();
+
+        Run(String operation, ExecutorService pool, BulkResult<Node> result)
+        {
+            this.operation = operation;
+            this.pool = pool;
+            this.result = result;
+        }
+
+        /**
+         * The children of a node are submitted before the node is counted as finished, so <pending> only reaches 0 at the end
+         */
+        void submit(Node node)
+        {
+            pending.incrementAndGet();
+            pool.execute(() -> {
+                try
+                {
+                    List<? extends Node> children = node.execute();
+                    result.addItem(node);
+                    if (children != null)
+                    {
+                        for (Node child : children)
+                        {
+                            submit(child);
+                        }
+                    }
+                }
+                catch (Exception | AssertionError e)
+                {
+                    LOG.error("{} failed for {}: {}", operation, node, e.getMessage());
+                    result.addFailure(node, e);
+                }
+                finally
+                {
+                    release();
+                }
+            });
+        }
+
+        void release()
+        {
+            if (pending.decrementAndGet() == 0)
+            {
+                done.complete(null);
+            }
+        }
+    }
+
+    private static ThreadFactory threadFactory(String operation)
+    {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, String.format("dataprep-%s-%d", operation, counter.incrementAndGet()));
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
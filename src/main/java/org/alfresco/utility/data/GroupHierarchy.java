@@ -0,0 +1,135 @@
+package org.alfresco.utility.data;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.alfresco.utility.model.GroupModel;
+import org.alfresco.utility.model.UserModel;
+
+/**
+ * Tree of groups created by {@link DataGroup#createGroupHierarchy(int, int, int)}:
+ * one root group, the sub groups of each group and the users added to the leaf groups.
+ */
+public class GroupHierarchy
+{
+    private final List<List<GroupModel>> levels = new ArrayList<List<GroupModel>>();
+    private final Map<GroupModel, GroupModel> parents = new IdentityHashMap<GroupModel, GroupModel>();
+    private final Map<GroupModel, List<GroupModel>> subGroups = new IdentityHashMap<GroupModel, List<GroupModel>>();
+    private final Map<GroupModel, List<UserModel>> users = new IdentityHashMap<GroupModel, List<UserModel>>();
+    private final Map<UserModel, GroupModel> userGroups = new IdentityHashMap<UserModel, GroupModel>();
+
+    GroupHierarchy(GroupModel root)
+    {
+        levels.add(Collections.singletonList(root));
+    }
+
+    void addLevel(List<GroupModel> level)
+    {
+        levels.add(level);
+    }
+
+    void addSubGroup(GroupModel parent, GroupModel subGroup)
+    {
+        parents.put(subGroup, parent);
+        subGroups.computeIfAbsent(parent, group -> new ArrayList<GroupModel>()).add(subGroup);
+    }
+
+    void addUser(GroupModel group, UserModel user)
+    {
+        userGroups.put(user, group);
+        users.computeIfAbsent(group, g -> new ArrayList<UserModel>()).add(user);
+    }
+
+    public GroupModel getRoot()
+    {
+        return levels.get(0).get(0);
+    }
+
+    /**
+     * @return number of levels, the root being level 0
+     */
+    public int getDepth()
+    {
+        return levels.size();
+    }
+
+    /**
+     * @return the groups of <level>, the root being level 0
+     */
+    public List<GroupModel> getLevel(int level)
+    {
+        return Collections.unmodifiableList(levels.get(level));
+    }
+
+    /**
+     * @return the groups of the last level, which have the users
+     */
+    public List<GroupModel> getLeaves()
+    {
+        return getLevel(levels.size() - 1);
+    }
+
+    /**
+     * @return the parent of <group>, null for the root
+     */
+    public GroupModel getParent(GroupModel group)
+    {
+        return parents.get(group);
+    }
+
+    public List<GroupModel> getSubGroups(GroupModel group)
+    {
+        return Collections.unmodifiableList(subGroups.getOrDefault(group, Collections.<GroupModel> emptyList()));
+    }
+
+    /**
+     * @return the users that are direct members of <group>
+     */
+    public List<UserModel> getUsers(GroupModel group)
+    {
+        return Collections.unmodifiableList(users.getOrDefault(group, Collections.<UserModel> emptyList()));
+    }
+
+    /**
+     * @return the group <user> was added to
+     */
+    public GroupModel getGroup(UserModel user)
+    {
+        return userGroups.get(user);
+    }
+
+    /**
+     * @return all groups, level by level starting with the root
+     */
+    public List<GroupModel> getAllGroups()
+    {
+        List<GroupModel> groups = new ArrayList<GroupModel>();
+        for (List<GroupModel> level : levels)
+        {
+            groups.addAll(level);
+        }
+        return groups;
+    }
+
+    /**
+     * @return all users, leaf group by leaf group
+     */
+    public List<UserModel> getAllUsers()
+    {
+        List<UserModel> allUsers = new ArrayList<UserModel>();
+        for (GroupModel leaf : getLeaves())
+        {
+            allUsers.addAll(getUsers(leaf));
+        }
+        return allUsers;
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.format("%s: %d levels, %d groups, %d users", getRoot().getDisplayName(), levels.size(), parents.size() + 1, userGroups.size());
+    }
+}
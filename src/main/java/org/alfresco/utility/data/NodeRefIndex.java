@@ -0,0 +1,166 @@
+package org.alfresco.utility.data;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+import org.alfresco.dataprep.ContentService;
+import org.alfresco.utility.TasProperties;
+import org.alfresco.utility.Utility;
+import org.alfresco.utility.model.ContentModel;
+import org.alfresco.utility.report.OperationMetrics;
+import org.apache.chemistry.opencmis.client.api.Session;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+/**
+ * Index of the nodeRef of the content created or found by {@link DataContent}, by CMIS path.
+ * Every create done through {@link DataContent} adds the new content, every delete, rename or delete tree removes the path
+ * and everything below it. A path that is not in the index is resolved on the server and added if it exists.
+ * The index is shared by all users and does not see content changed outside of {@link DataContent} (for example with FTP or WebDAV),
+ * so it is only used to resolve paths during data preparation: assertions ask the server unless they explicitly opt in, see
+ * {@link DataContent#checkContent(String, org.alfresco.utility.model.UserModel, boolean)}.
+ */
+@Service
+public class NodeRefIndex
+{
+    /**
+     * Maximum number of paths kept per index, the least recently used ones are dropped first
+     */
+    private static final int MAX_SIZE = 50000;
+
+    @Autowired
+    private ContentService contentService;
+
+    @Autowired
+    private TasProperties tasProperties;
+
+    /**
+     * Sorted by path, so the paths below a folder are next to each other and can be removed without scanning the whole index
+     */
+    private final TreeMap<String, String> nodeRefs = new TreeMap<String, String>();
+
+    /**
+     * Same paths in access order, to drop the least recently used ones; both maps are guarded by the lock of <nodeRefs>
+     */
+    private final Map<String, Boolean> recent = new LinkedHashMap<String, Boolean>(1024, 0.75f, true)
+    {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest)
+        {
+            if (size() > MAX_SIZE)
+            {
+                nodeRefs.remove(eldest.getKey());
+                return true;
+            }
+            return false;
+        }
+    };
+
+    /**
+     * @return the nodeRef of <path> from the index, or from the server if it is not indexed; empty if the path does not exist
+     */
+    public String getNodeRef(Session session, String path)
+    {
+        String key = key(path);
+        synchronized (nodeRefs)
+        {
+            String nodeRef = nodeRefs.get(key);
+            if (nodeRef != null)
+            {
+                recent.get(key);
+                return nodeRef;
+            }
+        }
+        return getNodeRefFromServer(session, path);
+    }
+
+    /**
+     * @return the nodeRef of <path> as found on the server, updating the index; empty if the path does not exist
+     */
+    public String getNodeRefFromServer(Session session, String path)
+    {
+        String nodeRef = OperationMetrics.time("cmis-path-lookup", () -> contentService.getNodeRefByPath(session, Utility.convertBackslashToSlash(path)));
+        if (StringUtils.isEmpty(nodeRef))
+        {
+            remove(path);
+        }
+        else
+        {
+            put(path, nodeRef);
+        }
+        return nodeRef;
+    }
+
+    /**
+     * Index a created content by its CMIS location
+     */
+    public void put(ContentModel content)
+    {
+        if (!StringUtils.isEmpty(content.getCmisLocation()) && !StringUtils.isEmpty(content.getNodeRef()))
+        {
+            put(content.getCmisLocation(), content.getNodeRefWithoutVersion());
+        }
+    }
+
+    public void put(String path, String nodeRef)
+    {
+        synchronized (nodeRefs)
+        {
+            String key = key(path);
+            nodeRefs.put(key, nodeRef);
+            recent.put(key, Boolean.TRUE);
+        }
+    }
+
+    /**
+     * Remove <path> and all the paths below it
+     */
+    public void remove(String path)
+    {
+        String key = key(path);
+        String children = key.endsWith("/") ? key : key + "/";
+        synchronized (nodeRefs)
+        {
+            nodeRefs.remove(key);
+            recent.remove(key);
+            SortedMap<String, String> below = nodeRefs.subMap(children, children + "\uffff");
+            for (String child : below.keySet())
+            {
+                recent.remove(child);
+            }
+            below.clear();
+        }
+    }
+
+    public void clear()
+    {
+        synchronized (nodeRefs)
+        {
+            nodeRefs.clear();
+            recent.clear();
+        }
+    }
+
+    public int size()
+    {
+        synchronized (nodeRefs)
+        {
+            return nodeRefs.size();
+        }
+    }
+
+    private String key(String path)
+    {
+        String normalized = Utility.convertBackslashToSlash(path);
+        if (normalized.length() > 1 && normalized.endsWith("/"))
+        {
+            normalized = normalized.substring(0, normalized.length() - 1);
+        }
+        return tasProperties.getFullServerUrl() + normalized;
+    }
+}
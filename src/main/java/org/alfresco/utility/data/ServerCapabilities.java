@@ -0,0 +1,140 @@
+package org.alfresco.utility.data;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.alfresco.dataprep.AlfrescoHttpClient;
+import org.alfresco.dataprep.AlfrescoHttpClientFactory;
+import org.alfresco.utility.LogFactory;
+import org.alfresco.utility.TasProperties;
+import org.apache.http.HttpResponse;
+import org.apache.http.client.methods.HttpGet;
+import org.json.JSONObject;
+import org.slf4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+/**
+ * What the test server supports, probed once per server and shared by all Data* instances:
+ * the Alfresco version, the API families that can be used and the documentLibrary node id of the sites used in tests.
+ * Call {@link #refresh()} if the server is upgraded or restarted with another version during the run.
+ */
+@Service
+public class ServerCapabilities
+{
+    static Logger LOG = LogFactory.getLogger();
+
+    /**
+     * Maximum number of sites whose documentLibrary node id is kept per server
+     */
+    private static final int SITE_CACHE_SIZE = 1000;
+
+    @Autowired
+    private AlfrescoHttpClientFactory alfrescoHttpClientFactory;
+
+    @Autowired
+    private TasProperties tasProperties;
+
+    private final Map<String, Server> servers = new ConcurrentHashMap<String, Server>();
+
+    private static class Server
+    {
+        private volatile Double alfrescoVersion;
+        private final Map<String, String> documentLibraries = Collections.synchronizedMap(new LinkedHashMap<String, String>(16, 0.75f, true)
+        {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, String> eldest)
+            {
+                return size() > SITE_CACHE_SIZE;
+            }
+        });
+    }
+
+    /**
+     * @return the Alfresco version of the test server, as returned by {@link AlfrescoHttpClient#getAlfVersion()}
+     */
+    public double getAlfrescoVersion()
+    {
+        Server server = currentServer();
+        if (server.alfrescoVersion == null)
+        {
+            synchronized (server)
+            {
+                if (server.alfrescoVersion == null)
+                {
+                    server.alfrescoVersion = alfrescoHttpClientFactory.getObject().getAlfVersion();
+                    LOG.info("Alfresco version of {} is {}", tasProperties.getFullServerUrl(), server.alfrescoVersion);
+                }
+            }
+        }
+        return server.alfrescoVersion;
+    }
+
+    /**
+     * @return true if the v1 REST API (/api/-default-/public/alfresco/versions/1) can be used, else CMIS should be used
+     */
+    public boolean supportsRestApiV1()
+    {
+        return getAlfrescoVersion() >= 5.2;
+    }
+
+    /**
+     * @return the node id of the documentLibrary of <siteId>, requested only the first time
+     */
+    public String getSiteDocumentLibraryId(String siteId)
+    {
+        Map<String, String> documentLibraries = currentServer().documentLibraries;
+        String nodeId = documentLibraries.get(siteId);
+        if (nodeId == null)
+        {
+            nodeId = requestSiteDocumentLibraryId(siteId);
+            documentLibraries.put(siteId, nodeId);
+        }
+        return nodeId;
+    }
+
+    /**
+     * Forget what is known about <siteId>, for example when it is deleted
+     */
+    public void forgetSite(String siteId)
+    {
+        currentServer().documentLibraries.remove(siteId);
+    }
+
+    /**
+     * Forget everything, so the test server is probed again when needed
+     */
+    public void refresh()
+    {
+        servers.clear();
+    }
+
+    private Server currentServer()
+    {
+        return servers.computeIfAbsent(tasProperties.getFullServerUrl(), url -> new Server());
+    }
+
+    private String requestSiteDocumentLibraryId(String siteId)
+    {
+        AlfrescoHttpClient client = alfrescoHttpClientFactory.getObject();
+        String reqUrl = client.getApiVersionUrl() + "sites/" + siteId + "/containers/documentLibrary";
+
+        HttpGet get = new HttpGet(reqUrl);
+        HttpResponse response = client.execute(tasProperties.getAdminUser(), tasProperties.getAdminPassword(), get);
+
+        if (200 == response.getStatusLine().getStatusCode())
+        {
+            JSONObject jsonObject = new JSONObject(client.readStream(response.getEntity()));
+            return jsonObject.getJSONObject("entry").getString("id");
+        }
+        else
+        {
+            throw new RuntimeException(
+                    "Could not set Doclib nodeId. Request response: " + client.getParameterFromJSON(response, "briefSummary", new String[] { "error" }));
+        }
+    }
+}
@@ -0,0 +1,237 @@
+package org.alfresco.utility.data;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+import org.alfresco.utility.LogFactory;
+import org.alfresco.utility.Utility;
+import org.alfresco.utility.Wait;
+import org.alfresco.utility.report.OperationMetrics;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.util.EntityUtils;
+import org.slf4j.Logger;
+
+/**
+ * Reads the lines appended to the server log since the session was opened, see {@link TestData#openServerLogTail()}.
+ * The log API of the alfresco-log-extension only returns the last lines of the log, so the cursor is kept here:
+ * each poll asks for a small tail, lines it up with the tail of the previous poll and returns the lines that follow.
+ * The tail is only made bigger when more lines than it holds were appended since the previous poll.
+ * <code>
+ * ServerLogTail tail = dataContent.openServerLogTail();
+ * ... // action on the server
+ * String line = tail.awaitLine("Transaction .* committed", Duration.ofSeconds(30));
+ * </code>
+ * A session is not thread safe.
+ */
+public class ServerLogTail
+{
+    static Logger LOG = LogFactory.getLogger();
+
+    private static final int MIN_WINDOW = 64;
+    private static final int MAX_WINDOW = 64 * 1024;
+    private static final long MIN_POLL_MILLIS = 200;
+    private static final long MAX_POLL_MILLIS = 2000;
+
+    /**
+     * Shared by all sessions, connections are kept alive between polls
+     */
+    private static class ClientHolder
+    {
+        private static final CloseableHttpClient CLIENT = HttpClients.custom()
+                .setDefaultRequestConfig(RequestConfig.custom().setConnectTimeout(5000).setSocketTimeout(5000).build()).build();
+    }
+
+    private final String logUrl;
+    private final String logPath;
+    private final String authorization;
+    private List<String> previous;
+    private int window = MIN_WINDOW;
+    private long offset;
+
+    ServerLogTail(String logUrl, String logPath, String authorization) throws IOException
+    {
+        this.logUrl = logUrl;
+        this.logPath = logPath;
+        this.authorization = authorization;
+        // the cursor starts at the end of the log as it is now
+        this.previous = fetch(window);
+    }
+
+    public String getLogPath()
+    {
+        return logPath;
+    }
+
+    /**
+     * @return number of bytes of log read by this session, i.e. the position of the cursor since the session was opened
+     */
+    public long getOffset()
+    {
+        return offset;
+    }
+
+    /**
+     * @return the lines appended to the log since the previous poll, or since the session was opened
+     * @throws IOException if the log cannot be read
+     */
+    public List<String> poll() throws IOException
+    {
+        while (true)
+        {
+            List<String> tail = fetch(window);
+            int start = indexAfterPrevious(previous, tail);
+            if (start < 0 && tail.size() >= window && window < MAX_WINDOW)
+            {
+                // more lines were appended than the tail holds
+                window = Math.min(window * 2, MAX_WINDOW);
+                continue;
+            }
+            if (start < 0)
+            {
+                if (tail.size() >= window)
+                {
+                    LOG.warn("Log API: more than {} lines were appended to {} since the last poll, some lines were not read", MAX_WINDOW, logPath);
+                }
+                // the log was rotated, or too many lines were appended
+                start = 0;
+            }
+            List<String> lines = new ArrayList<String>(tail.subList(start, tail.size()));
+            for (String line : lines)
+            {
+                offset += line.getBytes(StandardCharsets.UTF_8).length + 1;
+            }
+            previous = tail;
+            // the next tail should hold the same number of new lines and still overlap this one without growing
+            window = Math.max(MIN_WINDOW, Math.min(MAX_WINDOW, 2 * lines.size()));
+            return lines;
+        }
+    }
+
+    /**
+     * Poll the log until a new line matches <regex>, pausing from 200 ms up to 2 seconds between two polls
+     *
+     * @return the first new line matching <regex>, or null if none was logged before <timeout>
+     * @throws IOException if the log cannot be read
+     */
+    public String awaitLine(String regex, Duration timeout) throws IOException
+    {
+        Pattern pattern = Pattern.compile(regex);
+        long deadline = System.nanoTime() + timeout.toNanos();
+        long pause = MIN_POLL_MILLIS;
+        while (true)
+        {
+            for (String line : poll())
+            {
+                if (pattern.matcher(line).find())
+                {
+                    return line;
+                }
+            }
+            long remaining = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+            if (remaining <= 0)
+            {
+                return null;
+            }
+            try
+            {
+                Wait.sleep(Math.min(pause, remaining));
+            }
+            catch (InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+                return null;
+            }
+            pause = Math.min(pause * 2, MAX_POLL_MILLIS);
+        }
+    }
+
+    /**
+     * If <shift> lines were appended since the previous poll, the lines of <tail> before the last <shift> ones are the end of the previous tail.
+     * The smallest such shift is taken. As all the lines the two tails share are compared, a few lines logged again are not
+     * mistaken for the end of the previous tail, only a log repeating the whole overlap is.
+     *
+     * @return the index of the first new line in <tail>, 0 if the log was empty, -1 if <tail> does not overlap <previous>
+     */
+    static int indexAfterPrevious(List<String> previous, List<String> tail)
+    {
+        if (previous.isEmpty())
+        {
+            return 0;
+        }
+        for (int end = tail.size(); end > 0; end--)
+        {
+            if (endsWith(previous, tail.subList(Math.max(0, end - previous.size()), end)))
+            {
+                return end;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @return true if the last lines of <lines> are <suffix>, compared from the last line as that is where different tails differ
+     */
+    private static boolean endsWith(List<String> lines, List<String> suffix)
+    {
+        int shift = lines.size() - suffix.size();
+        for (int i = suffix.size() - 1; i >= 0; i--)
+        {
+            if (!suffix.get(i).equals(lines.get(shift + i)))
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private List<String> fetch(int lineNumber) throws IOException
+    {
+        String body = read(logUrl, logPath, lineNumber, authorization);
+        if (body.isEmpty())
+        {
+            return Collections.emptyList();
+        }
+        return Arrays.asList(body.split("\r?\n"));
+    }
+
+    /**
+     * @return the last <lineNumber> lines of the log at <logPath>, as returned by the log API at <logUrl>
+     */
+    static String read(String logUrl, String logPath, int lineNumber, String authorization) throws IOException
+    {
+        Map<String, String> params = new HashMap<String, String>();
+        params.put("path", logPath);
+        params.put("lineNumber", String.valueOf(lineNumber));
+        HttpGet get = new HttpGet(Utility.toUrlParams(logUrl, params));
+        get.addHeader("Authorization", authorization);
+        OperationMetrics.Sample sample = OperationMetrics.start("read-server-log");
+        try (CloseableHttpResponse response = ClientHolder.CLIENT.execute(get))
+        {
+            String body = response.getEntity() == null ? "" : EntityUtils.toString(response.getEntity(), StandardCharsets.UTF_8);
+            if (response.getStatusLine().getStatusCode() != 200)
+            {
+                throw new IOException(String.format("Could not read log %s: %s", logPath, response.getStatusLine()));
+            }
+            sample.stop(true, body.getBytes(StandardCharsets.UTF_8).length);
+            return body;
+        }
+        catch (IOException | RuntimeException e)
+        {
+            sample.failure();
+            throw e;
+        }
+    }
+}
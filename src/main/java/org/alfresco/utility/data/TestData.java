@@ -2,13 +2,16 @@ package org.alfresco.utility.data;
 
 import static org.alfresco.utility.report.log.Step.STEP;
 
-import java.util.HashMap;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.Duration;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
 
 import javax.management.openmbean.CompositeData;
 
 import org.alfresco.dataprep.AlfrescoHttpClient;
-import org.alfresco.dataprep.AlfrescoHttpClientFactory;
 import org.alfresco.utility.LogFactory;
 import org.alfresco.utility.TasProperties;
 import org.alfresco.utility.Utility;
@@ -21,16 +24,18 @@ import org.alfresco.utility.model.FolderModel;
 import org.alfresco.utility.model.SiteModel;
 import org.alfresco.utility.model.UserModel;
 import org.alfresco.utility.network.JmxBuilder;
+import org.alfresco.utility.report.OperationMetrics;
 import org.apache.commons.codec.binary.Base64;
-import org.apache.commons.httpclient.HttpClient;
-import org.apache.commons.httpclient.methods.GetMethod;
 import org.apache.commons.io.FilenameUtils;
-import org.apache.commons.io.IOUtils;
-import org.apache.commons.lang3.CharEncoding;
+import org.apache.commons.io.output.CountingOutputStream;
+import org.apache.commons.lang3.ArrayUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpEntityEnclosingRequest;
 import org.apache.http.HttpResponse;
-import org.apache.http.client.methods.HttpGet;
+import org.apache.http.client.methods.HttpRequestBase;
+import org.apache.http.entity.HttpEntityWrapper;
 import org.json.JSONArray;
-import org.json.JSONObject;
 import org.slf4j.Logger;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.testng.Assert;
@@ -73,12 +78,15 @@ public abstract class TestData<Data> implements DSL<Data>
     protected TasProperties tasProperties;
 
     @Autowired
-    private AlfrescoHttpClientFactory alfrescoHttpClientFactory;
+    protected ServerCapabilities serverCapabilities;
 
     public static String PASSWORD = "password";
     public static String EMAIL = "%s@tas-automation.org";
 
-    private String serverLogUrl;
+    /**
+     * Log path resolved through JMX for each server, the log file does not move while the server runs
+     */
+    private static final Map<String, String> SERVER_LOG_PATHS = new ConcurrentHashMap<String, String>();
 
     private String logResponse;
 
@@ -122,6 +130,14 @@ public abstract class TestData<Data> implements DSL<Data>
         return new UserModel(tasProperties.getAdminUser(), tasProperties.getAdminPassword());
     }
 
+    /**
+     * @return the {@link TasProperties} of the test run, for callers that are not Spring beans
+     */
+    public TasProperties getTasProperties()
+    {
+        return tasProperties;
+    }
+
     @Override
     public UserModel getCurrentUser()
     {
@@ -296,31 +312,64 @@ public abstract class TestData<Data> implements DSL<Data>
     @SuppressWarnings("unchecked")
     public Data usingLastServerLogLines(int lineNumber) throws Exception
     {
-        assertExtensionAmpExists("alfresco-log-extension");
+        logResponse = ServerLogTail.read(getServerLogUrl(), getServerLogPath(), lineNumber, getAdminBasicAuthentication());
+        return (Data) this;
+    }
 
-        this.serverLogUrl = tasProperties.getFullServerUrl() + "/alfresco/s/tas/log";
+    /**
+     * Open a session reading only the lines appended to the server log from now on, see {@link ServerLogTail}
+     */
+    public ServerLogTail openServerLogTail() throws Exception
+    {
+        String logPath = getServerLogPath();
+        STEP(String.format("Log API: tail %s", logPath));
+        return new ServerLogTail(getServerLogUrl(), logPath, getAdminBasicAuthentication());
+    }
 
-        String baseDir = getAlfrescoHome();
-        String logFile = (String) jmxBuilder.getJmxClient().readProperty("log4j:appender=File", "file");
-        STEP(String.format("Log API: jmx log4j:appender=File", logFile));
+    /**
+     * Assert that a line matching <regex> is appended to the server log through <tail> before <timeout>
+     */
+    @SuppressWarnings("unchecked")
+    public Data assertLogLineAppears(ServerLogTail tail, String regex, Duration timeout) throws Exception
+    {
+        STEP(String.format("Log API: Assert that log file gets a line matching %s within %d seconds", regex, timeout.getSeconds()));
+        String line = tail.awaitLine(regex, timeout);
+        Assert.assertNotNull(line, String.format("Log file %s doesn't get a line matching %s after %d seconds", tail.getLogPath(), regex, timeout.getSeconds()));
+        logResponse = line;
+        return (Data) this;
+    }
 
-        String logPath = logFile.contains(baseDir) ? logFile : Utility.buildPath(baseDir, logFile);
-        STEP(String.format("Log API: log path is %s", logPath));
+    private String getServerLogUrl()
+    {
+        return tasProperties.getFullServerUrl() + "/alfresco/s/tas/log";
+    }
 
-        Map<String, String> paramsServerlog = new HashMap<String, String>();
-        paramsServerlog.put("path", logPath);
-        paramsServerlog.put("lineNumber", "" + lineNumber);
-        serverLogUrl = Utility.toUrlParams(serverLogUrl, paramsServerlog);
+    /**
+     * @return the path of the server log, resolved through JMX the first time only
+     */
+    private String getServerLogPath() throws Exception
+    {
+        String serverUrl = tasProperties.getFullServerUrl();
+        String logPath = SERVER_LOG_PATHS.get(serverUrl);
+        if (logPath == null)
+        {
+            assertExtensionAmpExists("alfresco-log-extension");
 
-        HttpClient client = new HttpClient();
-        GetMethod get = new GetMethod(serverLogUrl);
-        String unhashedString = String.format("%s:%s", tasProperties.getAdminUser(), tasProperties.getAdminPassword());
-        get.setRequestHeader("Authorization", "Basic " + Base64.encodeBase64String(unhashedString.getBytes()));
+            String baseDir = getAlfrescoHome();
+            String logFile = (String) jmxBuilder.getJmxClient().readProperty("log4j:appender=File", "file");
+            STEP(String.format("Log API: jmx log4j:appender=File", logFile));
 
-        get.getParams().setSoTimeout(5000);
-        client.executeMethod(get);
-        logResponse = IOUtils.toString(get.getResponseBodyAsStream(), CharEncoding.UTF_8);
-        return (Data) this;
+            logPath = logFile.contains(baseDir) ? logFile : Utility.buildPath(baseDir, logFile);
+            STEP(String.format("Log API: log path is %s", logPath));
+            SERVER_LOG_PATHS.put(serverUrl, logPath);
+        }
+        return logPath;
+    }
+
+    private String getAdminBasicAuthentication()
+    {
+        String unhashedString = String.format("%s:%s", tasProperties.getAdminUser(), tasProperties.getAdminPassword());
+        return "Basic " + Base64.encodeBase64String(unhashedString.getBytes());
     }
 
     @SuppressWarnings("unchecked")
@@ -393,21 +442,129 @@ public abstract class TestData<Data> implements DSL<Data>
      */
     private String getSiteDocLibNodeId(String siteId)
     {
-        AlfrescoHttpClient client = this.alfrescoHttpClientFactory.getObject();
-        String reqUrl = client.getApiVersionUrl() + "sites/" + siteId + "/containers/documentLibrary";
+        return serverCapabilities.getSiteDocumentLibraryId(siteId);
+    }
+
+    /**
+     * Called when a request on the last node id answered 404. If that node is the documentLibrary of the current site,
+     * its cached id may belong to a site that was deleted and created again: forget it and resolve it again.
+     *
+     * @return true if the last node id changed, so the request can be sent again
+     */
+    protected boolean refreshSiteDocumentLibraryId()
+    {
+        String siteId = getCurrentSite();
+        if (StringUtils.isEmpty(siteId) || !getLastResource().equals(String.format(getSitesPath(), siteId)))
+        {
+            return false;
+        }
+        String previous = getLastNodeId();
+        serverCapabilities.forgetSite(siteId);
+        setLastNodeId(getSiteDocLibNodeId(siteId));
+        LOG.info("documentLibrary of site {} was not found with id {}, resolved again: {}", siteId, previous, getLastNodeId());
+        return !getLastNodeId().equals(previous);
+    }
+
+    /**
+     * Send <request> as <username> and record it in {@link OperationMetrics} under <operation>,
+     * as an error unless the server answers one of <expectedStatuses>
+     */
+    protected HttpResponse execute(String operation, AlfrescoHttpClient client, String username, String password, HttpRequestBase request,
+            int... expectedStatuses)
+    {
+        return record(operation, request, expectedStatuses, () -> client.execute(username, password, request));
+    }
+
+    /**
+     * Same as {@link #execute(String, AlfrescoHttpClient, String, String, HttpRequestBase, int...)}, releasing the connection
+     */
+    protected HttpResponse executeAndRelease(String operation, AlfrescoHttpClient client, String username, String password, HttpRequestBase request,
+            int... expectedStatuses)
+    {
+        return record(operation, request, expectedStatuses, () -> client.executeAndRelease(username, password, request));
+    }
+
+    /**
+     * Record the response of <send> for <request> under <operation>, with the bytes sent and received
+     */
+    private static HttpResponse record(String operation, HttpRequestBase request, int[] expectedStatuses, Supplier<HttpResponse> send)
+    {
+        CountingEntity body = countBody(request);
+        OperationMetrics.Sample sample = OperationMetrics.start(operation);
+        HttpResponse response;
+        try
+        {
+            response = send.get();
+        }
+        catch (RuntimeException e)
+        {
+            sample.failure();
+            throw e;
+        }
+        sample.stop(ArrayUtils.contains(expectedStatuses, response.getStatusLine().getStatusCode()), getBytes(body, response));
+        return response;
+    }
 
-        HttpGet get = new HttpGet(reqUrl);
-        HttpResponse response = client.execute(tasProperties.getAdminUser(), tasProperties.getAdminPassword(), get);
+    /**
+     * Body of a request counting the bytes sent, as the length of content streamed from a {@link org.alfresco.utility.model.ContentSource}
+     * is not always known before it is sent
+     */
+    private static class CountingEntity extends HttpEntityWrapper
+    {
+        private long sent;
 
-        if (200 == response.getStatusLine().getStatusCode())
+        CountingEntity(HttpEntity body)
         {
-            JSONObject jsonObject = new JSONObject(client.readStream(response.getEntity()));
-            return jsonObject.getJSONObject("entry").getString("id");
+            super(body);
         }
-        else
+
+        @Override
+        public void writeTo(OutputStream out) throws IOException
+        {
+            CountingOutputStream counter = new CountingOutputStream(out);
+            try
+            {
+                super.writeTo(counter);
+            }
+            finally
+            {
+                sent += counter.getByteCount();
+            }
+        }
+    }
+
+    /**
+     * @return the body of <request>, replaced by one counting the bytes sent, or null if it has no body
+     */
+    private static CountingEntity countBody(HttpRequestBase request)
+    {
+        if (!(request instanceof HttpEntityEnclosingRequest) || ((HttpEntityEnclosingRequest) request).getEntity() == null)
+        {
+            return null;
+        }
+        HttpEntityEnclosingRequest enclosing = (HttpEntityEnclosingRequest) request;
+        if (enclosing.getEntity() instanceof CountingEntity)
+        {
+            // the request is sent again
+            CountingEntity body = (CountingEntity) enclosing.getEntity();
+            body.sent = 0;
+            return body;
+        }
+        CountingEntity body = new CountingEntity(enclosing.getEntity());
+        enclosing.setEntity(body);
+        return body;
+    }
+
+    /**
+     * @return bytes of the request body sent and length of the response body, a response body of unknown length is not counted
+     */
+    private static long getBytes(CountingEntity body, HttpResponse response)
+    {
+        long bytes = body == null ? 0 : body.sent;
+        if (response.getEntity() != null)
         {
-            throw new RuntimeException(
-                    "Could not set Doclib nodeId. Request response: " + client.getParameterFromJSON(response, "briefSummary", new String[] { "error" }));
+            bytes += Math.max(0, response.getEntity().getContentLength());
         }
+        return bytes;
     }
 }
\ No newline at end of file
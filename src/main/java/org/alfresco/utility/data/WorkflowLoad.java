@@ -0,0 +1,240 @@
+package org.alfresco.utility.data;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.alfresco.utility.model.TaskModel;
+import org.alfresco.utility.model.UserModel;
+import org.alfresco.utility.report.LatencyHistogram;
+
+/**
+ * Settings of a workflow load run, see {@link DataWorkflow#runLoad(WorkflowLoad)}.
+ * <code>
+ * WorkflowLoad load = new WorkflowLoad(1000, users).withDefinition(Definition.SINGLE_REVIEW).atRate(20).withConcurrency(16).claiming().completing();
+ * WorkflowLoad.Result result = dataWorkflow.usingSite(site).usingResource(document).runLoad(load);
+ * </code>
+ */
+public class WorkflowLoad
+{
+    public static final String STEP_START = "start";
+    public static final String STEP_CLAIM = "claim";
+    public static final String STEP_COMPLETE = "complete";
+
+    /**
+     * Process definitions that can be started
+     */
+    public enum Definition
+    {
+        /**
+         * Ad hoc task assigned to a user, completed with task done; also used for a custom process definition id
+         */
+        ADHOC,
+        /**
+         * Review and approve with a single reviewer, completed with approve
+         */
+        SINGLE_REVIEW
+    }
+
+    private final int processes;
+    private final List<UserModel> users;
+    private Definition definition = Definition.ADHOC;
+    private String processDefinitionId;
+    private double rate;
+    private int concurrency = 8;
+    private boolean claim;
+    private boolean complete;
+
+    /**
+     * @param processes number of processes to start
+     * @param users pool of users: process i is started by user i and assigned to the next user of the pool
+     */
+    public WorkflowLoad(int processes, List<UserModel> users)
+    {
+        if (users.isEmpty())
+        {
+            throw new IllegalArgumentException("Workflow load needs at least one user");
+        }
+        this.processes = processes;
+        this.users = new ArrayList<UserModel>(users);
+    }
+
+    public WorkflowLoad withDefinition(Definition definition)
+    {
+        this.definition = definition;
+        return this;
+    }
+
+    /**
+     * Start the processes with this process definition id instead of the default ad hoc one (needed on tenants)
+     */
+    public WorkflowLoad withProcessDefinitionId(String processDefinitionId)
+    {
+        this.processDefinitionId = processDefinitionId;
+        return this;
+    }
+
+    /**
+     * @param processesPerSecond target start rate, 0 to start the processes as fast as the workers can
+     */
+    public WorkflowLoad atRate(double processesPerSecond)
+    {
+        this.rate = processesPerSecond;
+        return this;
+    }
+
+    /**
+     * @param concurrency maximum number of processes driven at the same time
+     */
+    public WorkflowLoad withConcurrency(int concurrency)
+    {
+        this.concurrency = concurrency;
+        return this;
+    }
+
+    /**
+     * Claim the task of each process as its assignee, before completing it if {@link #completing()} is set too
+     */
+    public WorkflowLoad claiming()
+    {
+        this.claim = true;
+        return this;
+    }
+
+    /**
+     * Complete the task of each process as its assignee: task done for ad hoc processes, approve for single review ones
+     */
+    public WorkflowLoad completing()
+    {
+        this.complete = true;
+        return this;
+    }
+
+    public int getProcesses()
+    {
+        return processes;
+    }
+
+    public List<UserModel> getUsers()
+    {
+        return users;
+    }
+
+    public Definition getDefinition()
+    {
+        return definition;
+    }
+
+    public String getProcessDefinitionId()
+    {
+        return processDefinitionId;
+    }
+
+    public double getRate()
+    {
+        return rate;
+    }
+
+    public int getConcurrency()
+    {
+        return concurrency;
+    }
+
+    public boolean isClaim()
+    {
+        return claim;
+    }
+
+    public boolean isComplete()
+    {
+        return complete;
+    }
+
+    UserModel getInitiator(int process)
+    {
+        return users.get(process % users.size());
+    }
+
+    UserModel getAssignee(int process)
+    {
+        return users.get((process + 1) % users.size());
+    }
+
+    /**
+     * Outcome of a load run: the processes started or failed and the latency of each step
+     */
+    public static class Result
+    {
+        private final BulkResult<TaskModel> tasks;
+        private final Map<String, LatencyHistogram> steps;
+
+        Result(BulkResult<TaskModel> tasks, Map<String, LatencyHistogram> steps)
+        {
+            this.tasks = tasks;
+            this.steps = steps;
+        }
+
+        /**
+         * @return the tasks driven successfully and the ones that failed, with the process id of each task
+         */
+        public BulkResult<TaskModel> getTasks()
+        {
+            return tasks;
+        }
+
+        /**
+         * @return latency of each step, see {@link WorkflowLoad#STEP_START}, {@link WorkflowLoad#STEP_CLAIM} and {@link WorkflowLoad#STEP_COMPLETE}
+         */
+        public Map<String, LatencyHistogram> getSteps()
+        {
+            return Collections.unmodifiableMap(steps);
+        }
+
+        public LatencyHistogram getStep(String step)
+        {
+            return steps.get(step);
+        }
+
+        /**
+         * @return successful calls of <step> per second over the whole run
+         */
+        public double getThroughput(String step)
+        {
+            LatencyHistogram histogram = steps.get(step);
+            return histogram == null || tasks.getDuration() == 0 ? 0 : histogram.getCount() * 1000.0 / tasks.getDuration();
+        }
+
+        public String getSummary()
+        {
+            StringBuilder summary = new StringBuilder(tasks.getSummary());
+            for (Map.Entry<String, LatencyHistogram> step : steps.entrySet())
+            {
+                summary.append(String.format("%n  %s: %.1f/s %s", step.getKey(), getThroughput(step.getKey()), step.getValue()));
+            }
+            return summary.toString();
+        }
+
+        @Override
+        public String toString()
+        {
+            return getSummary();
+        }
+    }
+
+    static Map<String, LatencyHistogram> newSteps(WorkflowLoad load)
+    {
+        Map<String, LatencyHistogram> steps = new LinkedHashMap<String, LatencyHistogram>();
+        steps.put(STEP_START, new LatencyHistogram());
+        if (load.isClaim())
+        {
+            steps.put(STEP_CLAIM, new LatencyHistogram());
+        }
+        if (load.isComplete())
+        {
+            steps.put(STEP_COMPLETE, new LatencyHistogram());
+        }
+        return steps;
+    }
+}
@@ -13,4 +13,29 @@ public @interface XMLDataConfig
      * define the *.XML file used by {@link XMLTestDataProvider}
      */
     public String file();
+
+    /**
+     * read the sites, users or queries of the file one by one while the test runs, instead of loading the whole file first
+     */
+    public boolean streaming() default false;
+
+    /**
+     * only return the sites, folders or files created by the user with this id in the XML file
+     */
+    public String createdBy() default "";
+
+    /**
+     * zero based index of the shard returned by this JVM, see {@link XMLDataShard}
+     */
+    public int shardIndex() default 0;
+
+    /**
+     * number of shards the rows are split into; 0 to use the <code>xmlDataShardCount</code> system property, or else return all rows
+     */
+    public int shardCount() default 0;
+
+    /**
+     * split the sites or folders so that each shard gets about the same number of items, instead of the same number of rows
+     */
+    public boolean weighted() default false;
 }
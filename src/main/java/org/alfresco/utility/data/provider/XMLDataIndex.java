@@ -0,0 +1,199 @@
+package org.alfresco.utility.data.provider;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Index of the items of a {@link XMLTestData}, built once in a single pass over the sites, folders and files.
+ * Items can be found by id, by the user that creates them, by the location of their parent and by type without scanning the whole structure.
+ * <code>
+ * List<XMLFileData> files = xmlTestData.getIndex().getCreatedBy("user1", XMLFileData.class);
+ * </code>
+ * The index is not updated if the structure is changed after it was built.
+ */
+public class XMLDataIndex
+{
+    private final List<XMLDataItem> items = new ArrayList<XMLDataItem>();
+    private final Map<String, XMLDataItem> byId = new HashMap<String, XMLDataItem>();
+    private final Map<String, XMLUserData> users = new HashMap<String, XMLUserData>();
+    private final Map<String, List<XMLDataItem>> byCreatedBy = new HashMap<String, List<XMLDataItem>>();
+    private final Map<String, List<XMLDataItem>> byParentLocation = new HashMap<String, List<XMLDataItem>>();
+    private final Map<Class<?>, List<XMLDataItem>> byType = new HashMap<Class<?>, List<XMLDataItem>>();
+    private final Map<XMLDataItem, XMLDataItem> parents = new IdentityHashMap<XMLDataItem, XMLDataItem>();
+
+    XMLDataIndex(List<XMLUserData> users, List<XMLSiteData> sites)
+    {
+        if (users != null)
+        {
+            for (XMLUserData user : users)
+            {
+                add(user, null);
+                this.users.putIfAbsent(user.getId(), user);
+            }
+        }
+        if (sites != null)
+        {
+            for (XMLSiteData site : sites)
+            {
+                add(site, null);
+                for (XMLUserData member : site.getMembers())
+                {
+                    add(member, site);
+                }
+                addContent(site, site.getFullLocation(), site.getFiles(), site.getFolders());
+            }
+        }
+    }
+
+    private void addContent(XMLDataItem parent, String location, List<XMLFileData> files, List<XMLFolderData> folders)
+    {
+        for (XMLFileData file : files)
+        {
+            file.setParent(location);
+            add(file, parent);
+            byParentLocation.computeIfAbsent(location, key -> new ArrayList<XMLDataItem>()).add(file);
+            addAll(file.getComments(), file);
+            addAll(file.getTags(), file);
+        }
+        for (XMLFolderData folder : folders)
+        {
+            folder.setParent(location);
+            add(folder, parent);
+            byParentLocation.computeIfAbsent(location, key -> new ArrayList<XMLDataItem>()).add(folder);
+            addAll(folder.getComments(), folder);
+            addAll(folder.getTags(), folder);
+            addContent(folder, folder.getModel().getCmisLocation(), folder.getFiles(), folder.getFolders());
+        }
+    }
+
+    private void addAll(List<? extends XMLDataItem> children, XMLDataItem parent)
+    {
+        for (XMLDataItem child : children)
+        {
+            add(child, parent);
+        }
+    }
+
+    private void add(XMLDataItem item, XMLDataItem parent)
+    {
+        items.add(item);
+        if (parent != null)
+        {
+            parents.put(item, parent);
+        }
+        if (item.getId() != null)
+        {
+            byId.putIfAbsent(item.getId(), item);
+        }
+        String createdBy = createdBy(item);
+        if (createdBy != null)
+        {
+            byCreatedBy.computeIfAbsent(createdBy, key -> new ArrayList<XMLDataItem>()).add(item);
+        }
+        byType.computeIfAbsent(item.getClass(), key -> new ArrayList<XMLDataItem>()).add(item);
+    }
+
+    private static String createdBy(XMLDataItem item)
+    {
+        if (item instanceof XMLSiteData)
+            return ((XMLSiteData) item).getCreatedBy();
+        if (item instanceof XMLFolderData)
+            return ((XMLFolderData) item).getCreatedBy();
+        if (item instanceof XMLFileData)
+            return ((XMLFileData) item).getCreatedBy();
+        if (item instanceof XMLCommentData)
+            return ((XMLCommentData) item).getCreatedBy();
+        if (item instanceof XMLTagData)
+            return ((XMLTagData) item).getCreatedBy();
+        return null;
+    }
+
+    /**
+     * @return all items: the users, then each site followed by its members, files, folders, comments and tags
+     */
+    public List<XMLDataItem> getItems()
+    {
+        return Collections.unmodifiableList(items);
+    }
+
+    /**
+     * @return the first item with <id>, or null
+     */
+    public XMLDataItem getById(String id)
+    {
+        return byId.get(id);
+    }
+
+    /**
+     * @return the user with <id> from the <users> section, or null
+     */
+    public XMLUserData getUser(String id)
+    {
+        return users.get(id);
+    }
+
+    /**
+     * @return the sites, folders, files, comments and tags created by the user with <userId>
+     */
+    public List<XMLDataItem> getCreatedBy(String userId)
+    {
+        return Collections.unmodifiableList(byCreatedBy.getOrDefault(userId, Collections.<XMLDataItem> emptyList()));
+    }
+
+    /**
+     * @return the items of <type> created by the user with <userId>
+     */
+    public <T extends XMLDataItem> List<T> getCreatedBy(String userId, Class<T> type)
+    {
+        return filter(byCreatedBy.get(userId), type);
+    }
+
+    /**
+     * @return the files and folders directly under <location>, a site document library or a folder
+     */
+    public List<XMLDataItem> getChildren(String location)
+    {
+        return Collections.unmodifiableList(byParentLocation.getOrDefault(location, Collections.<XMLDataItem> emptyList()));
+    }
+
+    /**
+     * @return the site, folder or file that contains <item>, null for users and sites
+     */
+    public XMLDataItem getParent(XMLDataItem item)
+    {
+        return parents.get(item);
+    }
+
+    /**
+     * @return all items of <type>, for example all {@link XMLFileData}
+     */
+    public <T extends XMLDataItem> List<T> getByType(Class<T> type)
+    {
+        return filter(byType.get(type), type);
+    }
+
+    public int size()
+    {
+        return items.size();
+    }
+
+    private static <T extends XMLDataItem> List<T> filter(List<XMLDataItem> candidates, Class<T> type)
+    {
+        List<T> found = new ArrayList<T>();
+        if (candidates != null)
+        {
+            for (XMLDataItem item : candidates)
+            {
+                if (type.isInstance(item))
+                {
+                    found.add(type.cast(item));
+                }
+            }
+        }
+        return found;
+    }
+}
@@ -0,0 +1,180 @@
+package org.alfresco.utility.data.provider;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.alfresco.utility.exception.DataPreparationException;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Local record of the XML test data created in the repository, written by
+ * {@link XMLTestData#createSitesStructure(org.alfresco.utility.data.DataSite, org.alfresco.utility.data.DataContent, org.alfresco.utility.data.DataUser, File)}.
+ * Each site, site member, folder and file is recorded by path with its nodeRef and a hash of its definition in the XML file,
+ * so the next load only has to create, re-create or delete what changed.
+ */
+public class XMLDataManifest
+{
+    public enum Type
+    {
+        SITE, MEMBER, FOLDER, FILE
+    }
+
+    /**
+     * One item of the manifest
+     */
+    public static class Entry
+    {
+        private Type type;
+        private String hash;
+        private String nodeRef;
+
+        public Entry()
+        {
+        }
+
+        public Entry(Type type, String hash, String nodeRef)
+        {
+            this.type = type;
+            this.hash = hash;
+            this.nodeRef = nodeRef;
+        }
+
+        public Type getType()
+        {
+            return type;
+        }
+
+        public void setType(Type type)
+        {
+            this.type = type;
+        }
+
+        /**
+         * @return hash of the XML definition of the item, without its children
+         */
+        public String getHash()
+        {
+            return hash;
+        }
+
+        public void setHash(String hash)
+        {
+            this.hash = hash;
+        }
+
+        public String getNodeRef()
+        {
+            return nodeRef;
+        }
+
+        public void setNodeRef(String nodeRef)
+        {
+            this.nodeRef = nodeRef;
+        }
+    }
+
+    private final Map<String, Entry> entries = Collections.synchronizedMap(new TreeMap<String, Entry>());
+
+    /**
+     * @return the manifest saved in <file>, empty if the file does not exist
+     */
+    public static XMLDataManifest load(File file)
+    {
+        XMLDataManifest manifest = new XMLDataManifest();
+        if (file.exists())
+        {
+            try
+            {
+                Map<String, Entry> saved = new ObjectMapper().readValue(file, new TypeReference<TreeMap<String, Entry>>()
+                {
+                });
+                manifest.entries.putAll(saved);
+            }
+            catch (IOException e)
+            {
+                throw new DataPreparationException(String.format("Could not read manifest %s: %s", file, e.getMessage()));
+            }
+        }
+        return manifest;
+    }
+
+    public void save(File file)
+    {
+        try
+        {
+            synchronized (entries)
+            {
+                new ObjectMapper().writerWithDefaultPrettyPrinter().writeValue(file, entries);
+            }
+        }
+        catch (IOException e)
+        {
+            throw new DataPreparationException(String.format("Could not write manifest %s: %s", file, e.getMessage()));
+        }
+    }
+
+    public Entry get(String path)
+    {
+        return entries.get(path);
+    }
+
+    public void put(String path, Entry entry)
+    {
+        entries.put(path, entry);
+    }
+
+    public void remove(String path)
+    {
+        entries.remove(path);
+    }
+
+    /**
+     * @return a copy of all entries, sorted by path
+     */
+    public Map<String, Entry> getEntries()
+    {
+        synchronized (entries)
+        {
+            return new TreeMap<String, Entry>(entries);
+        }
+    }
+
+    public int size()
+    {
+        return entries.size();
+    }
+
+    /**
+     * @return SHA-256 of <values>, used to detect a changed item definition
+     */
+    public static String hash(Object... values)
+    {
+        try
+        {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            for (Object value : values)
+            {
+                digest.update(String.valueOf(value).getBytes(StandardCharsets.UTF_8));
+                digest.update((byte) 0);
+            }
+            StringBuilder hex = new StringBuilder();
+            for (byte b : digest.digest())
+            {
+                hex.append(String.format("%02x", b));
+            }
+            return hex.toString();
+        }
+        catch (NoSuchAlgorithmException e)
+        {
+            throw new DataPreparationException(e);
+        }
+    }
+}
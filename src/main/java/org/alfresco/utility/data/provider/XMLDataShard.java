@@ -0,0 +1,159 @@
+package org.alfresco.utility.data.provider;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Predicate;
+
+import org.alfresco.utility.exception.TestConfigurationException;
+
+/**
+ * Slice of the rows of a data provider taken by one JVM when the same XML file is shared by several agents.
+ * The slice is deterministic: every agent reading the same file with the same shard count gets a different slice and together they get all rows.
+ * The shard is set with {@link XMLDataConfig#shardIndex()} and {@link XMLDataConfig#shardCount()},
+ * or with the system properties <code>-DxmlDataShardIndex=0 -DxmlDataShardCount=4</code> if the annotation does not set them.
+ */
+public class XMLDataShard
+{
+    public static final String SHARD_INDEX = "xmlDataShardIndex";
+    public static final String SHARD_COUNT = "xmlDataShardCount";
+
+    private static final XMLDataShard ALL = new XMLDataShard(0, 1);
+
+    private final int index;
+    private final int count;
+
+    public XMLDataShard(int index, int count)
+    {
+        if (count < 1 || index < 0 || index >= count)
+        {
+            throw new TestConfigurationException(String.format("Invalid XML data shard %d of %d, the index should be between 0 and count - 1", index, count));
+        }
+        this.index = index;
+        this.count = count;
+    }
+
+    /**
+     * @return the shard set on <config>, or else by the system properties, or else a single shard with all rows
+     */
+    public static XMLDataShard of(XMLDataConfig config)
+    {
+        if (config.shardCount() > 0)
+        {
+            return new XMLDataShard(config.shardIndex(), config.shardCount());
+        }
+        String count = System.getProperty(SHARD_COUNT);
+        if (count == null)
+        {
+            return ALL;
+        }
+        try
+        {
+            return new XMLDataShard(Integer.parseInt(System.getProperty(SHARD_INDEX, "0")), Integer.parseInt(count));
+        }
+        catch (NumberFormatException e)
+        {
+            throw new TestConfigurationException(String.format("%s and %s should be numbers: %s", SHARD_INDEX, SHARD_COUNT, e.getMessage()));
+        }
+    }
+
+    public int getIndex()
+    {
+        return index;
+    }
+
+    public int getCount()
+    {
+        return count;
+    }
+
+    /**
+     * @return the rows of this shard, taking one row out of <count> in the order of the file
+     */
+    public <T> List<T> select(List<T> items)
+    {
+        if (count == 1)
+        {
+            return items;
+        }
+        List<T> selected = new ArrayList<T>();
+        for (int i = index; i < items.size(); i += count)
+        {
+            selected.add(items.get(i));
+        }
+        return selected;
+    }
+
+    /**
+     * Rows are given, the heaviest first, to the shard with the lowest total weight so far, so shards get about the same amount of data
+     * even if some sites are much bigger than others. The weight of a site or folder is the number of items it contains.
+     *
+     * @return the rows of this shard, in the order of the file
+     */
+    public <T> List<T> selectWeighted(List<T> items)
+    {
+        if (count == 1)
+        {
+            return items;
+        }
+        List<Integer> positions = new ArrayList<Integer>();
+        int[] weights = new int[items.size()];
+        for (int i = 0; i < items.size(); i++)
+        {
+            positions.add(i);
+            weights[i] = weightOf(items.get(i));
+        }
+        // the sort is stable, so rows of equal weight keep the order of the file
+        positions.sort(Comparator.comparingInt((Integer position) -> weights[position]).reversed());
+
+        long[] loads = new long[count];
+        boolean[] mine = new boolean[items.size()];
+        for (int position : positions)
+        {
+            int lightest = 0;
+            for (int shard = 1; shard < count; shard++)
+            {
+                if (loads[shard] < loads[lightest])
+                {
+                    lightest = shard;
+                }
+            }
+            loads[lightest] += weights[position];
+            mine[position] = lightest == index;
+        }
+
+        List<T> selected = new ArrayList<T>();
+        for (int i = 0; i < items.size(); i++)
+        {
+            if (mine[i])
+            {
+                selected.add(items.get(i));
+            }
+        }
+        return selected;
+    }
+
+    /**
+     * @return a filter for rows read one by one, accepting one row out of <count> like {@link #select(List)}; to be used by a single reader
+     */
+    public <T> Predicate<T> roundRobin()
+    {
+        int[] position = { 0 };
+        return item -> position[0]++ % count == index;
+    }
+
+    private static int weightOf(Object item)
+    {
+        if (item instanceof XMLCollection)
+        {
+            return Math.max(1, ((XMLCollection) item).getEntireStructure().size());
+        }
+        return 1;
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.format("shard %d of %d", index, count);
+    }
+}
@@ -55,6 +55,10 @@ public class XMLFolderData extends XMLCollection implements XMLDataItem
     @XmlElement(name = "file")
     public List<XMLFileData> getFiles()
     {
+        for (XMLFileData f : files)
+        {
+            f.setParent(getModel().getCmisLocation());
+        }
         return files;
     }
 
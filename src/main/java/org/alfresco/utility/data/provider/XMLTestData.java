@@ -2,8 +2,15 @@ package org.alfresco.utility.data.provider;
 
 import static org.alfresco.utility.Utility.checkObjectIsInitialized;
 
+import java.io.File;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import javax.xml.bind.annotation.XmlElement;
 import javax.xml.bind.annotation.XmlElementWrapper;
@@ -11,9 +18,14 @@ import javax.xml.bind.annotation.XmlRootElement;
 
 import org.alfresco.utility.LogFactory;
 import org.alfresco.utility.constants.UserRole;
+import org.alfresco.utility.data.BulkExecutor;
+import org.alfresco.utility.data.BulkResult;
 import org.alfresco.utility.data.DataContent;
 import org.alfresco.utility.data.DataSite;
 import org.alfresco.utility.data.DataUser;
+import org.alfresco.utility.data.DependencyExecutor;
+import org.alfresco.utility.data.DependencyExecutor.Node;
+import org.alfresco.utility.data.provider.XMLDataManifest.Type;
 import org.alfresco.utility.exception.DataPreparationException;
 import org.alfresco.utility.exception.TestConfigurationException;
 import org.alfresco.utility.model.ContentModel;
@@ -38,6 +50,7 @@ public class XMLTestData extends XMLCollection
     private List<QueryModel> queries;
     private List<XMLSiteData> sites = new ArrayList<XMLSiteData>();
     private List<XMLUserData> users;
+    private volatile XMLDataIndex index;
 
     @XmlElementWrapper
     @XmlElement(name = "query")
@@ -61,6 +74,7 @@ public class XMLTestData extends XMLCollection
     public void setSites(List<XMLSiteData> sites)
     {
         this.sites = sites;
+        this.index = null;
     }
 
     @XmlElementWrapper
@@ -73,6 +87,28 @@ public class XMLTestData extends XMLCollection
     public void setUsers(List<XMLUserData> users)
     {
         this.users = users;
+        this.index = null;
+    }
+
+    /**
+     * @return the {@link XMLDataIndex} of the users, sites, folders, files, comments and tags, built on first use
+     */
+    public XMLDataIndex getIndex()
+    {
+        XMLDataIndex current = index;
+        if (current == null)
+        {
+            synchronized (this)
+            {
+                current = index;
+                if (current == null)
+                {
+                    current = new XMLDataIndex(getUsers(), getSites());
+                    index = current;
+                }
+            }
+        }
+        return current;
     }
 
     /**
@@ -82,171 +118,670 @@ public class XMLTestData extends XMLCollection
      */
     public void createUsers(DataUser dataUser) throws DataPreparationException
     {
+        List<UserModel> users = new ArrayList<UserModel>();
         for (XMLUserData user : getUsers())
         {
-            if (dataUser.isUserInRepo(user.getName()))
+            users.add(user.getModel());
+        }
+        BulkResult<UserModel> result = dataUser.createUsers(users);
+        for (UserModel user : result.getSkipped())
+        {
+            LOG.info("Skipping USER data:{}. This user already exists in repository!", user.toString());
+        }
+        if (result.hasFailures())
+        {
+            throw new DataPreparationException(String.format("Could not create users %s: %s", result.getFailures().keySet(), result.getSummary()));
+        }
+        logEntireStructure();
+    }
+
+    /**
+     * Calling this method will create entire test data structure in your alfresco repository
+     * 
+     * @throws DataPreparationException if any site, folder, file or decoration could not be created
+     */
+    public void createSitesStructure(DataSite dataSite, DataContent dataContent, DataUser dataUser) throws DataPreparationException
+    {
+        BulkResult<Node> result = createSitesStructure(dataSite, dataContent, dataUser, dataContent.getTasProperties().getDataPrepParallelism());
+        if (result.hasFailures())
+        {
+            throw new DataPreparationException(String.format("Could not create test data structure %s: %s", result.getFailures().keySet(),
+                    result.getSummary()));
+        }
+    }
+
+    /**
+     * Creates the entire test data structure using <parallelism> workers.
+     * Each site, folder and file is created as soon as its parent container exists: sibling files and folders, as well as the aspects,
+     * comments and tags of a content, are created in parallel. Each task uses its own {@link DataContent}.
+     * 
+     * @return {@link BulkResult} with the tasks that succeeded and the ones that failed; the content below a failed container is not created
+     */
+    public BulkResult<Node> createSitesStructure(DataSite dataSite, DataContent dataContent, DataUser dataUser, int parallelism)
+    {
+        Load load = new Load(dataSite, dataContent, dataUser, Collections.<String, String> emptyMap());
+        return new DependencyExecutor(parallelism).execute("create-structure", load.sites());
+    }
+
+    /**
+     * Creates only what changed since the last load recorded in <manifestFile>, then records the new state in it.
+     * Each site, member, folder and file of the XML file is compared with the manifest and the repository:
+     * <ul>
+     * <li>items that are unchanged and still in the repository are kept</li>
+     * <li>new items and items missing from the repository are created</li>
+     * <li>changed folders and files are deleted and created again, with their content; changed members get their new role</li>
+     * <li>items that are no longer in the XML file are deleted</li>
+     * </ul>
+     * Without manifest file everything is created, as {@link #createSitesStructure(DataSite, DataContent, DataUser, int)} does.
+     * Sites are never created again: a changed site definition is only recorded. Changes done in the repository to items that still exist
+     * are not detected.
+     * <code>
+     * testData.createSitesStructure(dataSite, dataContent, dataUser, new File("target/example-input-data.manifest.json"));
+     * </code>
+     * 
+     * @return {@link BulkResult} with the tasks that succeeded and the ones that failed; failed items are not recorded in the manifest
+     */
+    public BulkResult<Node> createSitesStructure(DataSite dataSite, DataContent dataContent, DataUser dataUser, File manifestFile)
+    {
+        XMLDataManifest previous = XMLDataManifest.load(manifestFile);
+        Set<String> unchanged = new LinkedHashSet<String>();
+        Map<String, XMLDataManifest.Entry> defined = define(previous, dataUser.getAdminUser(), unchanged);
+
+        // unchanged folders and files still have to be in the repository
+        Set<String> content = new LinkedHashSet<String>();
+        for (String path : unchanged)
+        {
+            if (defined.get(path).getType() != Type.MEMBER)
             {
-                LOG.info("Skipping USER data:{}. This user already exists in repository!", user.toString());
+                content.add(path);
             }
-            else
+        }
+        Map<String, String> nodeRefs = content.isEmpty() ? Collections.<String, String> emptyMap()
+                : dataContent.usingAdmin().waitUntilContentsAreCreated(content, 0).getNodeRefs();
+        Map<String, String> upToDate = new HashMap<String, String>();
+        for (String path : unchanged)
+        {
+            if (defined.get(path).getType() == Type.MEMBER || nodeRefs.containsKey(path))
             {
-                LOG.info("Creating USER data:" + user.toString());
-                dataUser.createUser(user.getName(), user.getPassword());
+                upToDate.put(path, nodeRefs.get(path));
             }
         }
-        logEntireStructure();
+        LOG.info("Manifest {}: {} items defined, {} up to date", manifestFile, defined.size(), upToDate.size());
+
+        int parallelism = dataContent.getTasProperties().getDataPrepParallelism();
+        Load load = new Load(dataSite, dataContent, dataUser, upToDate);
+        BulkResult<Node> result = new DependencyExecutor(parallelism).execute("delete-structure", deletions(previous, defined, load));
+        result.merge(new DependencyExecutor(parallelism).execute("create-structure", load.sites()));
+
+        for (Map.Entry<String, String> item : upToDate.entrySet())
+        {
+            XMLDataManifest.Entry entry = defined.get(item.getKey());
+            load.manifest.put(item.getKey(), new XMLDataManifest.Entry(entry.getType(), entry.getHash(), item.getValue()));
+        }
+        load.manifest.save(manifestFile);
+        LOG.info("Manifest {} saved with {} items", manifestFile, load.manifest.size());
+        return result;
     }
 
     /**
-     * Calling this method will create entire test data structure in your alfresco repository
+     * @return the sites, members, folders and files of the XML file by manifest path, with their hash and without nodeRef;
+     *         the ones with the same definition as in <previous> are added to <unchanged>
      */
-    public void createSitesStructure(DataSite dataSite, DataContent dataContent, DataUser dataUser)
+    Map<String, XMLDataManifest.Entry> define(XMLDataManifest previous, UserModel admin, Set<String> unchanged)
     {
+        Map<String, XMLDataManifest.Entry> defined = new LinkedHashMap<String, XMLDataManifest.Entry>();
         for (XMLSiteData site : getSites())
         {
-            if (dataSite.usingAdmin().isSiteCreated(site.getModel()))
+            defined.put(site.getFullLocation(), new XMLDataManifest.Entry(Type.SITE, hashOf(site), null));
+            for (XMLUserData member : site.getMembers())
             {
-                LOG.info("Skipping Site: {}. This site already exists in repository!", site.getFullLocation());
+                String memberPath = memberPath(site, member, admin);
+                defined.put(memberPath, new XMLDataManifest.Entry(Type.MEMBER, hashOf(member), null));
+                if (isSameHash(previous, memberPath, defined))
+                {
+                    unchanged.add(memberPath);
+                }
             }
-            else
-            // create site with the user provided in XML file
+            collectContent(site.getFiles(), site.getFolders(), false, previous, defined, unchanged);
+        }
+        return defined;
+    }
+
+    /**
+     * Adds the folders and files to <defined>, and to <unchanged> the ones with the same definition as in <previous>.
+     * The content of a changed folder is changed too, since the folder is created again.
+     */
+    private void collectContent(List<XMLFileData> files, List<XMLFolderData> folders, boolean parentChanged, XMLDataManifest previous,
+            Map<String, XMLDataManifest.Entry> defined, Set<String> unchanged)
+    {
+        for (XMLFileData file : files)
+        {
+            String path = file.getModel().getCmisLocation();
+            defined.put(path, new XMLDataManifest.Entry(Type.FILE, hashOf(file), null));
+            if (!parentChanged && isSameHash(previous, path, defined))
             {
-                /*
-                 * get the user model of the site
-                 */
-                LOG.info("Creating Site: {}", site.getFullLocation());
+                unchanged.add(path);
+            }
+        }
+        for (XMLFolderData folder : folders)
+        {
+            String path = folder.getModel().getCmisLocation();
+            defined.put(path, new XMLDataManifest.Entry(Type.FOLDER, hashOf(folder), null));
+            boolean changed = parentChanged || !isSameHash(previous, path, defined);
+            if (!changed)
+            {
+                unchanged.add(path);
+            }
+            collectContent(folder.getFiles(), folder.getFolders(), changed, previous, defined, unchanged);
+        }
+    }
 
-                UserModel user = getUserBy(dataContent.getAdminUser(), site.getCreatedBy());
-                dataSite.usingUser(user).createSite(site.getModel());
+    private boolean isSameHash(XMLDataManifest previous, String path, Map<String, XMLDataManifest.Entry> defined)
+    {
+        XMLDataManifest.Entry entry = previous.get(path);
+        return entry != null && entry.getHash().equals(defined.get(path).getHash());
+    }
+
+    /**
+     * @return the tasks deleting the items of <previous> that are no longer defined, or that changed and are created again
+     */
+    private List<Node> deletions(XMLDataManifest previous, Map<String, XMLDataManifest.Entry> defined, Load load)
+    {
+        List<Node> deletions = new ArrayList<Node>();
+        for (String path : deletedPaths(previous, defined))
+        {
+            XMLDataManifest.Entry entry = previous.get(path);
+            switch (entry.getType())
+            {
+                case SITE:
+                    LOG.info("Deleting Site: {}", path);
+                    deletions.add(new Decoration("delete site " + path, () -> load.dataContent.newWorker().usingAdmin()
+                            .deleteSite(new SiteModel(path.split("/")[2]))));
+                    break;
+                case MEMBER:
+                    deletions.add(new Decoration("remove member " + path, () -> {
+                        String[] member = path.split("#member/");
+                        load.dataUser.removeUserFromSite(new UserModel(member[1], null), new SiteModel(member[0].split("/")[2]));
+                    }));
+                    break;
+                case FOLDER:
+                    LOG.info("Deleting Folder: {}", path);
+                    deletions.add(new Decoration("delete folder " + path, () -> {
+                        FolderModel folder = new FolderModel(path.substring(path.lastIndexOf('/') + 1));
+                        folder.setCmisLocation(path);
+                        load.dataContent.newWorker().usingAdmin().deleteTree(folder);
+                    }));
+                    break;
+                case FILE:
+                    LOG.info("Deleting File: {}", path);
+                    deletions.add(new Decoration("delete file " + path, () -> {
+                        FileModel file = new FileModel(path.substring(path.lastIndexOf('/') + 1));
+                        file.setCmisLocation(path);
+                        file.setNodeRef(entry.getNodeRef());
+                        load.dataContent.newWorker().usingAdmin().usingResource(file).deleteContent();
+                    }));
+                    break;
             }
-            addMembers(site.getMembers(), site.getModel(), dataUser);
-            createFilesStructure(site.getFiles(), site.getModel(), dataContent);
-            createFolderStructure(site.getFolders(), site.getFullLocation(), dataContent);
         }
+        return deletions;
     }
 
     /**
-     * Creates folder structure
-     * 
-     * @param folderStructure
-     * @param location
-     * @param dataContent
+     * The manifest is sorted by path, so a site or folder comes before what it contains and nothing below a deleted one is deleted again
+     *
+     * @return the paths of <previous> that are no longer defined, or that changed and are created again, in the order of <previous>
      */
-    private void createFolderStructure(List<XMLFolderData> folderStructure, String location, DataContent dataContent)
+    static List<String> deletedPaths(XMLDataManifest previous, Map<String, XMLDataManifest.Entry> defined)
     {
-        // create structure in site
-        for (XMLFolderData folder : folderStructure)
+        List<String> deletedContainers = new ArrayList<String>();
+        List<String> deleted = new ArrayList<String>();
+        for (Map.Entry<String, XMLDataManifest.Entry> item : previous.getEntries().entrySet())
         {
-            /*
-             * get the user model of the folder
-             */
-            UserModel userFolder = getUserBy(dataContent.getAdminUser(), folder.getCreatedBy());
+            String path = item.getKey();
+            XMLDataManifest.Entry entry = item.getValue();
+            boolean removed = !defined.containsKey(path);
+            boolean changed = !removed && !entry.getHash().equals(defined.get(path).getHash());
+            // sites are never created again, and unchanged items missing from the repository are only created
+            if (!(removed || (changed && entry.getType() != Type.SITE)) || isBelow(path, deletedContainers))
+            {
+                continue;
+            }
+            if (entry.getType() == Type.SITE || entry.getType() == Type.FOLDER)
+            {
+                deletedContainers.add(path);
+            }
+            deleted.add(path);
+        }
+        return deleted;
+    }
 
-            FolderModel folderInRepo;
+    private static boolean isBelow(String path, List<String> containers)
+    {
+        for (String container : containers)
+        {
+            if (path.startsWith(container + "/") || path.startsWith(container.replace("/documentLibrary", "") + "/"))
+            {
+                return true;
+            }
+        }
+        return false;
+    }
 
-            /*
-             * create a custom folder model
-             */
-            if (folder.isCustomModel())
+    /**
+     * @return the manifest key of a site member, with the username so the member can be removed once it is no longer in the XML file
+     */
+    private String memberPath(XMLSiteData site, XMLUserData member, UserModel admin)
+    {
+        return String.format("%s#member/%s", site.getFullLocation(), getUserBy(admin, member.getId()).getUsername());
+    }
+
+    private static String hashOf(XMLSiteData site)
+    {
+        return XMLDataManifest.hash(site.getName(), site.getVisibility(), site.getCreatedBy());
+    }
+
+    private static String hashOf(XMLUserData member)
+    {
+        return XMLDataManifest.hash(member.getId(), member.getRole());
+    }
+
+    private static String hashOf(XMLFolderData folder)
+    {
+        return XMLDataManifest.hash(folder.getName(), folder.getCreatedBy(), definitionOf(folder.getCustomModel()),
+                definitionOf(folder.getAspects(), folder.getComments(), folder.getTags()));
+    }
+
+    private static String hashOf(XMLFileData file)
+    {
+        return XMLDataManifest.hash(file.getName(), file.getCreatedBy(), file.getContent(), definitionOf(file.getCustomModel()),
+                definitionOf(file.getAspects(), file.getComments(), file.getTags()));
+    }
+
+    private static String definitionOf(XMLCustomModel customModel)
+    {
+        if (customModel == null)
+        {
+            return "";
+        }
+        StringBuilder definition = new StringBuilder(String.valueOf(customModel.getName()));
+        for (XMLPropertyData property : customModel.getProperties())
+        {
+            definition.append('|').append(property.getName()).append('=').append(property.getValue());
+        }
+        return definition.toString();
+    }
+
+    private static String definitionOf(List<XMLAspectData> aspects, List<XMLCommentData> comments, List<XMLTagData> tags)
+    {
+        StringBuilder definition = new StringBuilder();
+        for (XMLAspectData aspect : aspects)
+        {
+            definition.append("|aspect:").append(aspect.getName());
+            for (XMLPropertyData property : aspect.getProperties())
             {
-                LOG.info("Creating Custom Folder: {}", folder.getModel().toString());
-                folderInRepo = (FolderModel) dataContent.usingUser(userFolder).setCurrentSpace(location).createCustomContent(folder.getModel(),
-                        folder.getCustomModel().getName(), folder.getCustomModel().getObjectTypeProperties());
+                definition.append(',').append(property.getName()).append('=').append(property.getValue());
             }
-            else // create a basic folder model using standard CMIS object type id
+        }
+        for (XMLCommentData comment : comments)
+        {
+            definition.append("|comment:").append(comment.getCreatedBy()).append(':').append(comment.getValue());
+        }
+        for (XMLTagData tag : tags)
+        {
+            definition.append("|tag:").append(tag.getCreatedBy()).append(':').append(tag.getName());
+        }
+        return definition.toString();
+    }
+
+    /**
+     * State shared by the tasks of one load: the Data* instances, the items that are already up to date with their nodeRef
+     * and the manifest of what is created
+     */
+    private class Load
+    {
+        private final DataSite dataSite;
+        private final DataContent dataContent;
+        private final DataUser dataUser;
+        private final Map<String, String> upToDate;
+        private final XMLDataManifest manifest = new XMLDataManifest();
+
+        Load(DataSite dataSite, DataContent dataContent, DataUser dataUser, Map<String, String> upToDate)
+        {
+            this.dataSite = dataSite;
+            this.dataContent = dataContent;
+            this.dataUser = dataUser;
+            this.upToDate = upToDate;
+        }
+
+        List<Node> sites()
+        {
+            List<Node> sites = new ArrayList<Node>();
+            for (XMLSiteData site : getSites())
             {
+                sites.add(new SiteNode(site, this));
+            }
+            return sites;
+        }
+
+        /**
+         * @return true if <path> does not have to be created, because it is in the repository as defined
+         */
+        boolean isUpToDate(String path, boolean parentCreated)
+        {
+            return !parentCreated && upToDate.containsKey(path);
+        }
+
+        String getNodeRef(String path)
+        {
+            return upToDate.get(path);
+        }
+
+        void created(String path, Type type, String hash, String nodeRef)
+        {
+            manifest.put(path, new XMLDataManifest.Entry(type, hash, nodeRef));
+        }
+    }
+
+    /**
+     * Creates the site if it does not exist and adds its members, then its files and folders can be created
+     */
+    private class SiteNode implements Node
+    {
+        private final XMLSiteData site;
+        private final Load load;
 
-                // Note that folders may be created in the wrong location if using the v1 REST API as we are not setting LastNodeId.
-                folderInRepo = dataContent.usingUser(userFolder).setCurrentSpace(location).createFolder(folder.getModel(), false);
+        SiteNode(XMLSiteData site, Load load)
+        {
+            this.site = site;
+            this.load = load;
+        }
+
+        @Override
+        public List<Node> execute()
+        {
+            boolean created = false;
+            // the DataSite instance is shared by all sites
+            synchronized (load.dataSite)
+            {
+                if (load.dataSite.usingAdmin().isSiteCreated(site.getModel()))
+                {
+                    LOG.info("Skipping Site: {}. This site already exists in repository!", site.getFullLocation());
+                }
+                else
+                // create site with the user provided in XML file
+                {
+                    LOG.info("Creating Site: {}", site.getFullLocation());
+                    UserModel user = getUserBy(load.dataContent.getAdminUser(), site.getCreatedBy());
+                    load.dataSite.usingUser(user).createSite(site.getModel());
+                    created = true;
+                }
             }
+            load.created(site.getFullLocation(), Type.SITE, hashOf(site), site.getModel().getGuid());
 
-            addAspects(folder, folder.getAspects(), dataContent);
-            addComments(folderInRepo.getCmisLocation(), folder.getComments(), dataContent);
-            addTags(folderInRepo.getCmisLocation(), folder.getTags(), dataContent);
+            List<XMLUserData> members = new ArrayList<XMLUserData>();
+            for (XMLUserData member : site.getMembers())
+            {
+                if (!load.isUpToDate(memberPath(site, member, load.dataUser.getAdminUser()), created))
+                {
+                    members.add(member);
+                }
+            }
+            addMembers(members, site.getModel(), load.dataUser);
+            for (XMLUserData member : site.getMembers())
+            {
+                load.created(memberPath(site, member, load.dataUser.getAdminUser()), Type.MEMBER, hashOf(member), null);
+            }
 
-            createFilesStructure(folder.getFiles(), folderInRepo, dataContent);
-            createFolderStructure(folder.getFolders(), folderInRepo.getCmisLocation(), dataContent);
+            List<Node> children = new ArrayList<Node>();
+            for (XMLFileData file : site.getFiles())
+            {
+                children.add(new FileNode(file, site.getModel(), created, load));
+            }
+            for (XMLFolderData folder : site.getFolders())
+            {
+                children.add(new FolderNode(folder, site.getFullLocation(), created, load));
+            }
+            return children;
+        }
+
+        @Override
+        public String toString()
+        {
+            return "site " + site.getFullLocation();
         }
     }
 
     /**
-     * Creates file structure
-     * 
-     * @param filesStructure
-     * @param parentFolder
-     * @param dataContent
+     * Creates a folder, then its aspects, comments, tags, files and sub folders can be created
      */
-    private void createFilesStructure(List<XMLFileData> filesStructure, TestModel parentFolder, DataContent dataContent)
+    private class FolderNode implements Node
     {
-        // create files
-        for (XMLFileData file : filesStructure)
+        private final XMLFolderData folder;
+        private final String location;
+        private final boolean parentCreated;
+        private final Load load;
+
+        FolderNode(XMLFolderData folder, String location, boolean parentCreated, Load load)
+        {
+            this.folder = folder;
+            this.location = location;
+            this.parentCreated = parentCreated;
+            this.load = load;
+        }
+
+        @Override
+        public List<Node> execute()
         {
+            FolderModel folderInRepo = folder.getModel();
+            boolean created = !load.isUpToDate(folderInRepo.getCmisLocation(), parentCreated);
+            List<Node> children = new ArrayList<Node>();
+            if (!created)
+            {
+                folderInRepo.setNodeRef(load.getNodeRef(folderInRepo.getCmisLocation()));
+            }
+            else
+            {
+                /*
+                 * get the user model of the folder
+                 */
+                UserModel userFolder = getUserBy(load.dataContent.getAdminUser(), folder.getCreatedBy());
+                DataContent worker = load.dataContent.newWorker();
+
+                /*
+                 * create a custom folder model
+                 */
+                if (folder.isCustomModel())
+                {
+                    LOG.info("Creating Custom Folder: {}", folder.getModel().toString());
+                    folderInRepo = (FolderModel) worker.usingUser(userFolder).setCurrentSpace(location).createCustomContent(folder.getModel(),
+                            folder.getCustomModel().getName(), folder.getCustomModel().getObjectTypeProperties());
+                }
+                else // create a basic folder model using standard CMIS object type id
+                {
+
+                    // Note that folders may be created in the wrong location if using the v1 REST API as we are not setting LastNodeId.
+                    folderInRepo = worker.usingUser(userFolder).setCurrentSpace(location).createFolder(folder.getModel(), false);
+                }
+                load.created(folderInRepo.getCmisLocation(), Type.FOLDER, hashOf(folder), folderInRepo.getNodeRef());
+                children.addAll(decorations(folder, folderInRepo.getCmisLocation(), load.dataContent));
+            }
+
+            for (XMLFileData file : folder.getFiles())
+            {
+                children.add(new FileNode(file, folderInRepo, created, load));
+            }
+            for (XMLFolderData subFolder : folder.getFolders())
+            {
+                children.add(new FolderNode(subFolder, folderInRepo.getCmisLocation(), created, load));
+            }
+            return children;
+        }
+
+        @Override
+        public String toString()
+        {
+            return String.format("folder %s in %s", folder.getName(), location);
+        }
+    }
+
+    /**
+     * Creates a file in a site or folder, then its aspects, comments and tags can be added
+     */
+    private class FileNode implements Node
+    {
+        private final XMLFileData file;
+        private final TestModel parentFolder;
+        private final boolean parentCreated;
+        private final Load load;
+
+        FileNode(XMLFileData file, TestModel parentFolder, boolean parentCreated, Load load)
+        {
+            this.file = file;
+            this.parentFolder = parentFolder;
+            this.parentCreated = parentCreated;
+            this.load = load;
+        }
+
+        @Override
+        public List<Node> execute()
+        {
+            if (load.isUpToDate(file.getModel().getCmisLocation(), parentCreated))
+            {
+                return null;
+            }
             /*
-             * get the user model of the folder
+             * get the user model of the file
              */
-            UserModel userFile = getUserBy(dataContent.getAdminUser(), file.getCreatedBy());
+            UserModel userFile = getUserBy(load.dataContent.getAdminUser(), file.getCreatedBy());
+            DataContent worker = load.dataContent.newWorker();
             FileModel contentInRepo = null;
             if (parentFolder instanceof FolderModel)
             {
                 FolderModel parentFolderInCmis = (FolderModel) parentFolder;
+                worker.usingUser(userFile).usingResource(parentFolderInCmis).setCurrentSpace(parentFolderInCmis.getCmisLocation());
                 if (file.isCustomModel())
                 {
-                    dataContent.usingUser(userFile).usingResource(parentFolderInCmis).setCurrentSpace(parentFolderInCmis.getCmisLocation());
-                    contentInRepo = (FileModel) dataContent.createCustomContent(file.getModel(), file.getCustomModel().getName(),
+                    contentInRepo = (FileModel) worker.createCustomContent(file.getModel(), file.getCustomModel().getName(),
                             file.getCustomModel().getObjectTypeProperties());
                 }
                 else
                 {
-                    dataContent.usingUser(userFile).usingResource(parentFolderInCmis).setCurrentSpace(parentFolderInCmis.getCmisLocation());
-                    contentInRepo = dataContent.usingUser(userFile).createContent(file.getModel());
+                    contentInRepo = worker.createContent(file.getModel());
                 }
             }
 
             if (parentFolder instanceof SiteModel)
             {
                 if (file.isCustomModel())
-                    contentInRepo = (FileModel) dataContent.usingUser(userFile).usingSite((SiteModel) parentFolder).createCustomContent(file.getModel(),
+                    contentInRepo = (FileModel) worker.usingUser(userFile).usingSite((SiteModel) parentFolder).createCustomContent(file.getModel(),
                             file.getCustomModel().getName(), file.getCustomModel().getObjectTypeProperties());
                 else
-                    contentInRepo = dataContent.usingUser(userFile).usingSite((SiteModel) parentFolder).createContent(file.getModel());
+                    contentInRepo = worker.usingUser(userFile).usingSite((SiteModel) parentFolder).createContent(file.getModel());
             }
 
-            addAspects(file, file.getAspects(), dataContent);
-            addComments(contentInRepo.getCmisLocation(), file.getComments(), dataContent);
-            addTags(contentInRepo.getCmisLocation(), file.getTags(), dataContent);
+            load.created(contentInRepo.getCmisLocation(), Type.FILE, hashOf(file), contentInRepo.getNodeRef());
+            return decorations(file, contentInRepo.getCmisLocation(), load.dataContent);
+        }
+
+        @Override
+        public String toString()
+        {
+            return String.format("file %s in %s", file.getName(), parentFolder instanceof SiteModel ? ((SiteModel) parentFolder).getId()
+                    : ((FolderModel) parentFolder).getCmisLocation());
         }
     }
 
     /**
-     * Calling this method will delete entire test data structure from your alfresco repository
+     * @return one task for the aspects of <dataItem> and one task for each of its comments and tags
+     */
+    private List<Node> decorations(XMLDataItem dataItem, String objectPathInCmis, DataContent dataContent)
+    {
+        List<XMLAspectData> aspects = dataItem instanceof XMLFolderData ? ((XMLFolderData) dataItem).getAspects() : ((XMLFileData) dataItem).getAspects();
+        List<XMLCommentData> comments = dataItem instanceof XMLFolderData ? ((XMLFolderData) dataItem).getComments() : ((XMLFileData) dataItem).getComments();
+        List<XMLTagData> tags = dataItem instanceof XMLFolderData ? ((XMLFolderData) dataItem).getTags() : ((XMLFileData) dataItem).getTags();
+
+        List<Node> nodes = new ArrayList<Node>();
+        if (aspects.size() > 0)
+        {
+            nodes.add(new Decoration(String.format("%d aspects on %s", aspects.size(), objectPathInCmis),
+                    () -> addAspects(dataItem, aspects, dataContent.newWorker())));
+        }
+        if (comments.size() > 0)
+            LOG.info("Adding Comments Count: {} to object: {}", comments.size(), objectPathInCmis);
+        for (XMLCommentData comment : comments)
+        {
+            nodes.add(new Decoration(String.format("comment on %s", objectPathInCmis), () -> {
+                UserModel userComment = getUserBy(dataContent.getAdminUser(), comment.getCreatedBy());
+                dataContent.getContentActions().addComment(userComment.getUsername(), userComment.getPassword(), objectPathInCmis, comment.getValue());
+            }));
+        }
+        if (tags.size() > 0)
+            LOG.info("Adding Tags Count: {} to object: {}", tags.size(), objectPathInCmis);
+        for (XMLTagData tag : tags)
+        {
+            nodes.add(new Decoration(String.format("tag %s on %s", tag.getModel().getTag(), objectPathInCmis), () -> {
+                UserModel userTag = getUserBy(dataContent.getAdminUser(), tag.getCreatedBy());
+                dataContent.newWorker().usingUser(userTag).setLastResource(objectPathInCmis).addTagToContent(tag.getModel());
+            }));
+        }
+        return nodes;
+    }
+
+    /**
+     * Aspect, comment or tag added to a content, nothing depends on it
+     */
+    private static class Decoration implements Node
+    {
+        private final String description;
+        private final Runnable action;
+
+        Decoration(String description, Runnable action)
+        {
+            this.description = description;
+            this.action = action;
+        }
+
+        @Override
+        public List<Node> execute()
+        {
+            action.run();
+            return null;
+        }
+
+        @Override
+        public String toString()
+        {
+            return description;
+        }
+    }
+
+    /**
+     * Calling this method will delete entire test data structure from your alfresco repository.
+     * The sites are deleted in parallel, each with its whole document library, so their folders and files are not deleted one by one,
+     * then the trashcan is purged page by page, see {@link DataContent#purgeTrashcan(UserModel)}.
      * @throws TestConfigurationException
      */
     public void cleanup(DataContent dataContent) throws TestConfigurationException
     {
         LOG.info("Starting CLEANUP process...");
+        BulkExecutor executor = new BulkExecutor(dataContent.getTasProperties().getDataPrepParallelism());
+        List<SiteModel> siteModels = new ArrayList<SiteModel>();
         for (XMLSiteData site : getSites())
         {
-            for (XMLFolderData folder : site.getFolders())
-            {
-                dataContent.usingAdmin().deleteTree(folder.getModel());
-            }
-            for (XMLFileData file : site.getFiles())
-            {
-                if (dataContent.checkContent(file.getModel().getCmisLocation(), dataContent.getAdminUser()))
-                    try
-                    {
-                        dataContent.usingAdmin().usingResource(file.getModel()).deleteContent();
-                    }
-                    catch (Exception e)
-                    {
-                        LOG.error("Could not delete file: {}", file.getModel().toString());
-                    }
-            }
-            
-            dataContent.usingAdmin().deleteSite(site.getModel());
+            siteModels.add(site.getModel());
         }
+
+        BulkResult<SiteModel> siteResult = executor.execute("delete-site", siteModels, site -> {
+            dataContent.newWorker().usingAdmin().deleteSite(site);
+            return site;
+        });
+        for (SiteModel site : siteResult.getFailures().keySet())
+        {
+            LOG.error("Could not delete site: {}", site.getId());
+        }
+
         // Delete content from trashcan
-        dataContent.emptyUserTrashcan(dataContent.getAdminUser());
+        dataContent.purgeTrashcan(dataContent.getAdminUser());
         
         // Delete custom tas model
         try
@@ -257,7 +792,7 @@ public class XMLTestData extends XMLCollection
                 dataContent.usingAdmin().usingResource(customModel).deleteContent();
 
                 // Delete content model from trashcan
-                dataContent.emptyUserTrashcan(dataContent.getAdminUser());
+                dataContent.purgeTrashcan(dataContent.getAdminUser());
             }
             else
             {
@@ -281,26 +816,14 @@ public class XMLTestData extends XMLCollection
     {
         if (userIdFromXMLFile.toLowerCase().equals("admin"))
             return admin;
-        /*
-         * get the user model of the site
-         */
-        UserModel user = null;
-        for (XMLUserData u : users)
-        {
-            if (u.getId().equals(userIdFromXMLFile))
-            {
-                user = u.getModel();
-                break;
-            }
-        }
-
+        XMLUserData user = getIndex().getUser(userIdFromXMLFile);
         if (user == null)
         {
             String info = String.format("You want to use user with ID [%s] but this wasn't specified in <users> section in your xml file.", userIdFromXMLFile);
             throw new DataPreparationException(info);
         }
 
-        return user;
+        return user.getModel();
     }
 
     @Override
@@ -320,42 +843,20 @@ public class XMLTestData extends XMLCollection
      */
     private void addMembers(List<XMLUserData> membersStructure, SiteModel siteModel, DataUser dataUser)
     {
-        // add members to site
-        for (XMLUserData user : membersStructure)
+        if (membersStructure.isEmpty())
         {
-            // get UserModel from XML structure
-            UserModel userFile = getUserBy(dataUser.getAdminUser(), user.getId());
-
-            dataUser.addUserToSite(userFile, siteModel, UserRole.valueOf(user.getRole()));
+            return;
         }
-    }
-
-    /*
-     * apply all comments to created file
-     */
-    private void addComments(String objectPathInCmis, List<XMLCommentData> comments, DataContent dataContent) throws DataPreparationException
-    {
-        if (comments.size() > 0)
-            LOG.info("Adding Comments Count: {} to object: {}", comments.size(), objectPathInCmis);
-
-        for (XMLCommentData comment : comments)
+        Map<UserModel, UserRole> members = new LinkedHashMap<UserModel, UserRole>();
+        for (XMLUserData user : membersStructure)
         {
-            UserModel userComment = getUserBy(dataContent.getAdminUser(), comment.getCreatedBy());
-            dataContent.getContentActions().addComment(userComment.getUsername(), userComment.getPassword(), objectPathInCmis, comment.getValue());
+            // get UserModel from XML structure
+            members.put(getUserBy(dataUser.getAdminUser(), user.getId()), UserRole.valueOf(user.getRole()));
         }
-    }
-
-    /*
-     * applying all tags to created file
-     */
-    private void addTags(String objectPathInCmis, List<XMLTagData> tags, DataContent dataContent)
-    {
-        if (tags.size() > 0)
-            LOG.info("Adding Tags Count: {} to object: {}", tags.size(), objectPathInCmis);
-        for (XMLTagData tag : tags)
+        BulkResult<UserModel> result = dataUser.addUsersToSite(siteModel, members);
+        if (result.hasFailures())
         {
-            UserModel userTag = getUserBy(dataContent.getAdminUser(), tag.getCreatedBy());
-            dataContent.usingUser(userTag).setLastResource(objectPathInCmis).addTagToContent( tag.getModel());
+            throw new DataPreparationException(String.format("Could not add members to site %s: %s", siteModel.getId(), result.getSummary()));
         }
     }
 
@@ -387,12 +888,7 @@ public class XMLTestData extends XMLCollection
     @Override
     protected List<XMLDataItem> getImbricatedData()
     {
-        this.entireStructure.addAll(getUsers());
-        for (XMLSiteData site : getSites())
-        {
-            this.entireStructure.addAll(site.getEntireStructure());
-        }
-        return entireStructure;
+        return new ArrayList<XMLDataItem>(getIndex().getItems());
     }
 
     public void logEntireStructure()
@@ -411,21 +907,7 @@ public class XMLTestData extends XMLCollection
     public XMLDataItem getTestDataItemWithId(String id)
     {
         LOG.info("Searching for Test Data Item with id: {}", id);
-        XMLDataItem dataFound = null;
-        for (XMLDataItem item : getEntireStructure())
-        {
-            if (item.getId() == null)
-            {
-                LOG.error("Test Data Item  [{}] does not have id assigned", item.toString());
-                continue;
-            }
-            if (item.getId().equals(id))
-            {
-                dataFound = item;
-                break;
-            }
-        }
-
+        XMLDataItem dataFound = getIndex().getById(id);
         checkObjectIsInitialized(dataFound, "It seems you don't have a Test Data with ID " + id + " in your input xml file.");
         return dataFound;
     }
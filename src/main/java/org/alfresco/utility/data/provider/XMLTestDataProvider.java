@@ -1,38 +1,83 @@
 package org.alfresco.utility.data.provider;
 
-import org.alfresco.utility.Utility;
 import org.alfresco.utility.exception.DataPreparationException;
 import org.alfresco.utility.model.QueryModel;
 import org.testng.annotations.DataProvider;
 
 import javax.xml.bind.JAXBContext;
+import javax.xml.bind.JAXBException;
 import javax.xml.bind.Unmarshaller;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.BufferedInputStream;
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
 import java.lang.reflect.Method;
-import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.function.Predicate;
 
 /**
  * 
  * Provides test data providers based on XML input file
  * 
- * This class is working in correlation with {@link XMLDataConfig} annotation
+ * This class is working in correlation with {@link XMLDataConfig} annotation.
+ * With {@link XMLDataConfig#streaming()} the sites, users and queries are read one by one while the test iterates over them,
+ * so the whole file is never kept in memory.
+ * With {@link XMLDataConfig#createdBy()} only the sites, folders or files created by that user are returned.
+ * Each provider only returns the rows of the current {@link XMLDataShard}, so several agents can share the same file,
+ * and has a <code>...Parallel</code> variant declared with <code>@DataProvider(parallel = true)</code>.
  * @author Paul Brodner
  *
  */
 public class XMLTestDataProvider
 {
-    private static XMLTestData initializeXMLFileData(Method m) throws Exception
+    private static final XMLInputFactory XML_INPUT_FACTORY = XMLInputFactory.newInstance();
+    static
+    {
+        XML_INPUT_FACTORY.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        XML_INPUT_FACTORY.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+    }
+
+    /**
+     * The context is thread safe and expensive to create, so it is created once
+     */
+    private static class ContextHolder
+    {
+        private static final JAXBContext CONTEXT = newContext();
+
+        private static JAXBContext newContext()
+        {
+            try
+            {
+                return JAXBContext.newInstance(XMLTestData.class);
+            }
+            catch (JAXBException e)
+            {
+                throw new DataPreparationException(e);
+            }
+        }
+    }
+
+    private static XMLDataConfig getConfig(Method m)
     {
         XMLDataConfig config = (m.getAnnotation(XMLDataConfig.class));
         if(config==null)
         {            
             throw new DataPreparationException("Please annotate your test that is using XMLTestDataProvider with @XMLDataConfig(file='../location-to-your-xml-test-data-file.xml'");
         }
-        Utility.waitToLoopTime(2);
-        JAXBContext context = JAXBContext.newInstance(XMLTestData.class);
-        Unmarshaller um = context.createUnmarshaller();
+        return config;
+    }
+
+    private static XMLTestData initializeXMLFileData(Method m) throws Exception
+    {
+        XMLDataConfig config = getConfig(m);
+        Unmarshaller um = ContextHolder.CONTEXT.createUnmarshaller();
         XMLTestData dataProvider = (XMLTestData) um.unmarshal(new File(config.file()));
         return dataProvider;
     }
@@ -46,33 +91,84 @@ public class XMLTestDataProvider
     @DataProvider
     public static Iterator<Object[]> getSitesData(Method m) throws Exception
     {
-        List<Object[]> dataToBeReturned = new ArrayList<Object[]>();
-
-        XMLTestData dataReader = initializeXMLFileData(m);
-        List<XMLSiteData> sites = dataReader.getSites();
-
-        for (XMLSiteData site : sites)
+        XMLDataConfig config = getConfig(m);
+        if (config.streaming())
         {
-            dataToBeReturned.add(new Object[] { site });
+            Predicate<XMLSiteData> filter = config.createdBy().isEmpty() ? site -> true : site -> config.createdBy().equals(site.getCreatedBy());
+            return stream(config, "sites", "site", XMLSiteData.class, filter);
         }
+        XMLTestData dataReader = initializeXMLFileData(m);
+        return toRows(config, config.createdBy().isEmpty() ? dataReader.getSites() : dataReader.getIndex().getCreatedBy(config.createdBy(), XMLSiteData.class));
+    }
 
-        return dataToBeReturned.iterator();
+    @DataProvider(parallel = true)
+    public static Iterator<Object[]> getSitesDataParallel(Method m) throws Exception
+    {
+        return getSitesData(m);
     }
 
+    /**
+     * Get all folders of all sites, at any level, from the input xml "*.xml" used as input data in tests
+     * 
+     * @return iterator over the list of XMLFolderData, with their location set
+     * @throws Exception
+     */
     @DataProvider
-    public static Iterator<Object[]> getUsersData(Method m) throws Exception
+    public static Iterator<Object[]> getFoldersData(Method m) throws Exception
     {
-        List<Object[]> dataToBeReturned = new ArrayList<Object[]>();
+        return toRows(getConfig(m), getItems(m, XMLFolderData.class));
+    }
 
-        XMLTestData dataReader = initializeXMLFileData(m);
-        List<XMLUserData> users = dataReader.getUsers();
+    @DataProvider(parallel = true)
+    public static Iterator<Object[]> getFoldersDataParallel(Method m) throws Exception
+    {
+        return getFoldersData(m);
+    }
+
+    /**
+     * Get all files of all sites, at any level, from the input xml "*.xml" used as input data in tests
+     * 
+     * @return iterator over the list of XMLFileData, with their location set
+     * @throws Exception
+     */
+    @DataProvider
+    public static Iterator<Object[]> getFilesData(Method m) throws Exception
+    {
+        return toRows(getConfig(m), getItems(m, XMLFileData.class));
+    }
 
-        for (XMLUserData user : users)
+    @DataProvider(parallel = true)
+    public static Iterator<Object[]> getFilesDataParallel(Method m) throws Exception
+    {
+        return getFilesData(m);
+    }
+
+    /**
+     * Folders and files are nested in the sites, so they are always read from the whole file, even with {@link XMLDataConfig#streaming()}
+     */
+    private static <T extends XMLDataItem> List<T> getItems(Method m, Class<T> type) throws Exception
+    {
+        XMLDataConfig config = getConfig(m);
+        XMLDataIndex index = initializeXMLFileData(m).getIndex();
+        return config.createdBy().isEmpty() ? index.getByType(type) : index.getCreatedBy(config.createdBy(), type);
+    }
+
+    @DataProvider
+    public static Iterator<Object[]> getUsersData(Method m) throws Exception
+    {
+        XMLDataConfig config = getConfig(m);
+        if (config.streaming())
         {
-            dataToBeReturned.add(new Object[] { user });
+            return stream(config, "users", "user", XMLUserData.class, user -> true);
         }
+        XMLTestData dataReader = initializeXMLFileData(m);
+        return toRows(config, dataReader.getUsers());
+    }
 
-        return dataToBeReturned.iterator();
+    @DataProvider(parallel = true)
+    public static Iterator<Object[]> getUsersDataParallel(Method m) throws Exception
+    {
+        return getUsersData(m);
     }
     
 
@@ -85,17 +181,19 @@ public class XMLTestDataProvider
     @DataProvider
     public static Iterator<Object[]> getQueriesData(Method m) throws Exception
     {
-        List<Object[]> dataToBeReturned = new ArrayList<Object[]>();
-
-        XMLTestData dataReader = initializeXMLFileData(m);
-        List<QueryModel> queries = dataReader.getQueries();
-
-        for (QueryModel query : queries)
+        XMLDataConfig config = getConfig(m);
+        if (config.streaming())
         {
-            dataToBeReturned.add(new Object[] { query });
+            return stream(config, "queries", "query", QueryModel.class, query -> true);
         }
+        XMLTestData dataReader = initializeXMLFileData(m);
+        return toRows(config, dataReader.getQueries());
+    }
 
-        return dataToBeReturned.iterator();
+    @DataProvider(parallel = true)
+    public static Iterator<Object[]> getQueriesDataParallel(Method m) throws Exception
+    {
+        return getQueriesData(m);
     }
 
     /**
@@ -111,4 +209,130 @@ public class XMLTestDataProvider
         XMLTestData dataFromXMLFile = initializeXMLFileData(m);
         return  new Object[][] { {dataFromXMLFile }};
     }
+
+    /**
+     * @return the rows of the current shard, see {@link XMLDataConfig#weighted()}
+     */
+    private static <T> Iterator<Object[]> toRows(XMLDataConfig config, List<T> items)
+    {
+        XMLDataShard shard = XMLDataShard.of(config);
+        List<T> selected = config.weighted() ? shard.selectWeighted(items) : shard.select(items);
+        return selected.stream().map(item -> new Object[] { item }).iterator();
+    }
+
+    /**
+     * Rows read one by one cannot be weighted, so the shard always takes one row out of <count>
+     */
+    private static <T> Iterator<Object[]> stream(XMLDataConfig config, String wrapper, String element, Class<T> type, Predicate<T> filter)
+            throws Exception
+    {
+        Predicate<T> shard = XMLDataShard.of(config).roundRobin();
+        return new StreamingIterator<T>(config.file(), wrapper, element, type, filter.and(shard));
+    }
+
+    /**
+     * Reads the <element> children of the <wrapper> element of the root, unmarshalling one of them each time a row is requested
+     * and skipping the ones rejected by <filter>.
+     * The file is closed once the last row is read.
+     */
+    private static class StreamingIterator<T> implements Iterator<Object[]>
+    {
+        private final String file;
+        private final String wrapper;
+        private final String element;
+        private final Class<T> type;
+        private final Predicate<T> filter;
+        private final InputStream input;
+        private final XMLStreamReader reader;
+        private final Unmarshaller unmarshaller;
+        private int depth;
+        private boolean inWrapper;
+        private T next;
+
+        StreamingIterator(String file, String wrapper, String element, Class<T> type, Predicate<T> filter) throws Exception
+        {
+            this.file = file;
+            this.wrapper = wrapper;
+            this.element = element;
+            this.type = type;
+            this.filter = filter;
+            this.input = new BufferedInputStream(new FileInputStream(file));
+            this.reader = XML_INPUT_FACTORY.createXMLStreamReader(input);
+            this.unmarshaller = ContextHolder.CONTEXT.createUnmarshaller();
+            this.next = fetch();
+        }
+
+        @Override
+        public boolean hasNext()
+        {
+            return next != null;
+        }
+
+        @Override
+        public Object[] next()
+        {
+            if (next == null)
+            {
+                throw new NoSuchElementException();
+            }
+            T current = next;
+            next = fetch();
+            return new Object[] { current };
+        }
+
+        private T fetch()
+        {
+            try
+            {
+                while (reader.hasNext())
+                {
+                    int event = reader.getEventType();
+                    if (event == XMLStreamConstants.START_ELEMENT)
+                    {
+                        depth++;
+                        if (depth == 2)
+                        {
+                            inWrapper = wrapper.equals(reader.getLocalName());
+                        }
+                        else if (depth == 3 && inWrapper && element.equals(reader.getLocalName()))
+                        {
+                            // the unmarshaller consumes the element up to its end tag
+                            T item = unmarshaller.unmarshal(reader, type).getValue();
+                            depth--;
+                            if (filter.test(item))
+                            {
+                                return item;
+                            }
+                            continue;
+                        }
+                    }
+                    else if (event == XMLStreamConstants.END_ELEMENT)
+                    {
+                        depth--;
+                    }
+                    reader.next();
+                }
+                close();
+                return null;
+            }
+            catch (XMLStreamException | JAXBException e)
+            {
+                close();
+                throw new DataPreparationException(String.format("Could not read <%s> from %s: %s", element, file, e.getMessage()));
+            }
+        }
+
+        private void close()
+        {
+            try
+            {
+                reader.close();
+                input.close();
+            }
+            catch (XMLStreamException | IOException e)
+            {
+                throw new DataPreparationException(e);
+            }
+        }
+    }
 }
@@ -2,6 +2,9 @@ package org.alfresco.utility.dsl;
 
 import static org.alfresco.utility.report.log.Step.STEP;
 
+import java.util.Collections;
+
+import org.alfresco.utility.data.ContentWaitEngine.WaitResult;
 import org.alfresco.utility.exception.TestConfigurationException;
 import org.testng.Assert;
 
@@ -20,11 +23,52 @@ public class DSLAssertion<Protocol>
         return (Protocol) dslProtocol;
     }
 
-    @SuppressWarnings("unchecked")
+    /**
+     * The content is searched on the server, as the test user
+     */
     public Protocol existsInRepo() throws TestConfigurationException
+    {
+        return existsInRepo(false);
+    }
+
+    /**
+     * @param useNodeRefIndex if true content created by the data preparation is found in the index without asking the server,
+     *            whatever the test user; only use it for content that this protocol did not change, move or delete
+     */
+    @SuppressWarnings("unchecked")
+    public Protocol existsInRepo(boolean useNodeRefIndex) throws TestConfigurationException
     {
         STEP(String.format("CMIS: Assert that content '%s' exists in repository", dslProtocol.getLastResourceWithoutPrefix()));
-        dslProtocol.dataContent.usingUser(dslProtocol.getTestUser()).setLastResource(dslProtocol.getLastResourceWithoutPrefix()).assertContentExist();
+        dslProtocol.dataContent.usingUser(dslProtocol.getTestUser()).setLastResource(dslProtocol.getLastResourceWithoutPrefix())
+                .assertContentExist(useNodeRefIndex);
+        return (Protocol) dslProtocol;
+    }
+
+    /**
+     * Wait up to <timeoutSeconds> until the content exists in repository, for content created asynchronously
+     */
+    @SuppressWarnings("unchecked")
+    public Protocol existsInRepoWithin(int timeoutSeconds) throws TestConfigurationException
+    {
+        String path = dslProtocol.getLastResourceWithoutPrefix();
+        STEP(String.format("CMIS: Assert that content '%s' exists in repository within %d seconds", path, timeoutSeconds));
+        WaitResult result = dslProtocol.dataContent.usingUser(dslProtocol.getTestUser()).waitUntilContentsAreCreated(Collections.singletonList(path),
+                timeoutSeconds);
+        Assert.assertTrue(result.isComplete(), String.format("Content {%s} was found in repository within %d seconds", path, timeoutSeconds));
+        return (Protocol) dslProtocol;
+    }
+
+    /**
+     * Wait up to <timeoutSeconds> until the content is removed from repository, for content deleted asynchronously
+     */
+    @SuppressWarnings("unchecked")
+    public Protocol doesNotExistInRepoWithin(int timeoutSeconds) throws TestConfigurationException
+    {
+        String path = dslProtocol.getLastResourceWithoutPrefix();
+        STEP(String.format("CMIS: Assert that content '%s' doesn't exist in repository within %d seconds", path, timeoutSeconds));
+        WaitResult result = dslProtocol.dataContent.usingUser(dslProtocol.getTestUser()).waitUntilContentsAreDeleted(Collections.singletonList(path),
+                timeoutSeconds);
+        Assert.assertTrue(result.isComplete(), String.format("Content {%s} was removed from repository within %d seconds", path, timeoutSeconds));
         return (Protocol) dslProtocol;
     }
 
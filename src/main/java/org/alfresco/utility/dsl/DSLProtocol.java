@@ -5,6 +5,7 @@ import static org.alfresco.utility.report.log.Step.STEP;
 import java.io.IOException;
 
 import org.alfresco.utility.Utility;
+import org.alfresco.utility.Wait;
 import org.alfresco.utility.data.ResourceContent;
 import org.alfresco.utility.exception.TestConfigurationException;
 import org.alfresco.utility.model.ContentModel;
@@ -273,7 +274,7 @@ public abstract class DSLProtocol<Client> extends DSLWrapper<Client> implements
     public Client waitSeconds(int seconds)
     {
         STEP(String.format("UTILITY: Waiting for %s seconds", seconds));
-        Utility.waitToLoopTime(seconds);
+        Wait.seconds(seconds);
         return (Client) this;
     }
 
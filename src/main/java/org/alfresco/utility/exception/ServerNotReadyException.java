@@ -0,0 +1,13 @@
+package org.alfresco.utility.exception;
+
+import org.alfresco.utility.network.ReadinessReport;
+
+public class ServerNotReadyException extends RuntimeException
+{
+    private static final long serialVersionUID = 1L;
+
+    public ServerNotReadyException(ReadinessReport report, long timeoutMillis)
+    {
+        super(String.format("Services are still not ready after %d ms: %s", timeoutMillis, report.getSummary()));
+    }
+}
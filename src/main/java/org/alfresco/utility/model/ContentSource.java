@@ -0,0 +1,136 @@
+package org.alfresco.utility.model;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.alfresco.utility.exception.IORuntimeException;
+
+/**
+ * Content of a {@link FileModel} that is read as a stream, so big files are never kept in memory.
+ * <code>
+ * fileModel.setContentSource(ContentSource.fromPath(Paths.get("big-file.pdf")));
+ * fileModel.setContentSource(ContentSource.repeating("abc", 500 * 1024 * 1024));
+ * </code>
+ */
+public interface ContentSource
+{
+    /**
+     * @return a new stream over the content; the caller is responsible for closing it
+     * @throws IOException
+     */
+    public InputStream openStream() throws IOException;
+
+    /**
+     * @return the length of the content in bytes, or -1 if it is not known
+     */
+    public long getLength();
+
+    /**
+     * Supplier of input streams, used by {@link ContentSource#fromSupplier(StreamSupplier, long)}
+     */
+    public interface StreamSupplier
+    {
+        public InputStream get() throws IOException;
+    }
+
+    /**
+     * @return content read from a file on disk
+     */
+    public static ContentSource fromPath(Path path)
+    {
+        return new ContentSource()
+        {
+            @Override
+            public InputStream openStream() throws IOException
+            {
+                return Files.newInputStream(path);
+            }
+
+            @Override
+            public long getLength()
+            {
+                try
+                {
+                    return Files.size(path);
+                }
+                catch (IOException e)
+                {
+                    throw new IORuntimeException(e);
+                }
+            }
+        };
+    }
+
+    /**
+     * @param supplier called each time the content is read
+     * @param length the length of the content in bytes, or -1 if not known
+     * @return content read from the streams returned by <supplier>
+     */
+    public static ContentSource fromSupplier(StreamSupplier supplier, long length)
+    {
+        return new ContentSource()
+        {
+            @Override
+            public InputStream openStream() throws IOException
+            {
+                return supplier.get();
+            }
+
+            @Override
+            public long getLength()
+            {
+                return length;
+            }
+        };
+    }
+
+    /**
+     * @return content of <length> bytes made by repeating the UTF-8 bytes of <pattern>, generated while it is read
+     */
+    public static ContentSource repeating(String pattern, long length)
+    {
+        byte[] bytes = pattern.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length == 0)
+        {
+            throw new IllegalArgumentException("Pattern of generated content cannot be empty");
+        }
+        return fromSupplier(() -> new InputStream()
+        {
+            private long position = 0;
+
+            @Override
+            public int read()
+            {
+                if (position >= length)
+                {
+                    return -1;
+                }
+                return bytes[(int) (position++ % bytes.length)] & 0xff;
+            }
+
+            @Override
+            public int read(byte[] buffer, int offset, int count)
+            {
+                if (position >= length)
+                {
+                    return -1;
+                }
+                int toRead = (int) Math.min(count, length - position);
+                for (int i = 0; i < toRead; i++)
+                {
+                    buffer[offset + i] = bytes[(int) (position++ % bytes.length)];
+                }
+                return toRead;
+            }
+
+            @Override
+            public int available()
+            {
+                return (int) Math.min(Integer.MAX_VALUE, length - position);
+            }
+        }, length);
+    }
+}
@@ -1,16 +1,22 @@
 package org.alfresco.utility.model;
 
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
 
 import org.alfresco.utility.Utility;
+import org.alfresco.utility.data.ContentGenerator;
 import org.alfresco.utility.data.RandomData;
 import org.alfresco.utility.exception.IORuntimeException;
+import org.apache.commons.io.IOUtils;
 import org.testng.reporters.Files;
 
 public class FileModel extends ContentModel
 {
     private String content="";
+    private ContentSource contentSource;
     private FileType fileType;
     
     public FileModel()
@@ -50,13 +56,30 @@ public class FileModel extends ContentModel
     
     public FileModel(FileModel originalFile)
     {
-        this(originalFile.getName(), originalFile.getTitle(), originalFile.getDescription(), originalFile.getFileType(), originalFile.getContent());
+        this(originalFile.getName(), originalFile.getTitle(), originalFile.getDescription(), originalFile.getFileType());
+        this.content = originalFile.content;
+        setContentSource(originalFile.getContentSource());
         setCmisLocation(originalFile.getCmisLocation());
         setProtocolLocation(originalFile.getProtocolLocation());
     }
 
+    /**
+     * If the content is defined with {@link #setContentSource(ContentSource)} it will be read in memory,
+     * so use {@link #openContentStream()} for big files
+     */
     public String getContent()
     {
+        if (content.isEmpty() && hasContentSource())
+        {
+            try (InputStream stream = contentSource.openStream())
+            {
+                return IOUtils.toString(stream, StandardCharsets.UTF_8);
+            }
+            catch (IOException e)
+            {
+                throw new IORuntimeException(e);
+            }
+        }
         return content;
     }
 
@@ -65,6 +88,57 @@ public class FileModel extends ContentModel
         this.content = content;
     }
 
+    public ContentSource getContentSource()
+    {
+        return contentSource;
+    }
+
+    /**
+     * Define the content as a stream (file on disk, generated content, etc.) that is sent without being kept in memory
+     */
+    public void setContentSource(ContentSource contentSource)
+    {
+        this.contentSource = contentSource;
+    }
+
+    public boolean hasContentSource()
+    {
+        return contentSource != null;
+    }
+
+    /**
+     * @return true if there is no content defined as {@link String} nor as {@link ContentSource}
+     */
+    public boolean hasNoContent()
+    {
+        return (content == null || content.isEmpty()) && !hasContentSource();
+    }
+
+    /**
+     * @return a new stream over the content of this file, read from {@link #getContentSource()} if defined
+     * @throws IOException
+     */
+    public InputStream openContentStream() throws IOException
+    {
+        if (hasContentSource())
+        {
+            return contentSource.openStream();
+        }
+        return new ByteArrayInputStream(content == null ? new byte[0] : content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @return the length of the content in bytes, or -1 if not known
+     */
+    public long getContentLength()
+    {
+        if (hasContentSource())
+        {
+            return contentSource.getLength();
+        }
+        return content == null ? 0 : content.getBytes(StandardCharsets.UTF_8).length;
+    }
+
     public FileType getFileType()
     {
         if(this.fileType==null)
@@ -99,6 +173,19 @@ public class FileModel extends ContentModel
         return newFileModel;
     }
     
+    /**
+     * Generates a new random {@link FileModel} object with <size> bytes of content valid for <fileType>, see {@link ContentGenerator}.
+     * The content is generated while it is uploaded, so it is not kept in memory
+     *
+     * @throws IllegalArgumentException if no valid content can be generated for <fileType>
+     */
+    public static FileModel getRandomFileModel(FileType fileType, long size)
+    {
+        FileModel newFileModel = ContentGenerator.forFileType(fileType, System.nanoTime()).toFileModel(RandomData.getRandomFile(fileType), size);
+        LOG.info("Generating new FileModel: {}", newFileModel.toString());
+        return newFileModel;
+    }
+
     public File toFile()
     {
         return new File(getName());
@@ -140,7 +227,8 @@ public class FileModel extends ContentModel
         String workingCopyName = nameNoType + " (Working Copy)." + type;
         workingCopy.setName(workingCopyName);
         workingCopy.setFileType(FileType.fromName(getName()));
-        workingCopy.setContent(getContent());
+        workingCopy.setContent(content);
+        workingCopy.setContentSource(getContentSource());
         workingCopy.setCmisLocation(getCmisLocation().replace(getName(), workingCopyName));
         workingCopy.setProtocolLocation(getProtocolLocation().replace(getName(), workingCopyName));
         return workingCopy;
@@ -148,13 +236,14 @@ public class FileModel extends ContentModel
 
     /**
      * Create a FileModel with content size of {@param size} MB
+     * The content is generated while it is uploaded, so it is not kept in memory
      *
      * e.g.: getFileModelWithContentSizeOfxMB(1) will return a FileModel with a content of 1 MB
      */
     public static FileModel getFileModelWithContentSizeOfxMB(int size)
     {
         FileModel contentModel = new FileModel(RandomData.getRandomName("file"), FileType.TEXT_PLAIN);
-        contentModel.setContent(new String(new char[1024 * 1024 * size]));
+        contentModel.setContentSource(ContentSource.repeating("This is a test file\n", 1024L * 1024 * size));
         return contentModel;
     }
 }
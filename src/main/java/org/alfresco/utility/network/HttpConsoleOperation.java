@@ -1,23 +1,29 @@
 package org.alfresco.utility.network;
 
-import java.io.BufferedReader;
 import java.io.IOException;
-import java.io.InputStreamReader;
-import java.net.URL;
-import java.net.URLConnection;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 import org.alfresco.utility.LogFactory;
 import org.alfresco.utility.TasProperties;
+import org.alfresco.utility.report.OperationMetrics;
 import org.apache.commons.codec.binary.Base64;
 import org.apache.http.HttpEntity;
 import org.apache.http.NameValuePair;
 import org.apache.http.client.entity.UrlEncodedFormEntity;
 import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpGet;
 import org.apache.http.client.methods.HttpPost;
+import org.apache.http.client.protocol.HttpClientContext;
+import org.apache.http.entity.ContentType;
+import org.apache.http.impl.client.BasicCookieStore;
 import org.apache.http.impl.client.CloseableHttpClient;
 import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
 import org.apache.http.message.BasicNameValuePair;
 import org.apache.http.util.EntityUtils;
 import org.jsoup.Jsoup;
@@ -27,23 +33,42 @@ import org.slf4j.Logger;
 import org.springframework.beans.factory.annotation.Autowired;
 
 /**
+ * All console operations share one pooled HTTP client, so connections are kept alive between the calls.
+ * 
  * @author Paul Brodner
  */
 public abstract class HttpConsoleOperation
 {
+    private static final int MAX_CONNECTIONS = 20;
+
     @Autowired
     protected TasProperties properties;
     protected static Logger LOG = LogFactory.getLogger();
 
     protected String relativePath;
-    private CloseableHttpClient httpclient;
 
     /**
-     * @return HTTP Client used in POST calls
+     * The client is created on first use and never closed, its idle connections are closed by the server
+     */
+    private static class ClientHolder
+    {
+        private static final CloseableHttpClient CLIENT = newClient();
+
+        private static CloseableHttpClient newClient()
+        {
+            PoolingHttpClientConnectionManager connectionManager = new PoolingHttpClientConnectionManager();
+            connectionManager.setMaxTotal(MAX_CONNECTIONS);
+            connectionManager.setDefaultMaxPerRoute(MAX_CONNECTIONS);
+            return HttpClients.custom().setConnectionManager(connectionManager).build();
+        }
+    }
+
+    /**
+     * @return HTTP Client used in POST and GET calls, shared by all console operations
      */
     public CloseableHttpClient getHttpClient()
     {
-        return httpclient;
+        return ClientHolder.CLIENT;
     }
 
     /**
@@ -54,7 +79,6 @@ public abstract class HttpConsoleOperation
     public HttpConsoleOperation(String relativePath)
     {
         this.relativePath = relativePath;
-        this.httpclient = HttpClients.createDefault();
     }
 
     /**
@@ -81,6 +105,49 @@ public abstract class HttpConsoleOperation
      * @throws IOException
      */
     public Element execute(BasicNameValuePair command) throws IOException
+    {
+        return execute(newContext(), command);
+    }
+
+    /**
+     * Execute <commands> one after the other in the same HTTP session, reusing the same kept alive connection
+     * <code>
+     * tenantConsole.execute(new BasicNameValuePair("tenant-cmd", "create t1 password"), new BasicNameValuePair("tenant-cmd", "show tenants"));
+     * </code>
+     * 
+     * @return the parsed response of each command
+     * @throws IOException
+     */
+    public List<Element> execute(BasicNameValuePair... commands) throws IOException
+    {
+        return execute(Arrays.asList(commands));
+    }
+
+    /**
+     * @see #execute(BasicNameValuePair...)
+     */
+    public List<Element> execute(List<BasicNameValuePair> commands) throws IOException
+    {
+        HttpClientContext context = newContext();
+        List<Element> responses = new ArrayList<Element>();
+        for (BasicNameValuePair command : commands)
+        {
+            responses.add(execute(context, command));
+        }
+        return responses;
+    }
+
+    /**
+     * Each call or group of calls has its own cookies, so sessions are not shared between the callers of the shared client
+     */
+    private HttpClientContext newContext()
+    {
+        HttpClientContext context = HttpClientContext.create();
+        context.setCookieStore(new BasicCookieStore());
+        return context;
+    }
+
+    private Element execute(HttpClientContext context, BasicNameValuePair command) throws IOException
     {
         HttpPost httpPost = new HttpPost(getAlfrescoConsolePath());
         httpPost.addHeader("Authorization", getAdminBasicAuthentication());
@@ -89,19 +156,32 @@ public abstract class HttpConsoleOperation
         commands.add(command);
         httpPost.setEntity(new UrlEncodedFormEntity(commands));
 
-        CloseableHttpResponse postResponse = getHttpClient().execute(httpPost);
+        OperationMetrics.Sample sample = OperationMetrics.start("console-command");
+        CloseableHttpResponse postResponse;
+        try
+        {
+            postResponse = getHttpClient().execute(httpPost, context);
+        }
+        catch (IOException e)
+        {
+            sample.failure();
+            throw e;
+        }
+        long bytes = 0;
         try
         {
             LOG.info("Executing command: {} -> Response: {}", commands, postResponse.getStatusLine());
             HttpEntity postEntity = postResponse.getEntity();
+            bytes = postEntity == null ? 0 : postEntity.getContentLength();
             EntityUtils.consume(postEntity);
         }
         finally
         {
             postResponse.close();
+            sample.stop(postResponse.getStatusLine().getStatusCode() < 400, bytes);
         }
 
-        return parsedResponse();
+        return parsedResponse(context);
     }
 
     /**
@@ -112,22 +192,32 @@ public abstract class HttpConsoleOperation
      */
     protected Document fullResponseDocument() throws IOException
     {
-        URL url = new URL(getAlfrescoConsolePath());
+        return fullResponseDocument(newContext());
+    }
 
-        URLConnection uc = url.openConnection();
-        uc.setRequestProperty("X-Requested-With", "TAS-Client");
-        uc.setRequestProperty("Authorization", getAdminBasicAuthentication());
+    /**
+     * The page is parsed while it is read from the response stream
+     */
+    private Document fullResponseDocument(HttpClientContext context) throws IOException
+    {
+        HttpGet httpGet = new HttpGet(getAlfrescoConsolePath());
+        httpGet.addHeader("X-Requested-With", "TAS-Client");
+        httpGet.addHeader("Authorization", getAdminBasicAuthentication());
 
-        String fullPage = "";
-        try (BufferedReader reader = new BufferedReader(new InputStreamReader(uc.getInputStream(), "UTF-8")))
+        try (CloseableHttpResponse getResponse = getHttpClient().execute(httpGet, context))
         {
-            for (String line; (line = reader.readLine()) != null;)
+            HttpEntity getEntity = getResponse.getEntity();
+            if (getResponse.getStatusLine().getStatusCode() >= 400)
             {
-                fullPage += line;
+                EntityUtils.consume(getEntity);
+                throw new IOException(String.format("Could not read %s: %s", getAlfrescoConsolePath(), getResponse.getStatusLine()));
+            }
+            Charset charset = ContentType.getOrDefault(getEntity).getCharset();
+            try (InputStream page = getEntity.getContent())
+            {
+                return Jsoup.parse(page, (charset == null ? StandardCharsets.UTF_8 : charset).name(), getAlfrescoConsolePath());
             }
         }
-
-        return Jsoup.parse(fullPage.toString());
     }
 
     /**
@@ -136,7 +226,12 @@ public abstract class HttpConsoleOperation
      */
     protected Element parsedResponse() throws IOException
     {
-        Element last = fullResponseDocument().select("div.column-full").last();
+        return parsedResponse(newContext());
+    }
+
+    private Element parsedResponse(HttpClientContext context) throws IOException
+    {
+        Element last = fullResponseDocument(context).select("div.column-full").last();
         LOG.info("Response: {}", last.toString());
         return last;
     }
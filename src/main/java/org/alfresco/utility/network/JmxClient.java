@@ -173,18 +173,50 @@ public class JmxClient implements Jmx
         boolean isAlive = false;
         try
         {
-            createJmxConnection();
+            getMBeanCount();
             isAlive = true;
         }
         catch (Exception e)
         {
             LOG.error("Cannot establish JMX Connection: {}", e.getMessage());
-            e.printStackTrace();
         }
 
         return isAlive;
     }
 
+    /**
+     * Ask the server for its number of MBeans, so a connection opened before the server was restarted is not taken for a live one.
+     * If the call fails the connection is dropped and the next call opens a new one.
+     *
+     * @return number of MBeans registered on the server
+     * @throws Exception if the server does not answer over JMX
+     */
+    public int getMBeanCount() throws Exception
+    {
+        try
+        {
+            return createJmxConnection().getMBeanServerConnection().getMBeanCount();
+        }
+        catch (Exception e)
+        {
+            dropConnection();
+            throw e;
+        }
+    }
+
+    private void dropConnection()
+    {
+        try
+        {
+            closeConnection();
+        }
+        catch (IOException e)
+        {
+            LOG.debug("Cannot close JMX Connection: {}", e.getMessage());
+        }
+        jmxConnector = null;
+    }
+
     /**
      * Use this to invoke operation methodName on mBean objectName
      * Example of usage: executeJMXMethod("Alfresco:Name=DatabaseInformation,Tool=SchemaValidator”, "validateSchema");
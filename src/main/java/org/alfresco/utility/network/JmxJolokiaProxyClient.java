@@ -12,7 +12,6 @@ import org.alfresco.utility.LogFactory;
 import org.alfresco.utility.TasProperties;
 import org.alfresco.utility.exception.EnvironmentConfigurationException;
 import org.apache.commons.httpclient.HttpClient;
-import org.apache.commons.httpclient.HttpException;
 import org.apache.commons.httpclient.methods.GetMethod;
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang3.CharEncoding;
@@ -123,13 +122,9 @@ public class JmxJolokiaProxyClient implements Jmx
             String response = IOUtils.toString(get.getResponseBodyAsStream(), CharEncoding.UTF_8);
             isEnabled = response.contains("agentId");
         }
-        catch (HttpException e)
-        {
-            e.printStackTrace();
-        }
         catch (IOException e)
         {
-            e.printStackTrace();
+            LOG.error("Cannot reach Jolokia agent: {}", e.getMessage());
         }
 
         get.releaseConnection();
@@ -0,0 +1,125 @@
+package org.alfresco.utility.network;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+import org.alfresco.utility.network.ServerHealth.Endpoint;
+
+/**
+ * Outcome of one round of {@link ServerHealth#probe(Endpoint...)}: whether each service answered and how long it took
+ */
+public class ReadinessReport
+{
+    /**
+     * Outcome of the check of one service
+     */
+    public static class Probe
+    {
+        private final Endpoint endpoint;
+        private final boolean ready;
+        private final long latencyMillis;
+        private final String detail;
+
+        public Probe(Endpoint endpoint, boolean ready, long latencyMillis, String detail)
+        {
+            this.endpoint = endpoint;
+            this.ready = ready;
+            this.latencyMillis = latencyMillis;
+            this.detail = detail;
+        }
+
+        public Endpoint getEndpoint()
+        {
+            return endpoint;
+        }
+
+        public boolean isReady()
+        {
+            return ready;
+        }
+
+        public long getLatencyMillis()
+        {
+            return latencyMillis;
+        }
+
+        /**
+         * @return the answer of the service, or the reason it is not ready
+         */
+        public String getDetail()
+        {
+            return detail;
+        }
+
+        @Override
+        public String toString()
+        {
+            return String.format("%s %s in %d ms (%s)", endpoint, ready ? "ready" : "NOT ready", latencyMillis, detail);
+        }
+    }
+
+    private final Map<Endpoint, Probe> probes = new EnumMap<Endpoint, Probe>(Endpoint.class);
+
+    void add(Probe probe)
+    {
+        probes.put(probe.getEndpoint(), probe);
+    }
+
+    /**
+     * @return true if all probed services are ready
+     */
+    public boolean isReady()
+    {
+        return getPendingEndpoints().isEmpty();
+    }
+
+    public boolean isReady(Endpoint endpoint)
+    {
+        Probe probe = probes.get(endpoint);
+        return probe != null && probe.isReady();
+    }
+
+    /**
+     * @return the probe of <endpoint>, null if it was not probed
+     */
+    public Probe getProbe(Endpoint endpoint)
+    {
+        return probes.get(endpoint);
+    }
+
+    public Collection<Probe> getProbes()
+    {
+        return Collections.unmodifiableCollection(probes.values());
+    }
+
+    /**
+     * @return the probed services that are not ready
+     */
+    public List<Endpoint> getPendingEndpoints()
+    {
+        List<Endpoint> pending = new ArrayList<Endpoint>();
+        for (Probe probe : probes.values())
+        {
+            if (!probe.isReady())
+            {
+                pending.add(probe.getEndpoint());
+            }
+        }
+        return pending;
+    }
+
+    public String getSummary()
+    {
+        return probes.values().toString();
+    }
+
+    @Override
+    public String toString()
+    {
+        return getSummary();
+    }
+}
@@ -5,27 +5,75 @@ import static org.alfresco.utility.report.log.Step.STEP;
 import java.io.IOException;
 import java.net.InetSocketAddress;
 import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.alfresco.utility.LogFactory;
 import org.alfresco.utility.TasProperties;
+import org.alfresco.utility.Wait;
+import org.alfresco.utility.exception.ServerNotReadyException;
 import org.alfresco.utility.exception.ServerReachableAlfrescoIsNotRunningException;
 import org.alfresco.utility.exception.ServerUnreachableException;
+import org.alfresco.utility.exception.TestConfigurationException;
+import org.alfresco.utility.network.ReadinessReport.Probe;
+import org.alfresco.utility.report.LatencyHistogram;
 import org.apache.commons.codec.binary.Base64;
-import org.apache.commons.httpclient.HttpClient;
-import org.apache.commons.httpclient.methods.GetMethod;
-import org.apache.commons.io.IOUtils;
-import org.apache.commons.lang3.CharEncoding;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.util.EntityUtils;
+import org.json.simple.JSONObject;
+import org.json.simple.JSONValue;
 import org.slf4j.Logger;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
+/**
+ * Checks that the test server and its services are up.
+ * {@link #awaitReady(Duration)} probes the repository, Solr, the sync service and JMX concurrently and retries with a growing pause
+ * until all of them answer, which is the quickest way to know a restarted stack can be used:
+ * <code>
+ * serverHealth.awaitReady(Duration.ofMinutes(5), Endpoint.REPOSITORY, Endpoint.SOLR);
+ * </code>
+ */
 @Service
 public class ServerHealth
 {
     private Logger LOG = LogFactory.getLogger();
     private static final String SERVER_VERSION_PATH = "/alfresco/service/api/server";
-    private String alfrescoEdition;
-    private String alfrescoVersion;
+    private static final String SOLR_STATUS_PATH = "/solr/admin/cores?action=STATUS&wt=json";
+    private static final String SYNC_HEALTH_PATH = "/alfresco/healthcheck";
+    private static final int PROBE_TIMEOUT_MILLIS = 5000;
+    private static final long MIN_BACKOFF_MILLIS = 250;
+    private static final long MAX_BACKOFF_MILLIS = 10000;
+
+    /**
+     * Services that can be probed
+     */
+    public enum Endpoint
+    {
+        REPOSITORY, SOLR, SYNC, JMX
+    }
+
+    private volatile String alfrescoEdition;
+    private volatile String alfrescoVersion;
+    private final Map<Endpoint, LatencyHistogram> latencies = new EnumMap<Endpoint, LatencyHistogram>(Endpoint.class);
+    private final Map<Endpoint, CompletableFuture<Probe>> running = new ConcurrentHashMap<Endpoint, CompletableFuture<Probe>>();
 
     @Autowired
     protected TasProperties properties;
@@ -33,18 +81,72 @@ public class ServerHealth
     @Autowired
     private TenantConsole tenantConsole;
 
+    @Autowired
+    private JmxBuilder jmxBuilder;
+
+    /**
+     * Probes run on their own daemon threads, a service that hangs does not delay the others.
+     * An endpoint has at most one probe running, so the pool does not grow while a service keeps hanging
+     */
+    private static final ThreadPoolExecutor PROBES = newProbePool();
+
+    private static ThreadPoolExecutor newProbePool()
+    {
+        int threads = Endpoint.values().length;
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(), probeThreadFactory());
+        pool.allowCoreThreadTimeOut(true);
+        return pool;
+    }
+
+    private static ThreadFactory probeThreadFactory()
+    {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, "server-health-probe-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    /**
+     * The client is shared by all probes, with short timeouts so a service that does not answer is reported quickly
+     */
+    private static class ClientHolder
+    {
+        private static final CloseableHttpClient CLIENT = HttpClients.custom()
+                .setDefaultRequestConfig(RequestConfig.custom().setConnectTimeout(PROBE_TIMEOUT_MILLIS).setConnectionRequestTimeout(PROBE_TIMEOUT_MILLIS)
+                        .setSocketTimeout(PROBE_TIMEOUT_MILLIS).build())
+                .setMaxConnTotal(Endpoint.values().length * 2).setMaxConnPerRoute(2).build();
+    }
+
+    public ServerHealth()
+    {
+        for (Endpoint endpoint : Endpoint.values())
+        {
+            latencies.put(endpoint, new LatencyHistogram());
+        }
+    }
+
     public String getAlfrescoEdition()
     {
         return alfrescoEdition;
     }
-    
+
     public String getAlfrescoVersion()
     {
         return alfrescoVersion;
     }
 
+    /**
+     * @return latency of all the probes of <endpoint> done so far
+     */
+    public LatencyHistogram getLatency(Endpoint endpoint)
+    {
+        return latencies.get(endpoint);
+    }
+
     public boolean isServerReachable(String server, int port)
-    {        
+    {
         boolean reachable = false;
         try
         {
@@ -87,51 +189,217 @@ public class ServerHealth
         if (!isServerReachable())
             throw new ServerUnreachableException(properties);
 
-        boolean isAlfrescoRunning = false;
-        GetMethod get;
-        String response;
         String alfrescoServerVersionPage = properties.getFullServerUrl() + SERVER_VERSION_PATH;
         LOG.info("Check Alfresco Test Server: {} is Online based on Admin System Summary Page {}.", properties.getServer(), alfrescoServerVersionPage);
-        try
+        Probe probe = probeEndpoint(Endpoint.REPOSITORY);
+        if (!probe.isReady())
         {
-            HttpClient client = new HttpClient();
+            LOG.error("Cannot GET {} page. Exception: {} ", alfrescoServerVersionPage, probe.getDetail());
+        }
+        return probe.isReady();
+    }
 
-            get = new GetMethod(alfrescoServerVersionPage);
-            String unhashedString = String.format("%s:%s", properties.getAdminUser(), properties.getAdminPassword());
-            get.setRequestHeader("Authorization", "Basic " + Base64.encodeBase64String(unhashedString.getBytes()));
+    /**
+     * Throw an exception if the server is not online.
+     *
+     * @throws ServerReachableAlfrescoIsNotRunningException If the server is not online.
+     */
+    public void assertServerIsOnline()
+    {
+        if (!isAlfrescoRunning())
+        {
+            throw new ServerReachableAlfrescoIsNotRunningException(properties);
+        }
+    }
+
+    /**
+     * Check all <endpoints> at the same time, once
+     *
+     * @return {@link ReadinessReport} with the state and latency of each endpoint
+     */
+    public ReadinessReport probe(Endpoint... endpoints)
+    {
+        List<CompletableFuture<Probe>> probes = new ArrayList<CompletableFuture<Probe>>();
+        for (Endpoint endpoint : endpoints)
+        {
+            // a probe still hanging from a previous round is awaited again instead of starting another one
+            CompletableFuture<Probe> probe = running.compute(endpoint,
+                    (key, previous) -> previous != null && !previous.isDone() ? previous : CompletableFuture.supplyAsync(() -> probeEndpoint(endpoint), PROBES));
+            // a probe that hangs, on JMX for instance, is reported as not ready when the HTTP probes would have timed out
+            probes.add(probe.copy()
+                    .completeOnTimeout(new Probe(endpoint, false, 2 * PROBE_TIMEOUT_MILLIS, "timed out"), 2 * PROBE_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS));
+        }
+        ReadinessReport report = new ReadinessReport();
+        for (CompletableFuture<Probe> probe : probes)
+        {
+            report.add(probe.join());
+        }
+        return report;
+    }
+
+    /**
+     * Wait until the endpoints defined by <code>serverHealth.endpoints</code> are ready, see {@link #awaitReady(Duration, Endpoint...)}
+     */
+    public ReadinessReport awaitReady(Duration timeout)
+    {
+        return awaitReady(timeout, getConfiguredEndpoints());
+    }
 
-            get.getParams().setSoTimeout(5000);
-            client.executeMethod(get);
-            response = IOUtils.toString(get.getResponseBodyAsStream(), CharEncoding.UTF_8);
+    /**
+     * Probe <endpoints> until all of them are ready, waiting between two rounds from 250 ms up to 10 seconds
+     *
+     * @return the report of the last round, in which all endpoints are ready
+     * @throws ServerNotReadyException if some endpoints are still not ready after <timeout>
+     */
+    public ReadinessReport awaitReady(Duration timeout, Endpoint... endpoints)
+    {
+        STEP(String.format("Wait up to %d seconds for %s to be ready", timeout.getSeconds(), Arrays.toString(endpoints)));
+        long deadline = System.nanoTime() + timeout.toNanos();
+        long backoff = MIN_BACKOFF_MILLIS;
+        while (true)
+        {
+            ReadinessReport report = probe(endpoints);
+            if (report.isReady())
+            {
+                LOG.info("Server is ready: {}", report.getSummary());
+                return report;
+            }
+            long remaining = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+            if (remaining <= 0)
+            {
+                throw new ServerNotReadyException(report, timeout.toMillis());
+            }
+            LOG.info("Waiting for {}: {}", report.getPendingEndpoints(), report.getSummary());
+            try
+            {
+                Wait.sleep(Math.min(backoff, remaining));
+            }
+            catch (InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+                throw new ServerNotReadyException(report, timeout.toMillis());
+            }
+            backoff = Math.min(backoff * 2, MAX_BACKOFF_MILLIS);
+        }
+    }
 
-            LOG.info(response.toString());
+    private Endpoint[] getConfiguredEndpoints()
+    {
+        List<Endpoint> endpoints = new ArrayList<Endpoint>();
+        for (String name : properties.getServerHealthEndpoints().split(","))
+        {
+            if (name.trim().isEmpty())
+            {
+                continue;
+            }
+            try
+            {
+                endpoints.add(Endpoint.valueOf(name.trim().toUpperCase(Locale.ENGLISH)));
+            }
+            catch (IllegalArgumentException e)
+            {
+                throw new TestConfigurationException(String.format("serverHealth.endpoints should contain only %s, found: %s",
+                        Arrays.toString(Endpoint.values()), name));
+            }
+        }
+        return endpoints.toArray(new Endpoint[endpoints.size()]);
+    }
 
-            get.releaseConnection();
-            isAlfrescoRunning = response.contains("version");
-            String responseEdition = response.split("\",")[0];
-            String responseVersion = response.split("\",")[1];
-            alfrescoEdition = responseEdition.substring(responseEdition.lastIndexOf("\"") + 1);
-            alfrescoVersion = responseVersion.substring(responseVersion.lastIndexOf("\"") + 1);
+    private Probe probeEndpoint(Endpoint endpoint)
+    {
+        long start = System.nanoTime();
+        boolean ready;
+        String detail;
+        try
+        {
+            detail = check(endpoint);
+            ready = true;
         }
-        catch (Exception ex)
+        catch (Exception e)
         {
-            LOG.error("Cannot GET {} page. Exception: {} ", alfrescoServerVersionPage, ex.getMessage());
-            isAlfrescoRunning = false;
+            detail = e.getMessage() == null ? e.getClass().getSimpleName() : e.getMessage();
+            ready = false;
         }
+        long latency = System.nanoTime() - start;
+        latencies.get(endpoint).recordNanos(latency);
+        return new Probe(endpoint, ready, TimeUnit.NANOSECONDS.toMillis(latency), detail);
+    }
 
-        return isAlfrescoRunning;
+    /**
+     * @return what the service answered
+     * @throws Exception if the service is not ready
+     */
+    private String check(Endpoint endpoint) throws Exception
+    {
+        switch (endpoint)
+        {
+            case REPOSITORY:
+                return checkRepository();
+            case SOLR:
+                get(String.format("%s:%d%s", properties.getSolrServerUrl(), properties.getSolrPort(), SOLR_STATUS_PATH), false);
+                return "cores available";
+            case SYNC:
+                get(String.format("%s:%d%s", properties.getSyncServerUrl(), properties.getSyncPort(), SYNC_HEALTH_PATH), false);
+                return "healthy";
+            case JMX:
+                return checkJmx();
+            default:
+                throw new IllegalArgumentException("Unknown endpoint " + endpoint);
+        }
     }
 
     /**
-     * Throw an exception if the server is not online.
-     *
-     * @throws ServerReachableAlfrescoIsNotRunningException If the server is not online.
+     * The JMX connection is kept open between calls, so the server is asked for something each time to know it still answers
      */
-    public void assertServerIsOnline()
+    private String checkJmx() throws Exception
     {
-        if (!isAlfrescoRunning())
+        Jmx jmx = jmxBuilder.getJmxClient();
+        if (jmx instanceof JmxClient)
         {
-            throw new ServerReachableAlfrescoIsNotRunningException(properties);
+            return String.format("%d MBeans", ((JmxClient) jmx).getMBeanCount());
+        }
+        // the Jolokia agent is called over HTTP each time
+        if (!jmx.isJMXEnabled())
+        {
+            throw new IOException("Jolokia agent is not available");
+        }
+        return "connected";
+    }
+
+    private String checkRepository() throws IOException
+    {
+        String response = get(properties.getFullServerUrl() + SERVER_VERSION_PATH, true);
+        Object json = JSONValue.parse(response);
+        Object data = json instanceof JSONObject ? ((JSONObject) json).get("data") : null;
+        if (!(data instanceof JSONObject) || ((JSONObject) data).get("version") == null)
+        {
+            throw new IOException("Unexpected server page: " + response);
+        }
+        alfrescoEdition = String.valueOf(((JSONObject) data).get("edition"));
+        alfrescoVersion = String.valueOf(((JSONObject) data).get("version"));
+        return String.format("%s %s", alfrescoEdition, alfrescoVersion);
+    }
+
+    /**
+     * @return the body of <url>
+     * @throws IOException if the service cannot be reached or does not answer with 200
+     */
+    private String get(String url, boolean authenticate) throws IOException
+    {
+        HttpGet get = new HttpGet(url);
+        if (authenticate)
+        {
+            String unhashedString = String.format("%s:%s", properties.getAdminUser(), properties.getAdminPassword());
+            get.addHeader("Authorization", "Basic " + Base64.encodeBase64String(unhashedString.getBytes()));
+        }
+        try (CloseableHttpResponse response = ClientHolder.CLIENT.execute(get))
+        {
+            String body = response.getEntity() == null ? "" : EntityUtils.toString(response.getEntity(), StandardCharsets.UTF_8);
+            if (response.getStatusLine().getStatusCode() != 200)
+            {
+                throw new IOException(String.format("%s answered %s", url, response.getStatusLine()));
+            }
+            return body;
         }
     }
 }
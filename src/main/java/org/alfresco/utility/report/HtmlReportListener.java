@@ -17,6 +17,7 @@ import java.util.stream.Collectors;
 
 import org.alfresco.utility.LogFactory;
 import org.alfresco.utility.Utility;
+import org.alfresco.utility.Wait;
 import org.alfresco.utility.exception.TestConfigurationException;
 import org.alfresco.utility.report.Bug.Status;
 import org.alfresco.utility.web.AbstractWebTest;
@@ -93,6 +94,17 @@ public class HtmlReportListener implements IReporter
             extent.setTestRunnerOutput(String.format("<pre>%s </pre>", contentTestRail));
         }
 
+        if (!OperationMetrics.getOperations().isEmpty())
+        {
+            LOG.info("Data preparation calls:{}{}", System.lineSeparator(), OperationMetrics.getSummary());
+            extent.setTestRunnerOutput(OperationMetrics.toHtml());
+        }
+        if (Wait.getTotalWaitTime() > 0)
+        {
+            LOG.info("Time spent waiting: {} ms", Wait.getTotalWaitTime());
+            extent.setTestRunnerOutput(String.format("<p>Time spent waiting: %d ms</p>", Wait.getTotalWaitTime()));
+        }
+
         String content = getLogsContent(getLogsLocation("log4j.appender.file.File", log4jProperties));
         extent.setTestRunnerOutput(String.format("<pre>%s </pre>", content));
 
@@ -188,6 +200,10 @@ public class HtmlReportListener implements IReporter
 
                 test.setStartedTime(getTime(result.getStartMillis()));
                 test.setEndedTime(getTime(result.getEndMillis()));
+                if (Wait.getWaitTime(result) > 0)
+                {
+                    test.log(LogStatus.INFO, String.format("Time spent waiting: %d ms", Wait.getWaitTime(result)));
+                }
 
                 for (String group : result.getMethod().getGroups())
                     test.assignCategory(group);
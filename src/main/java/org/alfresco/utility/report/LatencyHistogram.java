@@ -0,0 +1,181 @@
+package org.alfresco.utility.report;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Thread safe histogram of latencies, recorded in microseconds with a fixed memory footprint.
+ * Values are counted in buckets whose width grows with the value, so any percentile is within about 1.5% of the real value
+ * (values below 128 microseconds are exact), in the same way as an HdrHistogram with two significant digits.
+ * <code>
+ * long start = System.nanoTime();
+ * ...
+ * histogram.recordNanos(System.nanoTime() - start);
+ * histogram.getPercentile(99); // in milliseconds
+ * </code>
+ */
+public class LatencyHistogram
+{
+    private static final int SUB_BUCKET_BITS = 6;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKETS = (64 - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong sum = new AtomicLong();
+    private final AtomicLong max = new AtomicLong();
+
+    public void recordNanos(long nanos)
+    {
+        record(TimeUnit.NANOSECONDS.toMicros(nanos));
+    }
+
+    public void recordMillis(long millis)
+    {
+        record(TimeUnit.MILLISECONDS.toMicros(millis));
+    }
+
+    /**
+     * Add all values of <other> to this histogram
+     */
+    public void add(LatencyHistogram other)
+    {
+        for (int i = 0; i < BUCKETS; i++)
+        {
+            long bucketCount = other.counts.get(i);
+            if (bucketCount > 0)
+            {
+                counts.addAndGet(i, bucketCount);
+            }
+        }
+        count.addAndGet(other.count.get());
+        sum.addAndGet(other.sum.get());
+        max.accumulateAndGet(other.max.get(), Math::max);
+    }
+
+    /**
+     * @return a histogram with the values recorded in this one so far
+     */
+    public LatencyHistogram copy()
+    {
+        LatencyHistogram copy = new LatencyHistogram();
+        copy.add(this);
+        return copy;
+    }
+
+    /**
+     * @param earlier a {@link #copy()} of this histogram taken before
+     * @return a histogram with the values recorded in this one since <earlier>
+     */
+    public LatencyHistogram since(LatencyHistogram earlier)
+    {
+        LatencyHistogram difference = new LatencyHistogram();
+        int highest = -1;
+        for (int i = 0; i < BUCKETS; i++)
+        {
+            long bucketCount = counts.get(i) - earlier.counts.get(i);
+            if (bucketCount > 0)
+            {
+                difference.counts.set(i, bucketCount);
+                highest = i;
+            }
+        }
+        difference.count.set(Math.max(0, count.get() - earlier.count.get()));
+        difference.sum.set(Math.max(0, sum.get() - earlier.sum.get()));
+        // the maximum is exact if it was recorded since <earlier>, otherwise it is bounded by the highest bucket used since
+        long currentMax = max.get();
+        difference.max.set(currentMax > earlier.max.get() ? currentMax : highest < 0 ? 0 : Math.min(highestValue(highest), currentMax));
+        return difference;
+    }
+
+    public long getCount()
+    {
+        return count.get();
+    }
+
+    /**
+     * @return mean latency in milliseconds
+     */
+    public double getMean()
+    {
+        long total = count.get();
+        return total == 0 ? 0 : sum.get() / 1000.0 / total;
+    }
+
+    /**
+     * @return maximum latency in milliseconds
+     */
+    public double getMax()
+    {
+        return max.get() / 1000.0;
+    }
+
+    /**
+     * @param percentile between 0 and 100
+     * @return latency in milliseconds under which <percentile> % of the values are
+     */
+    public double getPercentile(double percentile)
+    {
+        long total = count.get();
+        if (total == 0)
+        {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(Math.min(percentile, 100) / 100 * total));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++)
+        {
+            seen += counts.get(i);
+            if (seen >= rank)
+            {
+                return Math.min(highestValue(i), max.get()) / 1000.0;
+            }
+        }
+        return getMax();
+    }
+
+    /**
+     * @return count, mean and the usual percentiles in milliseconds
+     */
+    public String getSummary()
+    {
+        return String.format("count=%d mean=%.1fms p50=%.1fms p90=%.1fms p99=%.1fms max=%.1fms", getCount(), getMean(), getPercentile(50),
+                getPercentile(90), getPercentile(99), getMax());
+    }
+
+    @Override
+    public String toString()
+    {
+        return getSummary();
+    }
+
+    private void record(long micros)
+    {
+        long value = Math.max(0, micros);
+        counts.incrementAndGet(bucket(value));
+        count.incrementAndGet();
+        sum.addAndGet(value);
+        max.accumulateAndGet(value, Math::max);
+    }
+
+    private static int bucket(long value)
+    {
+        if (value < 2 * SUB_BUCKETS)
+        {
+            return (int) value;
+        }
+        int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        return (shift + 1) * SUB_BUCKETS + (int) (value >>> shift) - SUB_BUCKETS;
+    }
+
+    private static long highestValue(int bucket)
+    {
+        if (bucket < 2 * SUB_BUCKETS)
+        {
+            return bucket;
+        }
+        int shift = bucket / SUB_BUCKETS - 1;
+        return ((long) (bucket % SUB_BUCKETS + SUB_BUCKETS + 1) << shift) - 1;
+    }
+}
@@ -0,0 +1,304 @@
+package org.alfresco.utility.report;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+/**
+ * Latency, errors and bytes of the calls made by the data preparation, grouped by operation (create-folder, create-site, cmis-path-lookup...).
+ * The metrics are kept for the whole JVM and written in the JSON and HTML reports at the end of the suite,
+ * the metrics of a part of the run are taken with {@link #snapshot()} and {@link #getOperationsSince(Map)}.
+ * <code>
+ * OperationMetrics.Sample sample = OperationMetrics.start("create-folder");
+ * HttpResponse response = client.execute(user, password, post);
+ * sample.stop(response.getStatusLine().getStatusCode() == HttpStatus.SC_CREATED, bytes);
+ * ...
+ * FolderModel folder = OperationMetrics.time("create-folder-cmis", () -> ...);
+ * OperationMetrics.get("create-folder").getP99Millis();
+ * </code>
+ */
+public final class OperationMetrics
+{
+    private static final Map<String, Operation> OPERATIONS = new ConcurrentHashMap<String, Operation>();
+
+    private OperationMetrics()
+    {
+    }
+
+    /**
+     * Metrics of one operation
+     */
+    public static class Operation
+    {
+        private final String name;
+        private final LatencyHistogram latency;
+        private final AtomicLong errors;
+        private final AtomicLong bytes;
+
+        Operation(String name)
+        {
+            this(name, new LatencyHistogram(), 0, 0);
+        }
+
+        private Operation(String name, LatencyHistogram latency, long errors, long bytes)
+        {
+            this.name = name;
+            this.latency = latency;
+            this.errors = new AtomicLong(errors);
+            this.bytes = new AtomicLong(bytes);
+        }
+
+        public String getName()
+        {
+            return name;
+        }
+
+        @JsonIgnore
+        public LatencyHistogram getLatency()
+        {
+            return latency;
+        }
+
+        public long getCount()
+        {
+            return latency.getCount();
+        }
+
+        public long getErrors()
+        {
+            return errors.get();
+        }
+
+        /**
+         * @return bytes sent and received, when the size of the bodies is known
+         */
+        public long getBytes()
+        {
+            return bytes.get();
+        }
+
+        public double getMeanMillis()
+        {
+            return latency.getMean();
+        }
+
+        public double getP50Millis()
+        {
+            return latency.getPercentile(50);
+        }
+
+        public double getP90Millis()
+        {
+            return latency.getPercentile(90);
+        }
+
+        public double getP99Millis()
+        {
+            return latency.getPercentile(99);
+        }
+
+        public double getMaxMillis()
+        {
+            return latency.getMax();
+        }
+
+        Operation copy()
+        {
+            return new Operation(name, latency.copy(), getErrors(), getBytes());
+        }
+
+        /**
+         * @param earlier a copy of this operation taken before
+         * @return the calls made since <earlier>
+         */
+        Operation since(Operation earlier)
+        {
+            return new Operation(name, latency.since(earlier.latency), getErrors() - earlier.getErrors(), getBytes() - earlier.getBytes());
+        }
+
+        void record(long nanos, boolean success, long byteCount)
+        {
+            latency.recordNanos(nanos);
+            if (!success)
+            {
+                errors.incrementAndGet();
+            }
+            if (byteCount > 0)
+            {
+                bytes.addAndGet(byteCount);
+            }
+        }
+
+        @Override
+        public String toString()
+        {
+            return String.format("%s: %s errors=%d bytes=%d", name, latency.getSummary(), getErrors(), getBytes());
+        }
+    }
+
+    /**
+     * A call being timed, see {@link OperationMetrics#start(String)}
+     */
+    public static class Sample
+    {
+        private final String operation;
+        private final long start = System.nanoTime();
+
+        Sample(String operation)
+        {
+            this.operation = operation;
+        }
+
+        public void success()
+        {
+            stop(true, 0);
+        }
+
+        public void failure()
+        {
+            stop(false, 0);
+        }
+
+        public void stop(boolean success, long bytes)
+        {
+            get(operation).record(System.nanoTime() - start, success, bytes);
+        }
+    }
+
+    public static Sample start(String operation)
+    {
+        return new Sample(operation);
+    }
+
+    /**
+     * Run <call> and record its latency under <operation>, as an error if it throws an exception
+     */
+    public static <T> T time(String operation, Supplier<T> call)
+    {
+        Sample sample = start(operation);
+        try
+        {
+            T result = call.get();
+            sample.success();
+            return result;
+        }
+        catch (RuntimeException | Error e)
+        {
+            sample.failure();
+            throw e;
+        }
+    }
+
+    /**
+     * Same as {@link #time(String, Supplier)} for the calls answering false when they fail, recorded as an error
+     */
+    public static boolean timeCheck(String operation, Supplier<Boolean> call)
+    {
+        Sample sample = start(operation);
+        try
+        {
+            boolean success = Boolean.TRUE.equals(call.get());
+            sample.stop(success, 0);
+            return success;
+        }
+        catch (RuntimeException | Error e)
+        {
+            sample.failure();
+            throw e;
+        }
+    }
+
+    public static void time(String operation, Runnable call)
+    {
+        time(operation, () -> {
+            call.run();
+            return null;
+        });
+    }
+
+    /**
+     * @return the metrics of <operation>, created empty if it was never called
+     */
+    public static Operation get(String operation)
+    {
+        return OPERATIONS.computeIfAbsent(operation, Operation::new);
+    }
+
+    /**
+     * @return the metrics of all operations called so far, sorted by name
+     */
+    public static Map<String, Operation> getOperations()
+    {
+        return new TreeMap<String, Operation>(OPERATIONS);
+    }
+
+    /**
+     * @return a copy of the metrics of all operations called so far, to be given to {@link #getOperationsSince(Map)}
+     */
+    public static Map<String, Operation> snapshot()
+    {
+        Map<String, Operation> snapshot = new TreeMap<String, Operation>();
+        for (Operation operation : OPERATIONS.values())
+        {
+            snapshot.put(operation.getName(), operation.copy());
+        }
+        return snapshot;
+    }
+
+    /**
+     * @param snapshot taken with {@link #snapshot()}
+     * @return the metrics of the operations called since <snapshot> was taken, sorted by name
+     */
+    public static Map<String, Operation> getOperationsSince(Map<String, Operation> snapshot)
+    {
+        Map<String, Operation> operations = new TreeMap<String, Operation>();
+        for (Operation operation : OPERATIONS.values())
+        {
+            Operation earlier = snapshot.get(operation.getName());
+            Operation since = earlier == null ? operation.copy() : operation.since(earlier);
+            if (since.getCount() > 0)
+            {
+                operations.put(since.getName(), since);
+            }
+        }
+        return operations;
+    }
+
+    public static void reset()
+    {
+        OPERATIONS.clear();
+    }
+
+    /**
+     * @return one line per operation
+     */
+    public static String getSummary()
+    {
+        StringBuilder summary = new StringBuilder();
+        for (Operation operation : getOperations().values())
+        {
+            summary.append(operation).append(System.lineSeparator());
+        }
+        return summary.toString();
+    }
+
+    /**
+     * @return the metrics of all operations as an HTML table
+     */
+    public static String toHtml()
+    {
+        StringBuilder html = new StringBuilder("<table><tr><th>Operation</th><th>Count</th><th>Errors</th><th>Bytes</th>"
+                + "<th>Mean (ms)</th><th>p50 (ms)</th><th>p90 (ms)</th><th>p99 (ms)</th><th>Max (ms)</th></tr>");
+        for (Operation operation : getOperations().values())
+        {
+            html.append(String.format("<tr><td>%s</td><td>%d</td><td>%d</td><td>%d</td><td>%.1f</td><td>%.1f</td><td>%.1f</td><td>%.1f</td><td>%.1f</td></tr>",
+                    operation.getName(), operation.getCount(), operation.getErrors(), operation.getBytes(), operation.getMeanMillis(),
+                    operation.getP50Millis(), operation.getP90Millis(), operation.getP99Millis(), operation.getMaxMillis()));
+        }
+        return html.append("</table>").toString();
+    }
+}
@@ -1,8 +1,12 @@
 package org.alfresco.utility.report.json;
 
+import java.util.Map;
+
 import org.alfresco.utility.LogFactory;
 import org.alfresco.utility.Utility;
+import org.alfresco.utility.Wait;
 import org.alfresco.utility.exception.TestConfigurationException;
+import org.alfresco.utility.report.OperationMetrics;
 import org.slf4j.Logger;
 import org.testng.ITestContext;
 import org.testng.ITestListener;
@@ -14,6 +18,11 @@ public class JsonReportListener implements ITestListener
 
     JsonSuite suite;
     String jsonPathFile = null;
+    /**
+     * Metrics when the current test started, the metrics are kept for the whole JVM and only the calls made by this test are written
+     */
+    Map<String, OperationMetrics.Operation> metricsAtStart;
+    long waitTimeAtStart;
 
     @Override
     public void onTestStart(ITestResult result)
@@ -58,6 +67,8 @@ public class JsonReportListener implements ITestListener
             }
 
         suite = new JsonSuite(context, jsonPathFile);
+        metricsAtStart = OperationMetrics.snapshot();
+        waitTimeAtStart = Wait.getTotalWaitTime();
     }
 
     @Override
@@ -66,6 +77,8 @@ public class JsonReportListener implements ITestListener
         try
         {
             suite.setFinishedAt(context.getEndDate().toString());
+            suite.setOperations(OperationMetrics.getOperationsSince(metricsAtStart));
+            suite.setWaitTime(Wait.getTotalWaitTime() - waitTimeAtStart);
             suite.writeToDisk();
         }
         catch (Exception e)
@@ -2,8 +2,11 @@ package org.alfresco.utility.report.json;
 
 import java.io.File;
 import java.nio.file.Paths;
+import java.util.Map;
 
 import org.alfresco.utility.Utility;
+import org.alfresco.utility.Wait;
+import org.alfresco.utility.report.OperationMetrics;
 import org.apache.commons.lang3.builder.ToStringBuilder;
 import org.apache.commons.lang3.builder.ToStringStyle;
 import org.testng.ITestContext;
@@ -17,6 +20,8 @@ public class JsonSuite
     private String jsonPathFile;
     private String startedAt;
     private String finishedAt;
+    private Map<String, OperationMetrics.Operation> operations;
+    private long waitTime;
 
     public JsonSuite(ITestContext context, String jsonPathFile)
     {
@@ -71,6 +76,32 @@ public class JsonSuite
         this.finishedAt = finishedAt;
     }
 
+    /**
+     * @return latency, errors and bytes of the data preparation calls, see {@link OperationMetrics}
+     */
+    public Map<String, OperationMetrics.Operation> getOperations()
+    {
+        return operations;
+    }
+
+    public void setOperations(Map<String, OperationMetrics.Operation> operations)
+    {
+        this.operations = operations;
+    }
+
+    /**
+     * @return milliseconds spent in {@link Wait} by all the tests
+     */
+    public long getWaitTime()
+    {
+        return waitTime;
+    }
+
+    public void setWaitTime(long waitTime)
+    {
+        this.waitTime = waitTime;
+    }
+
     public void writeToDisk() throws Exception
     {
         Utility.checkObjectIsInitialized(jsonPathFile, "jsonPathFile");
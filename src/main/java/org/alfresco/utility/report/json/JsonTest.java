@@ -7,6 +7,7 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 
+import org.alfresco.utility.Wait;
 import org.apache.commons.lang3.builder.ToStringBuilder;
 import org.apache.commons.lang3.builder.ToStringStyle;
 import org.testng.ITestResult;
@@ -21,6 +22,7 @@ public class JsonTest
     private String description;
     private String exception;
     private String status;
+    private long waitTime;
     private List<String> groups = new ArrayList<String>();
 
     @JsonProperty(value = "isConfig")
@@ -33,6 +35,7 @@ public class JsonTest
         setFinishedAt(result.getEndMillis());
         setStatus(getHumanReadableStatus(result.getStatus()));
         setGroups(Arrays.asList(result.getMethod().getGroups()));
+        setWaitTime(Wait.getWaitTime(result));
         
         if (!result.isSuccess())
         {
@@ -108,6 +111,19 @@ public class JsonTest
         this.status = status;
     }
 
+    /**
+     * @return milliseconds the test spent in {@link Wait}
+     */
+    public long getWaitTime()
+    {
+        return waitTime;
+    }
+
+    public void setWaitTime(long waitTime)
+    {
+        this.waitTime = waitTime;
+    }
+
     public String toString()
     {
         return ToStringBuilder.reflectionToString(this, ToStringStyle.MULTI_LINE_STYLE);
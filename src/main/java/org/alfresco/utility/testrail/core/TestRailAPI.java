@@ -19,6 +19,7 @@ import java.util.Properties;
 import javax.xml.bind.DatatypeConverter;
 
 import org.alfresco.utility.Utility;
+import org.alfresco.utility.Wait;
 import org.alfresco.utility.testrail.ExecutionType;
 import org.alfresco.utility.testrail.model.Result;
 import org.alfresco.utility.testrail.model.Run;
@@ -83,7 +84,7 @@ public class TestRailAPI
 
     public void waitForRateLimit()
     {
-        Utility.waitToLoopTime(getWateRateLimit(), "Based on Rate Limit defined in current *.properties file.");
+        Wait.seconds(getWateRateLimit(), "Based on Rate Limit defined in current *.properties file.");
     }
 
     private boolean readTestRailManagementSection()
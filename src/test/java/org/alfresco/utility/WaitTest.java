@@ -0,0 +1,114 @@
+package org.alfresco.utility;
+
+import java.util.concurrent.TimeUnit;
+
+import org.testng.Assert;
+import org.testng.Reporter;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.Test;
+
+public class WaitTest
+{
+    /**
+     * Time only moves when the thread parks, by at most <step> each time
+     */
+    private static class FakeClock implements Wait.Clock
+    {
+        private final long step;
+        private long now;
+        private int parks;
+        private int interruptAtPark = -1;
+
+        FakeClock(long stepMillis)
+        {
+            this.step = TimeUnit.MILLISECONDS.toNanos(stepMillis);
+        }
+
+        @Override
+        public long nanoTime()
+        {
+            return now;
+        }
+
+        @Override
+        public void park(long nanos)
+        {
+            Assert.assertTrue(nanos > 0, "parks only while the deadline is not reached");
+            now += Math.min(nanos, step);
+            if (++parks == interruptAtPark)
+            {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    @AfterMethod(alwaysRun = true)
+    public void restoreClock()
+    {
+        Wait.resetClock();
+        Thread.interrupted();
+    }
+
+    @Test
+    public void sleepParksUntilTheDeadline() throws InterruptedException
+    {
+        FakeClock clock = new FakeClock(400);
+        Wait.setClock(clock);
+        Wait.sleep(1500);
+        Assert.assertEquals(clock.parks, 4);
+        Assert.assertEquals(clock.now, TimeUnit.MILLISECONDS.toNanos(1500));
+
+        Wait.sleep(0);
+        Assert.assertEquals(clock.parks, 4);
+    }
+
+    @Test
+    public void interruptStopsTheWait()
+    {
+        FakeClock clock = new FakeClock(100);
+        clock.interruptAtPark = 2;
+        Wait.setClock(clock);
+        try
+        {
+            Wait.sleep(1000);
+            Assert.fail("the wait should be interrupted");
+        }
+        catch (InterruptedException e)
+        {
+            Assert.assertEquals(clock.parks, 2);
+            Assert.assertFalse(Thread.currentThread().isInterrupted());
+        }
+
+        // seconds() stops waiting too, and keeps the interrupted status
+        clock.interruptAtPark = 3;
+        Wait.seconds(10);
+        Assert.assertEquals(clock.parks, 3);
+        Assert.assertTrue(Thread.interrupted());
+    }
+
+    @Test
+    public void waitTimeIsAddedToTheCurrentTest() throws InterruptedException
+    {
+        Wait.setClock(new FakeClock(250));
+        long before = Wait.getWaitTime(Reporter.getCurrentTestResult());
+        long totalBefore = Wait.getTotalWaitTime();
+        Wait.sleep(1000);
+        Wait.sleep(500);
+        Assert.assertEquals(Wait.getWaitTime(Reporter.getCurrentTestResult()) - before, 1500);
+        Assert.assertTrue(Wait.getTotalWaitTime() - totalBefore >= 1500);
+
+        // an interrupted wait is counted up to the interruption
+        FakeClock clock = new FakeClock(100);
+        clock.interruptAtPark = 3;
+        Wait.setClock(clock);
+        try
+        {
+            Wait.sleep(1000);
+            Assert.fail("the wait should be interrupted");
+        }
+        catch (InterruptedException e)
+        {
+            Assert.assertEquals(Wait.getWaitTime(Reporter.getCurrentTestResult()) - before, 1800);
+        }
+    }
+}
@@ -0,0 +1,179 @@
+package org.alfresco.utility.data;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipInputStream;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+
+import org.alfresco.utility.data.ContentGenerator.Kind;
+import org.alfresco.utility.model.FileType;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class ContentGeneratorTest
+{
+    private static final long SEED = 42;
+
+    @Test
+    public void sameSeedGeneratesSameContent() throws IOException
+    {
+        Assert.assertEquals(generate(ContentGenerator.words(SEED), 100000), generate(ContentGenerator.words(SEED), 100000));
+        Assert.assertFalse(Arrays.equals(generate(ContentGenerator.words(SEED), 1000), generate(ContentGenerator.words(SEED + 1), 1000)));
+    }
+
+    @Test
+    public void generatedContentHasRequestedSize() throws IOException
+    {
+        for (Kind kind : Kind.values())
+        {
+            ContentGenerator generator = new ContentGenerator(kind, SEED);
+            Assert.assertEquals(generate(generator, 200000).length, 200000, kind.toString());
+            Assert.assertEquals(generator.getLength(200000), 200000, kind.toString());
+        }
+    }
+
+    @Test
+    public void pdfXrefPointsToObjects() throws IOException
+    {
+        for (long size : new long[] { 0, 1000, 300000 })
+        {
+            String pdf = new String(generate(ContentGenerator.forFileType(FileType.PDF, SEED), size), StandardCharsets.ISO_8859_1);
+            Assert.assertTrue(pdf.startsWith("%PDF-1.4\n"));
+            Assert.assertTrue(pdf.endsWith("%%EOF\n"));
+
+            Matcher startxref = Pattern.compile("startxref\n(\\d+)\n").matcher(pdf);
+            Assert.assertTrue(startxref.find());
+            int xref = Integer.parseInt(startxref.group(1));
+            Assert.assertTrue(pdf.startsWith("xref\n0 6\n", xref), "startxref points to the xref table");
+
+            Matcher entries = Pattern.compile("(\\d{10}) 00000 n \n").matcher(pdf.substring(xref));
+            for (int object = 1; object <= 5; object++)
+            {
+                Assert.assertTrue(entries.find());
+                int offset = Integer.parseInt(entries.group(1));
+                Assert.assertTrue(pdf.startsWith(object + " 0 obj\n", offset), "xref entry of object " + object);
+            }
+
+            Matcher length = Pattern.compile("<< /Length (\\d+) >>\nstream\n").matcher(pdf);
+            Assert.assertTrue(length.find());
+            int streamStart = length.end();
+            int streamEnd = pdf.indexOf("\nendstream", streamStart);
+            Assert.assertEquals(streamEnd - streamStart, Integer.parseInt(length.group(1)), "length of the content stream");
+        }
+    }
+
+    @Test
+    public void docxIsValidZip() throws IOException
+    {
+        for (long size : new long[] { 0, 1000, 300000 })
+        {
+            byte[] docx = generate(ContentGenerator.forFileType(FileType.MSWORD2007, SEED), size);
+
+            // entries read in order from the local headers, with their CRC checked
+            List<String> names = new ArrayList<String>();
+            try (ZipInputStream zip = new ZipInputStream(new ByteArrayInputStream(docx)))
+            {
+                ZipEntry entry;
+                while ((entry = zip.getNextEntry()) != null)
+                {
+                    names.add(entry.getName());
+                    readAll(zip);
+                }
+            }
+            Assert.assertEquals(names, Arrays.asList("[Content_Types].xml", "_rels/.rels", "word/document.xml"));
+
+            // entries read from the central directory
+            Path file = Files.createTempFile("generated", ".docx");
+            try
+            {
+                Files.write(file, docx);
+                try (ZipFile zip = new ZipFile(file.toFile()))
+                {
+                    Assert.assertEquals(zip.size(), 3);
+                    for (Enumeration<? extends ZipEntry> entries = zip.entries(); entries.hasMoreElements();)
+                    {
+                        ZipEntry entry = entries.nextElement();
+                        try (InputStream content = zip.getInputStream(entry))
+                        {
+                            Assert.assertEquals(readAll(content).length, entry.getSize(), entry.getName());
+                        }
+                    }
+                    try (InputStream document = zip.getInputStream(zip.getEntry("word/document.xml")))
+                    {
+                        assertWellFormedXml(readAll(document));
+                    }
+                }
+            }
+            finally
+            {
+                Files.delete(file);
+            }
+        }
+    }
+
+    @Test
+    public void textBasedTypesGenerateWellFormedMarkup() throws IOException
+    {
+        assertWellFormedXml(generate(ContentGenerator.forFileType(FileType.XML, SEED), 100000));
+        assertWellFormedXml(generate(ContentGenerator.forFileType(FileType.XML, SEED), 0));
+
+        String html = new String(generate(ContentGenerator.forFileType(FileType.HTML, SEED), 100000), StandardCharsets.US_ASCII);
+        Assert.assertTrue(html.startsWith("<!DOCTYPE html>"));
+        Assert.assertTrue(html.endsWith("</html>\n"));
+
+        String text = new String(generate(ContentGenerator.forFileType(FileType.TEXT_PLAIN, SEED), 100000), StandardCharsets.US_ASCII);
+        Assert.assertTrue(text.matches("[a-z \n]*"));
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void typesThatCannotBeGeneratedAreRejected()
+    {
+        ContentGenerator.forFileType(FileType.MSEXCEL2007, SEED);
+    }
+
+    private static byte[] generate(ContentGenerator generator, long size) throws IOException
+    {
+        try (InputStream stream = generator.openStream(size))
+        {
+            return readAll(stream);
+        }
+    }
+
+    private static byte[] readAll(InputStream stream) throws IOException
+    {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int read;
+        while ((read = stream.read(buffer)) != -1)
+        {
+            out.write(buffer, 0, read);
+        }
+        return out.toByteArray();
+    }
+
+    private static void assertWellFormedXml(byte[] xml)
+    {
+        try
+        {
+            DocumentBuilderFactory.newInstance().newDocumentBuilder().parse(new ByteArrayInputStream(xml));
+        }
+        catch (Exception e)
+        {
+            Assert.fail("Generated XML is not well formed: " + e.getMessage());
+        }
+    }
+}
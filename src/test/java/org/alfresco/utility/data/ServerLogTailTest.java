@@ -0,0 +1,56 @@
+package org.alfresco.utility.data;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class ServerLogTailTest
+{
+    private static List<String> lines(String... lines)
+    {
+        return Arrays.asList(lines);
+    }
+
+    @Test
+    public void newLinesFollowThePreviousTail()
+    {
+        List<String> previous = lines("a", "b", "c", "d");
+        Assert.assertEquals(ServerLogTail.indexAfterPrevious(previous, lines("a", "b", "c", "d")), 4, "nothing appended");
+        Assert.assertEquals(ServerLogTail.indexAfterPrevious(previous, lines("c", "d", "e", "f")), 2);
+        Assert.assertEquals(ServerLogTail.indexAfterPrevious(previous, lines("a", "b", "c", "d", "e")), 4, "bigger tail");
+        Assert.assertEquals(ServerLogTail.indexAfterPrevious(Collections.<String> emptyList(), lines("a", "b")), 0, "log was empty");
+    }
+
+    @Test
+    public void linesRepeatedInTheOverlapAreNotSkipped()
+    {
+        // the last lines read are logged again: only comparing them would take all new lines as already read
+        List<String> previous = lines("start", "x", "y");
+        Assert.assertEquals(ServerLogTail.indexAfterPrevious(previous, lines("start", "x", "y", "new", "x", "y")), 3);
+
+        // the overlap itself has repeated lines
+        previous = lines("a", "b", "a", "b", "c");
+        Assert.assertEquals(ServerLogTail.indexAfterPrevious(previous, lines("a", "b", "c", "a", "b")), 3);
+        Assert.assertEquals(ServerLogTail.indexAfterPrevious(previous, lines("b", "a", "b", "c", "a")), 4);
+    }
+
+    @Test
+    public void linesAppendedPastTheWindowAreNotFound()
+    {
+        List<String> previous = lines("a", "b", "c");
+        Assert.assertEquals(ServerLogTail.indexAfterPrevious(previous, lines("c", "d", "e")), 1, "one line still overlaps");
+        Assert.assertEquals(ServerLogTail.indexAfterPrevious(previous, lines("d", "e", "f")), -1, "the tail has to grow");
+        Assert.assertEquals(ServerLogTail.indexAfterPrevious(previous, lines("b", "c", "d", "e", "f", "g")), 2, "found in the bigger tail");
+    }
+
+    @Test
+    public void rotatedLogDoesNotOverlap()
+    {
+        List<String> previous = lines("a", "b", "c");
+        Assert.assertEquals(ServerLogTail.indexAfterPrevious(previous, lines("first line after rotation")), -1);
+        Assert.assertEquals(ServerLogTail.indexAfterPrevious(previous, Collections.<String> emptyList()), -1);
+    }
+}
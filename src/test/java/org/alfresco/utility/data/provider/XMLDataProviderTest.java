@@ -1,12 +1,28 @@
 package org.alfresco.utility.data.provider;
 
+import java.io.File;
+import java.lang.reflect.Method;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
 import javax.xml.datatype.DatatypeConfigurationException;
 
 import org.alfresco.utility.data.DataContent;
 import org.alfresco.utility.data.DataSite;
 import org.alfresco.utility.data.DataUser;
 import org.alfresco.utility.model.FolderModel;
+import org.alfresco.utility.data.provider.XMLDataManifest.Type;
 import org.alfresco.utility.model.QueryModel;
+import org.alfresco.utility.model.UserModel;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.context.testng.AbstractTestNGSpringContextTests;
@@ -18,6 +34,19 @@ import junit.framework.Assert;
 @ContextConfiguration("classpath:alfresco-tester-context.xml")
 public class XMLDataProviderTest extends AbstractTestNGSpringContextTests
 {
+    private static final String INPUT_DATA = "src/test/resources/example-input-data.xml";
+
+    /*
+     * Manifest paths of the items of the input data
+     */
+    private static final String SITE = "/Sites/thisIsTheSiteName/documentLibrary";
+    private static final String MEMBER = SITE + "#member/thisIsTheUserName";
+    private static final String FOLDER_1 = SITE + "/tas-folder1";
+    private static final String FILE_1 = FOLDER_1 + "/custom-file.txt";
+    private static final String FILE_2 = FOLDER_1 + "/standard-file.txt";
+    private static final String FILE_D3 = FOLDER_1 + "/tas-sub-file3-with-aspect.txt";
+    private static final String FOLDER_3 = SITE + "/tas-folder2";
+    private static final String FILE_3 = SITE + "/standard-file-in-root.txt";
 
     @Autowired
     DataUser userDataService;
@@ -83,4 +112,340 @@ public class XMLDataProviderTest extends AbstractTestNGSpringContextTests
         Assert.assertEquals(f1.getName(), "folder1");
     }
 
+    @Test
+    public void shardsSplitAllRows() throws Exception
+    {
+        XMLDataIndex index = loadInputData().getIndex();
+        assertShardsSplit(index.getItems());
+        assertShardsSplit(index.getCreatedBy("user-1"));
+        assertShardsSplit(index.getCreatedBy("user-1", XMLFileData.class));
+    }
+
+    @Test
+    public void shardsOfTheProvidersSplitTheRowsOfTheUser() throws Exception
+    {
+        List<Object> files = rows(XMLTestDataProvider.getFilesData(fixture("rowsOfUser")));
+        Assert.assertEquals(Arrays.asList("file-3", "file-2", "d3"), ids(files));
+        assertPartition(files, Arrays.asList(rows(XMLTestDataProvider.getFilesData(fixture("firstShardOfUser"))),
+                rows(XMLTestDataProvider.getFilesData(fixture("secondShardOfUser")))));
+        assertPartition(files, Arrays.asList(rows(XMLTestDataProvider.getFilesData(fixture("firstWeightedShardOfUser"))),
+                rows(XMLTestDataProvider.getFilesData(fixture("secondWeightedShardOfUser")))));
+
+        List<Object> folders = rows(XMLTestDataProvider.getFoldersData(fixture("rowsOfUser")));
+        Assert.assertEquals(Arrays.asList("folder-1", "folder-3"), ids(folders));
+        assertPartition(folders, Arrays.asList(rows(XMLTestDataProvider.getFoldersData(fixture("firstWeightedShardOfUser"))),
+                rows(XMLTestDataProvider.getFoldersData(fixture("secondWeightedShardOfUser")))));
+
+        List<Object> sites = rows(XMLTestDataProvider.getSitesData(fixture("streamedRowsOfUser")));
+        Assert.assertEquals(Arrays.asList("site-1"), ids(sites));
+        List<Object> streamedShards = new ArrayList<Object>();
+        streamedShards.addAll(rows(XMLTestDataProvider.getSitesData(fixture("firstStreamedShardOfUser"))));
+        streamedShards.addAll(rows(XMLTestDataProvider.getSitesData(fixture("secondStreamedShardOfUser"))));
+        Assert.assertEquals(ids(sites), ids(streamedShards));
+    }
+
+    @Test
+    public void streamingReturnsTheSameRows() throws Exception
+    {
+        Method loaded = fixture("allRows");
+        Method streamed = fixture("streamedRows");
+        Assert.assertEquals(ids(rows(XMLTestDataProvider.getUsersData(loaded))), ids(rows(XMLTestDataProvider.getUsersData(streamed))));
+        Assert.assertEquals(ids(rows(XMLTestDataProvider.getSitesData(loaded))), ids(rows(XMLTestDataProvider.getSitesData(streamed))));
+        Assert.assertEquals(ids(rows(XMLTestDataProvider.getQueriesData(loaded))), ids(rows(XMLTestDataProvider.getQueriesData(streamed))));
+        Assert.assertEquals(ids(rows(XMLTestDataProvider.getSitesData(fixture("rowsOfUser")))),
+                ids(rows(XMLTestDataProvider.getSitesData(fixture("streamedRowsOfUser")))));
+        Assert.assertTrue("the fixture has no admin site", rows(XMLTestDataProvider.getSitesData(fixture("streamedRowsOfAdmin"))).isEmpty());
+    }
+
+    @Test
+    public void indexFindsItemsByIdCreatorAndLocation() throws Exception
+    {
+        XMLDataIndex index = loadInputData().getIndex();
+        XMLSiteData site = (XMLSiteData) index.getById("site-1");
+        XMLFolderData folder = (XMLFolderData) index.getById("folder-1");
+        XMLFileData file = (XMLFileData) index.getById("file-1");
+        Assert.assertEquals("tas-folder1", folder.getName());
+        Assert.assertEquals("custom-file.txt", file.getName());
+        Assert.assertNull(index.getById("no-such-id"));
+
+        Assert.assertEquals(Arrays.asList("file-1"), ids(index.getCreatedBy("admin")));
+        Assert.assertEquals(Arrays.asList("site-1", "file-3", "folder-1", "id-of-comment", "id-of-tag", "file-2", "d3", "folder-3"),
+                ids(index.getCreatedBy("user-1")));
+        Assert.assertEquals(Arrays.asList("folder-1", "folder-3"), ids(index.getCreatedBy("user-1", XMLFolderData.class)));
+        Assert.assertTrue(index.getCreatedBy("no-such-user").isEmpty());
+
+        Assert.assertEquals(Arrays.asList("file-3", "folder-1", "folder-3"), ids(index.getChildren(site.getFullLocation())));
+        Assert.assertEquals(Arrays.asList("file-1", "file-2", "d3"), ids(index.getChildren(folder.getModel().getCmisLocation())));
+        Assert.assertTrue(index.getChildren("/Sites/no-such-site/documentLibrary").isEmpty());
+
+        Assert.assertSame(folder, index.getParent(file));
+        Assert.assertSame(site, index.getParent(folder));
+        Assert.assertSame(folder, index.getParent(index.getById("id-of-comment")));
+        Assert.assertSame(site, index.getParent(site.getMembers().get(0)));
+        Assert.assertNull(index.getParent(site));
+        Assert.assertNull(index.getParent(index.getUser("user-1")));
+    }
+
+    @Test
+    public void manifestHashIsStable() throws Exception
+    {
+        Assert.assertEquals(XMLDataManifest.hash("a", "b", null), XMLDataManifest.hash("a", "b", null));
+        Assert.assertEquals(64, XMLDataManifest.hash("a").length());
+        Assert.assertFalse("values are separated", XMLDataManifest.hash("ab", "").equals(XMLDataManifest.hash("a", "b")));
+        Assert.assertFalse(XMLDataManifest.hash("a", "b").equals(XMLDataManifest.hash("a", "c")));
+
+        // two reads of the same file define the same manifest
+        Map<String, XMLDataManifest.Entry> first = define(new XMLDataManifest(), new LinkedHashSet<String>());
+        Map<String, XMLDataManifest.Entry> second = define(new XMLDataManifest(), new LinkedHashSet<String>());
+        Assert.assertEquals(Arrays.asList(SITE, MEMBER, FILE_3, FOLDER_1, FILE_1, FILE_2, FILE_D3, FOLDER_3), new ArrayList<String>(first.keySet()));
+        for (String path : first.keySet())
+        {
+            Assert.assertEquals(path, first.get(path).getHash(), second.get(path).getHash());
+            Assert.assertEquals(path, first.get(path).getType(), second.get(path).getType());
+        }
+        Assert.assertEquals(Type.MEMBER, first.get(MEMBER).getType());
+        Assert.assertEquals(Type.FOLDER, first.get(FOLDER_1).getType());
+        Assert.assertEquals(Type.FILE, first.get(FILE_D3).getType());
+    }
+
+    @Test
+    public void manifestIsSavedAndLoadedSortedByPath() throws Exception
+    {
+        XMLDataManifest manifest = new XMLDataManifest();
+        manifest.put(FILE_1, new XMLDataManifest.Entry(Type.FILE, "h1", "workspace://SpacesStore/1"));
+        manifest.put(SITE, new XMLDataManifest.Entry(Type.SITE, "h2", null));
+        manifest.put(MEMBER, new XMLDataManifest.Entry(Type.MEMBER, "h3", null));
+        manifest.put(FOLDER_1, new XMLDataManifest.Entry(Type.FOLDER, "h4", "workspace://SpacesStore/4"));
+        Assert.assertEquals(Arrays.asList(SITE, MEMBER, FOLDER_1, FILE_1), new ArrayList<String>(manifest.getEntries().keySet()));
+
+        File file = Files.createTempFile("manifest", ".json").toFile();
+        try
+        {
+            manifest.save(file);
+            XMLDataManifest loaded = XMLDataManifest.load(file);
+            Assert.assertEquals(new ArrayList<String>(manifest.getEntries().keySet()), new ArrayList<String>(loaded.getEntries().keySet()));
+            for (String path : manifest.getEntries().keySet())
+            {
+                Assert.assertEquals(path, manifest.get(path).getType(), loaded.get(path).getType());
+                Assert.assertEquals(path, manifest.get(path).getHash(), loaded.get(path).getHash());
+                Assert.assertEquals(path, manifest.get(path).getNodeRef(), loaded.get(path).getNodeRef());
+            }
+        }
+        finally
+        {
+            Files.delete(file.toPath());
+        }
+        Assert.assertEquals(0, XMLDataManifest.load(file).size());
+    }
+
+    @Test
+    public void unchangedItemsAreNotDeleted() throws Exception
+    {
+        Set<String> unchanged = new LinkedHashSet<String>();
+        XMLDataManifest previous = manifestOf(define(new XMLDataManifest(), new LinkedHashSet<String>()));
+        Map<String, XMLDataManifest.Entry> defined = define(previous, unchanged);
+        Assert.assertTrue(XMLTestData.deletedPaths(previous, defined).isEmpty());
+        // sites are never created again, so they are not checked
+        Assert.assertEquals(Arrays.asList(MEMBER, FILE_3, FOLDER_1, FILE_1, FILE_2, FILE_D3, FOLDER_3), new ArrayList<String>(unchanged));
+    }
+
+    @Test
+    public void removedItemIsDeleted() throws Exception
+    {
+        XMLDataManifest previous = manifestOf(define(new XMLDataManifest(), new LinkedHashSet<String>()));
+        previous.put(FOLDER_1 + "/removed.txt", new XMLDataManifest.Entry(Type.FILE, "removed", "workspace://SpacesStore/removed"));
+        previous.put(SITE + "#member/removedUser", new XMLDataManifest.Entry(Type.MEMBER, "removed", null));
+        Assert.assertEquals(Arrays.asList(SITE + "#member/removedUser", FOLDER_1 + "/removed.txt"),
+                XMLTestData.deletedPaths(previous, define(previous, new LinkedHashSet<String>())));
+    }
+
+    @Test
+    public void changedItemIsDeletedAndCreatedAgain() throws Exception
+    {
+        XMLDataManifest previous = manifestOf(define(new XMLDataManifest(), new LinkedHashSet<String>()));
+        previous.get(FILE_2).setHash("changed");
+        previous.get(SITE).setHash("changed");
+        Set<String> unchanged = new LinkedHashSet<String>();
+        // a changed site is only recorded
+        Assert.assertEquals(Arrays.asList(FILE_2), XMLTestData.deletedPaths(previous, define(previous, unchanged)));
+        Assert.assertFalse(unchanged.contains(FILE_2));
+        Assert.assertTrue(unchanged.contains(FILE_1));
+    }
+
+    @Test
+    public void changedFolderIsDeletedWithItsContent() throws Exception
+    {
+        XMLDataManifest previous = manifestOf(define(new XMLDataManifest(), new LinkedHashSet<String>()));
+        previous.get(FOLDER_1).setHash("changed");
+        Set<String> unchanged = new LinkedHashSet<String>();
+        // the unchanged files of the folder go with it and are created again with it
+        Assert.assertEquals(Arrays.asList(FOLDER_1), XMLTestData.deletedPaths(previous, define(previous, unchanged)));
+        Assert.assertEquals(Arrays.asList(MEMBER, FILE_3, FOLDER_3), new ArrayList<String>(unchanged));
+    }
+
+    @Test
+    public void removedSiteIsDeletedWithItsMembersAndContent() throws Exception
+    {
+        XMLDataManifest previous = manifestOf(define(new XMLDataManifest(), new LinkedHashSet<String>()));
+        String removedSite = "/Sites/removedSite/documentLibrary";
+        previous.put(removedSite, new XMLDataManifest.Entry(Type.SITE, "removed", null));
+        previous.put(removedSite + "#member/thisIsTheUserName", new XMLDataManifest.Entry(Type.MEMBER, "removed", null));
+        previous.put(removedSite + "/folder", new XMLDataManifest.Entry(Type.FOLDER, "removed", "workspace://SpacesStore/folder"));
+        previous.put(removedSite + "/folder/file.txt", new XMLDataManifest.Entry(Type.FILE, "removed", "workspace://SpacesStore/file"));
+        // a site whose name starts with the removed one is not below it
+        previous.put("/Sites/removedSite2/documentLibrary/file.txt", new XMLDataManifest.Entry(Type.FILE, "removed", "workspace://SpacesStore/2"));
+        Assert.assertEquals(Arrays.asList(removedSite, "/Sites/removedSite2/documentLibrary/file.txt"),
+                XMLTestData.deletedPaths(previous, define(previous, new LinkedHashSet<String>())));
+    }
+
+    /*
+     * Fixtures: the data providers read their configuration from the annotation of the test method
+     */
+
+    @XMLDataConfig(file = INPUT_DATA)
+    void allRows()
+    {
+    }
+
+    @XMLDataConfig(file = INPUT_DATA, streaming = true)
+    void streamedRows()
+    {
+    }
+
+    @XMLDataConfig(file = INPUT_DATA, createdBy = "user-1")
+    void rowsOfUser()
+    {
+    }
+
+    @XMLDataConfig(file = INPUT_DATA, createdBy = "user-1", streaming = true)
+    void streamedRowsOfUser()
+    {
+    }
+
+    @XMLDataConfig(file = INPUT_DATA, createdBy = "admin", streaming = true)
+    void streamedRowsOfAdmin()
+    {
+    }
+
+    @XMLDataConfig(file = INPUT_DATA, createdBy = "user-1", shardIndex = 0, shardCount = 2)
+    void firstShardOfUser()
+    {
+    }
+
+    @XMLDataConfig(file = INPUT_DATA, createdBy = "user-1", shardIndex = 1, shardCount = 2)
+    void secondShardOfUser()
+    {
+    }
+
+    @XMLDataConfig(file = INPUT_DATA, createdBy = "user-1", shardIndex = 0, shardCount = 2, weighted = true)
+    void firstWeightedShardOfUser()
+    {
+    }
+
+    @XMLDataConfig(file = INPUT_DATA, createdBy = "user-1", shardIndex = 1, shardCount = 2, weighted = true)
+    void secondWeightedShardOfUser()
+    {
+    }
+
+    @XMLDataConfig(file = INPUT_DATA, createdBy = "user-1", shardIndex = 0, shardCount = 2, streaming = true)
+    void firstStreamedShardOfUser()
+    {
+    }
+
+    @XMLDataConfig(file = INPUT_DATA, createdBy = "user-1", shardIndex = 1, shardCount = 2, streaming = true)
+    void secondStreamedShardOfUser()
+    {
+    }
+
+    private static Method fixture(String name) throws NoSuchMethodException
+    {
+        return XMLDataProviderTest.class.getDeclaredMethod(name);
+    }
+
+    private static XMLTestData loadInputData() throws Exception
+    {
+        return (XMLTestData) XMLTestDataProvider.getAllData(fixture("allRows"))[0][0];
+    }
+
+    /**
+     * @return the manifest entries of the input data, read again from the file, compared with <previous>
+     */
+    private static Map<String, XMLDataManifest.Entry> define(XMLDataManifest previous, Set<String> unchanged) throws Exception
+    {
+        return loadInputData().define(previous, new UserModel("admin", "admin"), unchanged);
+    }
+
+    private static XMLDataManifest manifestOf(Map<String, XMLDataManifest.Entry> defined)
+    {
+        XMLDataManifest manifest = new XMLDataManifest();
+        for (Map.Entry<String, XMLDataManifest.Entry> item : defined.entrySet())
+        {
+            manifest.put(item.getKey(), new XMLDataManifest.Entry(item.getValue().getType(), item.getValue().getHash(), null));
+        }
+        return manifest;
+    }
+
+    private static List<Object> rows(Iterator<Object[]> provider)
+    {
+        List<Object> rows = new ArrayList<Object>();
+        provider.forEachRemaining(row -> rows.add(row[0]));
+        return rows;
+    }
+
+    private static List<String> ids(List<?> rows)
+    {
+        return rows.stream().map(row -> row instanceof QueryModel ? ((QueryModel) row).getValue() : ((XMLDataItem) row).getId())
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Every way of sharding <items>, with 1 to 5 shards, gives each item to exactly one shard
+     */
+    private static <T> void assertShardsSplit(List<T> items)
+    {
+        for (int count = 1; count <= 5; count++)
+        {
+            List<List<T>> selected = new ArrayList<List<T>>();
+            List<List<T>> weighted = new ArrayList<List<T>>();
+            List<List<T>> roundRobin = new ArrayList<List<T>>();
+            for (int index = 0; index < count; index++)
+            {
+                XMLDataShard shard = new XMLDataShard(index, count);
+                selected.add(shard.select(items));
+                weighted.add(shard.selectWeighted(items));
+                Predicate<T> filter = shard.roundRobin();
+                roundRobin.add(items.stream().filter(filter).collect(Collectors.toList()));
+            }
+            assertPartition(items, selected);
+            assertPartition(items, weighted);
+            assertPartition(items, roundRobin);
+            Assert.assertEquals("streamed rows are split like the loaded ones", selected, roundRobin);
+        }
+    }
+
+    /**
+     * The shards are disjoint, cover all <items> and keep the order of the file
+     */
+    private static <T> void assertPartition(List<T> items, List<List<T>> shards)
+    {
+        Map<T, Integer> positions = new IdentityHashMap<T, Integer>();
+        for (int i = 0; i < items.size(); i++)
+        {
+            positions.put(items.get(i), i);
+        }
+        Map<T, Integer> owners = new IdentityHashMap<T, Integer>();
+        for (int shard = 0; shard < shards.size(); shard++)
+        {
+            int previous = -1;
+            for (T item : shards.get(shard))
+            {
+                Integer position = positions.get(item);
+                Assert.assertNotNull(String.format("%s of shard %d is not a row", item, shard), position);
+                Assert.assertNull(String.format("%s is in several shards", item), owners.put(item, shard));
+                Assert.assertTrue(String.format("shard %d is not in the order of the file", shard), position > previous);
+                previous = position;
+            }
+        }
+        Assert.assertEquals("all rows are in a shard", items.size(), owners.size());
+    }
 }
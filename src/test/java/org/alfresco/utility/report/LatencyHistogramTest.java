@@ -0,0 +1,124 @@
+package org.alfresco.utility.report;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class LatencyHistogramTest
+{
+    @Test
+    public void emptyHistogramHasNoLatency()
+    {
+        LatencyHistogram histogram = new LatencyHistogram();
+        Assert.assertEquals(histogram.getCount(), 0);
+        Assert.assertEquals(histogram.getMean(), 0.0, 0.0);
+        Assert.assertEquals(histogram.getMax(), 0.0, 0.0);
+        Assert.assertEquals(histogram.getPercentile(99), 0.0, 0.0);
+    }
+
+    @Test
+    public void smallValuesAreExact()
+    {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int micros = 1; micros <= 100; micros++)
+        {
+            histogram.recordNanos(micros * 1000L);
+        }
+        Assert.assertEquals(histogram.getCount(), 100);
+        Assert.assertEquals(histogram.getMean(), 0.0505, 1e-9);
+        Assert.assertEquals(histogram.getPercentile(50), 0.050, 1e-9);
+        Assert.assertEquals(histogram.getPercentile(99), 0.099, 1e-9);
+        Assert.assertEquals(histogram.getPercentile(100), 0.100, 1e-9);
+        Assert.assertEquals(histogram.getPercentile(0), 0.001, 1e-9);
+        Assert.assertEquals(histogram.getMax(), 0.100, 1e-9);
+    }
+
+    @Test
+    public void largeValuesAreWithinRelativeError()
+    {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int millis = 1; millis <= 10000; millis++)
+        {
+            histogram.recordMillis(millis);
+        }
+        // the mean and the maximum are computed from the exact values
+        Assert.assertEquals(histogram.getMean(), 5000.5, 1e-6);
+        Assert.assertEquals(histogram.getMax(), 10000.0, 0.0);
+        for (double percentile : new double[] { 10, 50, 90, 99, 99.9 })
+        {
+            double expected = percentile * 100;
+            double actual = histogram.getPercentile(percentile);
+            Assert.assertTrue(actual >= expected, String.format("p%s=%s is not below the real value %s", percentile, actual, expected));
+            Assert.assertTrue(actual <= expected * 1.016, String.format("p%s=%s is within 1.6%% of %s", percentile, actual, expected));
+        }
+    }
+
+    @Test
+    public void percentileIsNeverAboveMaximum()
+    {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.recordNanos(123456789);
+        Assert.assertEquals(histogram.getMax(), 123.456, 1e-9);
+        Assert.assertEquals(histogram.getPercentile(50), 123.456, 1e-9);
+        Assert.assertEquals(histogram.getPercentile(100), 123.456, 1e-9);
+    }
+
+    @Test
+    public void negativeValuesAreRecordedAsZero()
+    {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.recordNanos(-5000);
+        Assert.assertEquals(histogram.getCount(), 1);
+        Assert.assertEquals(histogram.getMax(), 0.0, 0.0);
+        Assert.assertEquals(histogram.getPercentile(50), 0.0, 0.0);
+    }
+
+    @Test
+    public void addMergesAllValues()
+    {
+        LatencyHistogram all = new LatencyHistogram();
+        LatencyHistogram first = new LatencyHistogram();
+        LatencyHistogram second = new LatencyHistogram();
+        for (int millis = 1; millis <= 1000; millis++)
+        {
+            all.recordMillis(millis);
+            (millis % 2 == 0 ? first : second).recordMillis(millis);
+        }
+        first.add(second);
+        Assert.assertEquals(first.getCount(), all.getCount());
+        Assert.assertEquals(first.getMean(), all.getMean(), 1e-9);
+        Assert.assertEquals(first.getMax(), all.getMax(), 0.0);
+        for (double percentile : new double[] { 1, 50, 90, 99, 100 })
+        {
+            Assert.assertEquals(first.getPercentile(percentile), all.getPercentile(percentile), 0.0);
+        }
+    }
+
+    @Test
+    public void sinceKeepsOnlyLaterValues()
+    {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int millis = 1; millis <= 1000; millis++)
+        {
+            histogram.recordMillis(millis);
+        }
+        LatencyHistogram earlier = histogram.copy();
+        Assert.assertEquals(histogram.since(earlier).getCount(), 0);
+        Assert.assertEquals(histogram.since(earlier).getMax(), 0.0, 0.0);
+
+        LatencyHistogram later = new LatencyHistogram();
+        for (int micros = 1; micros <= 100; micros++)
+        {
+            histogram.recordNanos(micros * 1000L);
+            later.recordNanos(micros * 1000L);
+        }
+        LatencyHistogram since = histogram.since(earlier);
+        Assert.assertEquals(since.getCount(), later.getCount());
+        Assert.assertEquals(since.getMean(), later.getMean(), 1e-9);
+        Assert.assertEquals(since.getMax(), later.getMax(), 0.0);
+        Assert.assertEquals(since.getPercentile(99), later.getPercentile(99), 0.0);
+
+        // a new maximum is exact
+        histogram.recordMillis(5000);
+        Assert.assertEquals(histogram.since(earlier).getMax(), 5000.0, 0.0);
+    }
+}
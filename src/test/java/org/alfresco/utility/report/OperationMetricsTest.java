@@ -0,0 +1,32 @@
+package org.alfresco.utility.report;
+
+import java.util.Map;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class OperationMetricsTest
+{
+    @Test
+    public void operationsSinceSnapshotOnlyCountLaterCalls()
+    {
+        OperationMetrics.time("metrics-test-before", () -> "done");
+        OperationMetrics.time("metrics-test-both", () -> "done");
+        Map<String, OperationMetrics.Operation> snapshot = OperationMetrics.snapshot();
+
+        OperationMetrics.time("metrics-test-both", () -> "done");
+        OperationMetrics.start("metrics-test-both").stop(false, 100);
+        OperationMetrics.time("metrics-test-after", () -> "done");
+
+        Map<String, OperationMetrics.Operation> since = OperationMetrics.getOperationsSince(snapshot);
+        Assert.assertFalse(since.containsKey("metrics-test-before"));
+        Assert.assertEquals(since.get("metrics-test-both").getCount(), 2);
+        Assert.assertEquals(since.get("metrics-test-both").getErrors(), 1);
+        Assert.assertEquals(since.get("metrics-test-both").getBytes(), 100);
+        Assert.assertEquals(since.get("metrics-test-after").getCount(), 1);
+
+        // the snapshot is not changed by later calls
+        Assert.assertEquals(snapshot.get("metrics-test-both").getCount(), 1);
+        Assert.assertEquals(OperationMetrics.get("metrics-test-both").getCount(), 3);
+    }
+}